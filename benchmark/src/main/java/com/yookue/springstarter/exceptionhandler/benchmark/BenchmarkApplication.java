@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.benchmark;
+
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import com.yookue.springstarter.exceptionhandler.annotation.EnableSimpleErrorController;
+
+
+/**
+ * Application for benchmarking the error path
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.benchmark.ErrorPathBenchmark
+ * @see com.yookue.springstarter.exceptionhandler.benchmark.StartupRunner
+ */
+@SpringBootApplication
+@EnableSimpleErrorController(viewName = "bench-error")
+@ImportRuntimeHints(value = BenchmarkRuntimeHints.class)
+public class BenchmarkApplication {
+}
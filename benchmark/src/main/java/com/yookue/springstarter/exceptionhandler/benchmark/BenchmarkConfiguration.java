@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.benchmark;
+
+
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.servlet.HandlerInterceptor;
+import com.yookue.commonplexus.springutil.annotation.ExceptionHandlerInvokable;
+import com.yookue.springstarter.exceptionhandler.event.ServletExceptionHandledEvent;
+import com.yookue.springstarter.exceptionhandler.facade.ErrorControllerCustomizer;
+
+
+/**
+ * Configuration for benchmarking the error path
+ * <p>
+ * The optional parts are switched by the properties that {@link com.yookue.springstarter.exceptionhandler.benchmark.ErrorPathBenchmark} sets
+ *
+ * @author David Hsing
+ */
+@Configuration(proxyBeanMethods = false)
+@SuppressWarnings("unused")
+public class BenchmarkConfiguration {
+    public static final String PROPERTIES_PREFIX = "benchmark";    // $NON-NLS-1$
+    public static final String FILTER_PATH = "/bench/filter";    // $NON-NLS-1$
+
+    @Bean
+    public FilterRegistrationBean<Filter> benchmarkFailingFilter() {
+        Filter filter = (request, response, chain) -> {
+            throw new IllegalStateException("Benchmark failure from filter");
+        };
+        FilterRegistrationBean<Filter> result = new FilterRegistrationBean<>(filter);
+        result.addUrlPatterns(FILTER_PATH);
+        result.setOrder(Ordered.LOWEST_PRECEDENCE);
+        return result;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX, name = "customizer", havingValue = "true")
+    public ErrorControllerCustomizer benchmarkErrorControllerCustomizer() {
+        return new ErrorControllerCustomizer() {
+            @Override
+            public String prepareErrorView(@Nonnull HttpServletRequest request, @Nullable HttpStatusCode status, @Nullable Throwable cause) {
+                return "bench-error";    // $NON-NLS-1$
+            }
+
+            @Override
+            public Map<String, Object> prepareErrorData(@Nonnull HttpServletRequest request, @Nullable HttpStatusCode status, @Nullable Throwable cause, boolean html) {
+                return Map.of("benchmark", Boolean.TRUE);    // $NON-NLS-1$
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX, name = "interceptor", havingValue = "true")
+    public BenchmarkInterceptor benchmarkInterceptor() {
+        return new BenchmarkInterceptor();
+    }
+
+    @Bean
+    public ApplicationListener<ServletExceptionHandledEvent> benchmarkEventListener() {
+        // Reads the attributes, as an audit listener does
+        return event -> event.getErrorAttributes();
+    }
+
+
+    /**
+     * Interceptor that is invoked by the exception resolver
+     *
+     * @author David Hsing
+     */
+    @ExceptionHandlerInvokable
+    public static class BenchmarkInterceptor implements HandlerInterceptor {
+        @Override
+        public boolean preHandle(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nonnull Object handler) {
+            request.setAttribute(BenchmarkInterceptor.class.getName(), Boolean.TRUE);
+            return true;
+        }
+    }
+}
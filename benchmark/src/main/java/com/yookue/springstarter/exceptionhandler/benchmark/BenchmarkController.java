@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.benchmark;
+
+
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.ModelAndView;
+
+
+/**
+ * Controller that always throws, for benchmarking the error path from the dispatcher servlet
+ *
+ * @author David Hsing
+ */
+@Controller
+@SuppressWarnings("unused")
+public class BenchmarkController {
+    public static final String CONTROLLER_PATH = "/bench/controller";    // $NON-NLS-1$
+
+    @RequestMapping(path = CONTROLLER_PATH)
+    public ModelAndView fail() {
+        throw new IllegalStateException("Benchmark failure from controller");
+    }
+}
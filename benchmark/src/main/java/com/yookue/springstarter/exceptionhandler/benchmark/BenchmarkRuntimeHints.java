@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.yookue.springstarter.exceptionhandler.benchmark;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+
+/**
+ * {@link org.springframework.aot.hint.RuntimeHintsRegistrar} for the benchmark application
+ * <p>
+ * The error templates of the benchmark live outside the default template locations
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.benchmark.StartupRunner
+ */
+public class BenchmarkRuntimeHints implements RuntimeHintsRegistrar {
+    @Override
+    public void registerHints(@Nonnull RuntimeHints hints, @Nullable ClassLoader classLoader) {
+        hints.resources().registerPattern("thymeleaf/*").registerPattern("freemarker/*").registerPattern("groovy/*").registerPattern("mustache/*");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+    }
+}
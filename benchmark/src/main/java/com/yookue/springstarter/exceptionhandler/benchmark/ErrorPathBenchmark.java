@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.benchmark;
+
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import jakarta.servlet.Filter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.DefaultMockMvcBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import com.yookue.springstarter.exceptionhandler.controller.AbstractBasicErrorController;
+
+
+/**
+ * Benchmark of the end-to-end error path
+ * <p>
+ * Covers {@code FilterExceptionHandlerFilter} -> {@code AbstractFilterExceptionResolver} -> {@code DefaultBasicErrorController},
+ * for rest and html errors across the template engines, with and without the customizer, interceptors, event publishing and stack traces.
+ * Run with the gc profiler ({@code -prof gc}) to see the allocation rate, or with {@link com.yookue.springstarter.exceptionhandler.benchmark.BenchmarkRunner}.
+ * Note that the internal engine forwards to a jsp, which is recorded but not rendered by {@link org.springframework.test.web.servlet.MockMvc}
+ *
+ * @author David Hsing
+ */
+@State(value = Scope.Benchmark)
+@BenchmarkMode(value = Mode.Throughput)
+@OutputTimeUnit(value = TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+@SuppressWarnings("unused")
+public class ErrorPathBenchmark {
+    private static final String[] ENGINES = {"thymeleaf", "freemarker", "groovy", "mustache"};    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+
+    @Param(value = {"thymeleaf", "freemarker", "groovy", "mustache", "internal"})
+    private String engine;
+
+    @Param(value = {"rest", "html"})
+    private String type;
+
+    @Param(value = {"filter", "controller"})
+    private String stage;
+
+    @Param(value = {"false", "true"})
+    private boolean customizer;
+
+    @Param(value = {"false", "true"})
+    private boolean interceptor;
+
+    @Param(value = {"false", "true"})
+    private boolean publishEvent;
+
+    @Param(value = {"false", "true"})
+    private boolean stackTrace;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private MockHttpServletRequestBuilder requestBuilder;
+
+    @Setup(value = Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        Map<String, Object> properties = new HashMap<>();
+        for (String element : ENGINES) {
+            properties.put(element.equals("groovy") ? "spring.groovy.template.enabled" : "spring." + element + ".enabled", element.equals(engine));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        }
+        if (engine.equals("internal")) {    // $NON-NLS-1$
+            properties.put("spring.mvc.view.prefix", "/WEB-INF/jsp/");    // $NON-NLS-1$ // $NON-NLS-2$
+            properties.put("spring.mvc.view.suffix", ".jsp");    // $NON-NLS-1$ // $NON-NLS-2$
+        }
+        properties.put("server.error.include-stacktrace", stackTrace ? "always" : "never");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        properties.put("server.error.include-exception", stackTrace);    // $NON-NLS-1$
+        properties.put(BenchmarkConfiguration.PROPERTIES_PREFIX + ".customizer", customizer);    // $NON-NLS-1$
+        properties.put(BenchmarkConfiguration.PROPERTIES_PREFIX + ".interceptor", interceptor);    // $NON-NLS-1$
+        context = new SpringApplicationBuilder(BenchmarkApplication.class).web(WebApplicationType.SERVLET).properties(properties).properties("server.port=0").run();    // $NON-NLS-1$
+        context.getBeanProvider(AbstractBasicErrorController.class).ifAvailable(element -> element.setPublishEvent(publishEvent));
+        DefaultMockMvcBuilder builder = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context);
+        context.getBeanProvider(FilterRegistrationBean.class).orderedStream().forEach(registration -> {
+            Filter filter = ((FilterRegistrationBean<?>) registration).getFilter();
+            builder.addFilter(filter, ((FilterRegistrationBean<?>) registration).getUrlPatterns().toArray(new String[0]));
+        });
+        mockMvc = builder.build();
+        String path = stage.equals("filter") ? BenchmarkConfiguration.FILTER_PATH : BenchmarkController.CONTROLLER_PATH;    // $NON-NLS-1$
+        requestBuilder = type.equals("rest") ? MockMvcRequestBuilders.post(path).header("X-Requested-With", "XMLHttpRequest").accept(MediaType.APPLICATION_JSON) : MockMvcRequestBuilders.get(path).accept(MediaType.TEXT_HTML);    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+    }
+
+    @TearDown(value = Level.Trial)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public void errorPath(Blackhole blackhole) throws Exception {
+        MvcResult result = mockMvc.perform(requestBuilder).andReturn();
+        blackhole.consume(result.getResponse().getContentAsByteArray());
+        blackhole.consume(result.getResponse().getStatus());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.yookue.springstarter.exceptionhandler.benchmark;
+
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import jakarta.annotation.Nonnull;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+
+/**
+ * Runner for measuring the startup time and the resident memory
+ * <p>
+ * The startup time is measured from the start of the process, so it includes the start of the jvm or the native image.
+ * Both the jvm and the native image of the benchmark application print a line as {@code startup=<millis>ms rss=<kilobytes>kB}, then exit
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.benchmark.BenchmarkApplication
+ */
+public class StartupRunner {
+    private static final Path PROC_STATUS = Path.of("/proc/self/status");    // $NON-NLS-1$
+    private static final String RSS_PREFIX = "VmRSS:";    // $NON-NLS-1$
+
+    public static void main(String[] args) {
+        ConfigurableApplicationContext context = SpringApplication.run(BenchmarkApplication.class, args);
+        Instant startInstant = ProcessHandle.current().info().startInstant().orElse(Instant.now());
+        long startupMillis = Duration.between(startInstant, Instant.now()).toMillis();
+        System.out.printf("startup=%dms rss=%s%n", startupMillis, residentMemory());    // $NON-NLS-1$
+        System.exit(SpringApplication.exit(context));
+    }
+
+    @Nonnull
+    private static String residentMemory() {
+        try {
+            List<String> lines = Files.readAllLines(PROC_STATUS);
+            for (String line : lines) {
+                if (line.startsWith(RSS_PREFIX)) {
+                    return line.substring(RSS_PREFIX.length()).replaceAll("\\s+", "");    // $NON-NLS-1$ // $NON-NLS-2$
+                }
+            }
+        } catch (IOException ignored) {
+        }
+        return "n/a";    // $NON-NLS-1$
+    }
+}
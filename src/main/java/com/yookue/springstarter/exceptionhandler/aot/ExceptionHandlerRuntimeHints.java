@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.yookue.springstarter.exceptionhandler.aot;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.aot.hint.ExecutableMode;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.context.event.SimpleApplicationEventMulticaster;
+import org.springframework.util.ReflectionUtils;
+import com.yookue.springstarter.exceptionhandler.filter.FilterExceptionHandlerFilter;
+
+
+/**
+ * {@link org.springframework.aot.hint.RuntimeHintsRegistrar} for exception handler
+ * <p>
+ * Registers the reflection that the starter performs by itself, and the conventional locations of the error templates.
+ * The exception classes in {@code spring.exception-handler.status-mapping.exception-statuses}, and the ones annotated with {@link org.springframework.web.bind.annotation.ResponseStatus},
+ * belong to the application, so they should be registered by the application
+ *
+ * @author David Hsing
+ * @see org.springframework.context.annotation.ImportRuntimeHints
+ */
+@SuppressWarnings("unused")
+public class ExceptionHandlerRuntimeHints implements RuntimeHintsRegistrar {
+    private static final String[] OPTIONAL_TYPES = {
+        "com.fasterxml.jackson.databind.ObjectMapper",    // $NON-NLS-1$
+        "com.google.gson.Gson",    // $NON-NLS-1$
+        "org.springframework.security.core.AuthenticationException",    // $NON-NLS-1$
+        "org.thymeleaf.Thymeleaf"    // $NON-NLS-1$
+    };
+    private static final String[] INSTANTIATED_TYPES = {
+        "com.fasterxml.jackson.dataformat.cbor.CBORFactory",    // $NON-NLS-1$
+        "com.fasterxml.jackson.dataformat.smile.SmileFactory"    // $NON-NLS-1$
+    };
+    private static final String[] TEMPLATE_PATTERNS = {"templates/error.*", "templates/error/*"};    // $NON-NLS-1$ // $NON-NLS-2$
+
+    @Override
+    public void registerHints(@Nonnull RuntimeHints hints, @Nullable ClassLoader classLoader) {
+        // Read by SimpleEventMulticasterProcessor
+        hints.reflection().registerField(ReflectionUtils.findField(SimpleApplicationEventMulticaster.class, "errorHandler"));    // $NON-NLS-1$
+        // Introspected as the handler method of FilterExceptionHandlerFilter
+        hints.reflection().registerMethod(ReflectionUtils.findMethod(FilterExceptionHandlerFilter.class, "doFilterInternal", HttpServletRequest.class, HttpServletResponse.class, FilterChain.class), ExecutableMode.INTROSPECT);    // $NON-NLS-1$
+        // Detected by ClassUtils.isPresent
+        for (String type : OPTIONAL_TYPES) {
+            hints.reflection().registerType(TypeReference.of(type));
+        }
+        // Instantiated by JsonErrorWriter if present
+        for (String type : INSTANTIATED_TYPES) {
+            hints.reflection().registerType(TypeReference.of(type), MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        }
+        for (String pattern : TEMPLATE_PATTERNS) {
+            hints.resources().registerPattern(pattern);
+        }
+    }
+}
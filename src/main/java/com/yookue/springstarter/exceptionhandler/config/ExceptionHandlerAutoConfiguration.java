@@ -17,41 +17,69 @@
 package com.yookue.springstarter.exceptionhandler.config;
 
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import jakarta.annotation.Nonnull;
 import jakarta.servlet.Servlet;
+import org.apache.commons.lang3.BooleanUtils;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureOrder;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.system.JavaVersion;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.boot.web.servlet.view.MustacheViewResolver;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.context.support.AbstractApplicationContext;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.util.CollectionUtils;
 import org.springframework.web.servlet.DispatcherServlet;
 import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ViewResolver;
 import org.springframework.web.servlet.view.InternalResourceViewResolver;
 import org.springframework.web.servlet.view.freemarker.FreeMarkerViewResolver;
 import org.springframework.web.servlet.view.groovy.GroovyMarkupViewResolver;
 import org.thymeleaf.spring6.view.ThymeleafViewResolver;
 import com.yookue.commonplexus.javaseutil.util.CollectionPlainWraps;
 import com.yookue.commonplexus.javaseutil.util.MapPlainWraps;
+import com.yookue.springstarter.exceptionhandler.aot.ExceptionHandlerRuntimeHints;
+import com.yookue.springstarter.exceptionhandler.event.AsyncExceptionEventPublisher;
+import com.yookue.springstarter.exceptionhandler.event.ReactiveExceptionHandledEvent;
+import com.yookue.springstarter.exceptionhandler.event.SelectiveEventMulticaster;
+import com.yookue.springstarter.exceptionhandler.event.ServletExceptionHandledEvent;
+import com.yookue.springstarter.exceptionhandler.facade.ErrorControllerCustomizer;
+import com.yookue.springstarter.exceptionhandler.facade.ExceptionHandlerMetrics;
 import com.yookue.springstarter.exceptionhandler.filter.FilterExceptionHandlerFilter;
 import com.yookue.springstarter.exceptionhandler.processor.SimpleEventMulticasterProcessor;
 import com.yookue.springstarter.exceptionhandler.property.ExceptionHandlerProperties;
-import com.yookue.springstarter.exceptionhandler.resolver.AbstractFilterExceptionResolver;
+import com.yookue.springstarter.exceptionhandler.resolver.DefaultFilterExceptionResolver;
 import com.yookue.springstarter.exceptionhandler.resolver.FreeMarkerFilterExceptionResolver;
 import com.yookue.springstarter.exceptionhandler.resolver.GroovyFilterExceptionResolver;
 import com.yookue.springstarter.exceptionhandler.resolver.InternalFilterExceptionResolver;
 import com.yookue.springstarter.exceptionhandler.resolver.MustacheFilterExceptionResolver;
 import com.yookue.springstarter.exceptionhandler.resolver.ThymeleafFilterExceptionResolver;
+import com.yookue.springstarter.exceptionhandler.support.ErrorPageCache;
+import com.yookue.springstarter.exceptionhandler.support.ErrorRenderGuard;
+import com.yookue.springstarter.exceptionhandler.support.ErrorStatusRegistry;
+import com.yookue.springstarter.exceptionhandler.support.MicrometerExceptionHandlerMetrics;
+import com.yookue.springstarter.exceptionhandler.support.NotFoundPathCache;
+import io.micrometer.core.instrument.MeterRegistry;
 
 
 /**
@@ -66,28 +94,72 @@ import com.yookue.springstarter.exceptionhandler.resolver.ThymeleafFilterExcepti
 @ConditionalOnClass(value = {Servlet.class, DispatcherServlet.class})
 @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @AutoConfigureOrder(value = Ordered.LOWEST_PRECEDENCE - 10)
-@Import(value = {ExceptionHandlerAutoConfiguration.Entry.class, ExceptionHandlerAutoConfiguration.Resolver.class, ExceptionHandlerAutoConfiguration.Filter.class, ExceptionHandlerAutoConfiguration.Listener.class})
+@AutoConfigureAfter(name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
+@ImportRuntimeHints(value = ExceptionHandlerRuntimeHints.class)
+@Import(value = {ExceptionHandlerSharedConfiguration.Entry.class, ExceptionHandlerAutoConfiguration.Entry.class, ExceptionHandlerAutoConfiguration.Metrics.class, ExceptionHandlerAutoConfiguration.Resolver.class, ExceptionHandlerAutoConfiguration.Filter.class, ExceptionHandlerAutoConfiguration.Listener.class, ExceptionHandlerSharedConfiguration.Endpoint.class})
 public class ExceptionHandlerAutoConfiguration {
     public static final String PROPERTIES_PREFIX = "spring.exception-handler";    // $NON-NLS-1$
     public static final String EXCEPTION_RESOLVER = "filterHandlerExceptionResolver";    // $NON-NLS-1$
+    private static final String EVENT_THREAD_PREFIX = "exception-event-";    // $NON-NLS-1$
 
     @Order(value = 0)
     @EnableConfigurationProperties(value = ExceptionHandlerProperties.class)
     static class Entry {
+        @Bean
+        @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".page-cache", name = "enabled", havingValue = "true")
+        @ConditionalOnMissingBean
+        public ErrorPageCache errorPageCache(@Nonnull ExceptionHandlerProperties properties, @Nonnull ObjectProvider<ViewResolver> resolvers) {
+            Integer limit = properties.getPageCache().getCacheLimit();
+            return new ErrorPageCache((limit == null) ? 0 : limit, resolvers);
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".render-guard", name = "enabled", havingValue = "true")
+        @ConditionalOnMissingBean
+        public ErrorRenderGuard errorRenderGuard(@Nonnull ExceptionHandlerProperties properties) {
+            ExceptionHandlerProperties.RenderGuard props = properties.getRenderGuard();
+            int maxConcurrent = Optional.ofNullable(props.getMaxConcurrent()).orElse(0), failureThreshold = Optional.ofNullable(props.getFailureThreshold()).orElse(0);
+            return new ErrorRenderGuard(maxConcurrent, props.getAcquireTimeout(), props.getRenderBudget(), failureThreshold, Optional.ofNullable(props.getOpenDuration()).orElse(Duration.ofSeconds(30L)));
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".not-found-cache", name = "enabled", havingValue = "true")
+        @ConditionalOnMissingBean
+        public NotFoundPathCache notFoundPathCache(@Nonnull ExceptionHandlerProperties properties) {
+            ExceptionHandlerProperties.NotFoundCache props = properties.getNotFoundCache();
+            int admitCount = Optional.ofNullable(props.getAdmitCount()).orElse(1), maxPaths = Optional.ofNullable(props.getMaxPaths()).orElse(0), maxBodySize = Optional.ofNullable(props.getMaxBodySize()).orElse(0);
+            return new NotFoundPathCache(admitCount, maxPaths, Optional.ofNullable(props.getTimeToLive()).orElse(Duration.ofSeconds(60L)), maxBodySize, BooleanUtils.isTrue(props.getCacheHtml()));
+        }
+
     }
 
 
     @Order(value = 1)
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    static class Metrics {
+        @Bean
+        @ConditionalOnBean(value = MeterRegistry.class)
+        @ConditionalOnMissingBean
+        public ExceptionHandlerMetrics exceptionHandlerMetrics(@Nonnull ExceptionHandlerProperties properties, @Nonnull MeterRegistry registry, @Nonnull ObjectProvider<AsyncExceptionEventPublisher> publishers, @Nonnull ObjectProvider<ErrorRenderGuard> renderGuards) {
+            Integer limit = properties.getMetrics().getMaxExceptionTags();
+            MicrometerExceptionHandlerMetrics result = new MicrometerExceptionHandlerMetrics(registry, (limit == null) ? 0 : limit);
+            publishers.ifAvailable(result::bindPublisher);
+            renderGuards.ifAvailable(result::bindRenderGuard);
+            return result;
+        }
+    }
+
+
+    @Order(value = 2)
     static class Resolver {
         @Bean(name = EXCEPTION_RESOLVER)
         @ConditionalOnProperty(prefix = "spring.thymeleaf", name = "enabled", havingValue = "true", matchIfMissing = true)
         @ConditionalOnClass(name = "org.thymeleaf.Thymeleaf")
         @ConditionalOnBean(value = ThymeleafViewResolver.class)
         @ConditionalOnMissingBean(name = EXCEPTION_RESOLVER)
-        public HandlerExceptionResolver thymeleafFilterExceptionResolver(@Nonnull ThymeleafViewResolver resolver, @Nonnull ExceptionHandlerProperties properties) {
-            AbstractFilterExceptionResolver result = new ThymeleafFilterExceptionResolver(resolver);
-            Optional.ofNullable(properties.getExceptionResolver().getResolverOrder()).ifPresent(result::setOrder);
-            return result;
+        public HandlerExceptionResolver thymeleafFilterExceptionResolver(@Nonnull ThymeleafViewResolver resolver, @Nonnull ServerProperties serverProperties, @Nonnull ExceptionHandlerProperties properties, @Nonnull ObjectProvider<ErrorControllerCustomizer> customizers, @Nonnull ObjectProvider<ExceptionHandlerMetrics> metrics, @Nonnull ObjectProvider<ErrorPageCache> pageCaches, @Nonnull ObjectProvider<ErrorRenderGuard> renderGuards, @Nonnull ObjectProvider<ErrorStatusRegistry> statusRegistries) {
+            return initResolver(new ThymeleafFilterExceptionResolver(resolver, serverProperties, properties), properties, customizers, metrics, pageCaches, renderGuards, statusRegistries);
         }
 
         @Bean(name = EXCEPTION_RESOLVER)
@@ -95,10 +167,8 @@ public class ExceptionHandlerAutoConfiguration {
         @ConditionalOnClass(name = "freemarker.template.Template")
         @ConditionalOnBean(value = FreeMarkerViewResolver.class)
         @ConditionalOnMissingBean(name = EXCEPTION_RESOLVER)
-        public HandlerExceptionResolver freeMarkerFilterExceptionResolver(@Nonnull FreeMarkerViewResolver resolver, @Nonnull ExceptionHandlerProperties properties) {
-            AbstractFilterExceptionResolver result = new FreeMarkerFilterExceptionResolver(resolver);
-            Optional.ofNullable(properties.getExceptionResolver().getResolverOrder()).ifPresent(result::setOrder);
-            return result;
+        public HandlerExceptionResolver freeMarkerFilterExceptionResolver(@Nonnull FreeMarkerViewResolver resolver, @Nonnull ServerProperties serverProperties, @Nonnull ExceptionHandlerProperties properties, @Nonnull ObjectProvider<ErrorControllerCustomizer> customizers, @Nonnull ObjectProvider<ExceptionHandlerMetrics> metrics, @Nonnull ObjectProvider<ErrorPageCache> pageCaches, @Nonnull ObjectProvider<ErrorRenderGuard> renderGuards, @Nonnull ObjectProvider<ErrorStatusRegistry> statusRegistries) {
+            return initResolver(new FreeMarkerFilterExceptionResolver(resolver, serverProperties, properties), properties, customizers, metrics, pageCaches, renderGuards, statusRegistries);
         }
 
         @Bean(name = EXCEPTION_RESOLVER)
@@ -106,10 +176,8 @@ public class ExceptionHandlerAutoConfiguration {
         @ConditionalOnClass(name = {"groovy.text.Template", "org.codehaus.groovy.tools.GroovyClass"})
         @ConditionalOnBean(value = GroovyMarkupViewResolver.class)
         @ConditionalOnMissingBean(name = EXCEPTION_RESOLVER)
-        public HandlerExceptionResolver groovyFilterExceptionResolver(@Nonnull GroovyMarkupViewResolver resolver, @Nonnull ExceptionHandlerProperties properties) {
-            AbstractFilterExceptionResolver result = new GroovyFilterExceptionResolver(resolver);
-            Optional.ofNullable(properties.getExceptionResolver().getResolverOrder()).ifPresent(result::setOrder);
-            return result;
+        public HandlerExceptionResolver groovyFilterExceptionResolver(@Nonnull GroovyMarkupViewResolver resolver, @Nonnull ServerProperties serverProperties, @Nonnull ExceptionHandlerProperties properties, @Nonnull ObjectProvider<ErrorControllerCustomizer> customizers, @Nonnull ObjectProvider<ExceptionHandlerMetrics> metrics, @Nonnull ObjectProvider<ErrorPageCache> pageCaches, @Nonnull ObjectProvider<ErrorRenderGuard> renderGuards, @Nonnull ObjectProvider<ErrorStatusRegistry> statusRegistries) {
+            return initResolver(new GroovyFilterExceptionResolver(resolver, serverProperties, properties), properties, customizers, metrics, pageCaches, renderGuards, statusRegistries);
         }
 
         @Bean(name = EXCEPTION_RESOLVER)
@@ -117,31 +185,38 @@ public class ExceptionHandlerAutoConfiguration {
         @ConditionalOnClass(name = "com.samskivert.mustache.Template")
         @ConditionalOnBean(value = MustacheViewResolver.class)
         @ConditionalOnMissingBean(name = EXCEPTION_RESOLVER)
-        public HandlerExceptionResolver mustacheFilterExceptionResolver(@Nonnull MustacheViewResolver resolver, @Nonnull ExceptionHandlerProperties properties) {
-            AbstractFilterExceptionResolver result = new MustacheFilterExceptionResolver(resolver);
-            Optional.ofNullable(properties.getExceptionResolver().getResolverOrder()).ifPresent(result::setOrder);
-            return result;
+        public HandlerExceptionResolver mustacheFilterExceptionResolver(@Nonnull MustacheViewResolver resolver, @Nonnull ServerProperties serverProperties, @Nonnull ExceptionHandlerProperties properties, @Nonnull ObjectProvider<ErrorControllerCustomizer> customizers, @Nonnull ObjectProvider<ExceptionHandlerMetrics> metrics, @Nonnull ObjectProvider<ErrorPageCache> pageCaches, @Nonnull ObjectProvider<ErrorRenderGuard> renderGuards, @Nonnull ObjectProvider<ErrorStatusRegistry> statusRegistries) {
+            return initResolver(new MustacheFilterExceptionResolver(resolver, serverProperties, properties), properties, customizers, metrics, pageCaches, renderGuards, statusRegistries);
         }
 
         @Bean(name = EXCEPTION_RESOLVER)
         @ConditionalOnProperty(prefix = "spring.mvc.view", name = "suffix")
         @ConditionalOnBean(value = InternalResourceViewResolver.class)
         @ConditionalOnMissingBean(name = EXCEPTION_RESOLVER)
-        public HandlerExceptionResolver internalFilterExceptionResolver(@Nonnull InternalResourceViewResolver resolver, @Nonnull ExceptionHandlerProperties properties) {
-            AbstractFilterExceptionResolver result = new InternalFilterExceptionResolver(resolver);
+        public HandlerExceptionResolver internalFilterExceptionResolver(@Nonnull InternalResourceViewResolver resolver, @Nonnull ServerProperties serverProperties, @Nonnull ExceptionHandlerProperties properties, @Nonnull ObjectProvider<ErrorControllerCustomizer> customizers, @Nonnull ObjectProvider<ExceptionHandlerMetrics> metrics, @Nonnull ObjectProvider<ErrorPageCache> pageCaches, @Nonnull ObjectProvider<ErrorRenderGuard> renderGuards, @Nonnull ObjectProvider<ErrorStatusRegistry> statusRegistries) {
+            return initResolver(new InternalFilterExceptionResolver(resolver, serverProperties, properties), properties, customizers, metrics, pageCaches, renderGuards, statusRegistries);
+        }
+
+        @Nonnull
+        private static HandlerExceptionResolver initResolver(@Nonnull DefaultFilterExceptionResolver result, @Nonnull ExceptionHandlerProperties properties, @Nonnull ObjectProvider<ErrorControllerCustomizer> customizers, @Nonnull ObjectProvider<ExceptionHandlerMetrics> metrics, @Nonnull ObjectProvider<ErrorPageCache> pageCaches, @Nonnull ObjectProvider<ErrorRenderGuard> renderGuards, @Nonnull ObjectProvider<ErrorStatusRegistry> statusRegistries) {
             Optional.ofNullable(properties.getExceptionResolver().getResolverOrder()).ifPresent(result::setOrder);
+            customizers.ifAvailable(result::setErrorControllerCustomizer);
+            metrics.ifAvailable(result::setHandlerMetrics);
+            pageCaches.ifAvailable(result::setErrorPageCache);
+            renderGuards.ifAvailable(result::setRenderGuard);
+            statusRegistries.ifUnique(result::setStatusRegistry);
             return result;
         }
     }
 
 
-    @Order(value = 2)
+    @Order(value = 3)
     static class Filter {
         @Bean
         @ConditionalOnBean(name = EXCEPTION_RESOLVER)
         @ConditionalOnMissingBean(value = FilterExceptionHandlerFilter.class, parameterizedContainer = FilterRegistrationBean.class)
-        public FilterRegistrationBean<FilterExceptionHandlerFilter> filterExceptionHandlerFilterRegistration(@Nonnull ExceptionHandlerProperties properties, @Qualifier(value = EXCEPTION_RESOLVER) HandlerExceptionResolver resolver) {
-            FilterExceptionHandlerFilter filter = new FilterExceptionHandlerFilter(properties, resolver);
+        public FilterRegistrationBean<FilterExceptionHandlerFilter> filterExceptionHandlerFilterRegistration(@Nonnull ExceptionHandlerProperties properties, @Qualifier(value = EXCEPTION_RESOLVER) HandlerExceptionResolver resolver, @Nonnull ObjectProvider<ExceptionHandlerMetrics> metrics, @Nonnull ObjectProvider<NotFoundPathCache> notFoundCaches) {
+            FilterExceptionHandlerFilter filter = new FilterExceptionHandlerFilter(properties, resolver, metrics.getIfAvailable(), notFoundCaches.getIfAvailable());
             FilterRegistrationBean<FilterExceptionHandlerFilter> result = new FilterRegistrationBean<>(filter);
             ExceptionHandlerProperties.ExceptionFilter props = properties.getExceptionFilter();
             Optional.ofNullable(props.getFilerOrder()).ifPresent(result::setOrder);
@@ -152,15 +227,58 @@ public class ExceptionHandlerAutoConfiguration {
     }
 
 
-    @Order(value = 3)
+    @Order(value = 4)
     static class Listener {
         @Bean
         @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".event-listener", name = "handle-event-multicaster", havingValue = "true", matchIfMissing = true)
         @ConditionalOnMissingBean
         public SimpleEventMulticasterProcessor simpleEventMulticasterProcessor(@Nonnull ExceptionHandlerProperties properties) {
+            ExceptionHandlerProperties.EventListener props = properties.getEventListener();
             SimpleEventMulticasterProcessor result = new SimpleEventMulticasterProcessor();
-            Optional.ofNullable(properties.getEventListener().getProcessorOrder()).ifPresent(result::setOrder);
+            Optional.ofNullable(props.getProcessorOrder()).ifPresent(result::setOrder);
             return result;
         }
+
+        @Bean(name = AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME)
+        @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".event-listener", name = "async-executor", havingValue = "true")
+        @ConditionalOnMissingBean(name = AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME)
+        public SelectiveEventMulticaster selectiveEventMulticaster(@Nonnull BeanFactory beanFactory, @Nonnull ExceptionHandlerProperties properties) {
+            SelectiveEventMulticaster result = new SelectiveEventMulticaster(beanFactory);
+            result.setAsyncExecution(createEventExecutor(properties.getEventListener()), getAsyncEventTypes(properties.getEventListener()));
+            return result;
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".async-publisher", name = "enabled", havingValue = "true")
+        @ConditionalOnMissingBean
+        public AsyncExceptionEventPublisher asyncExceptionEventPublisher(@Nonnull ExceptionHandlerProperties properties, @Nonnull ApplicationEventPublisher publisher) {
+            ExceptionHandlerProperties.AsyncPublisher props = properties.getAsyncPublisher();
+            Integer capacity = props.getQueueCapacity();
+            AsyncExceptionEventPublisher result = new AsyncExceptionEventPublisher(publisher, (capacity == null) ? 0 : capacity);
+            Optional.ofNullable(props.getBatchSize()).ifPresent(result::setBatchSize);
+            Optional.ofNullable(props.getOverflowPolicy()).ifPresent(result::setOverflowPolicy);
+            Optional.ofNullable(props.getSampleRate()).ifPresent(result::setSampleRate);
+            Optional.ofNullable(props.getBlockTimeout()).ifPresent(result::setBlockTimeout);
+            Optional.ofNullable(props.getShutdownTimeout()).ifPresent(result::setShutdownTimeout);
+            return result;
+        }
+
+        @Nonnull
+        private static SimpleAsyncTaskExecutor createEventExecutor(@Nonnull ExceptionHandlerProperties.EventListener props) {
+            SimpleAsyncTaskExecutor result = new SimpleAsyncTaskExecutor(EVENT_THREAD_PREFIX);
+            boolean virtualThreads = JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE);
+            result.setVirtualThreads(virtualThreads);
+            result.setDaemon(true);
+            if (!virtualThreads) {
+                // Each task spawns a platform thread, so an error storm must not turn into a thread storm
+                result.setConcurrencyLimit(Math.max(Optional.ofNullable(props.getAsyncConcurrencyLimit()).orElse(1), 1));
+            }
+            return result;
+        }
+
+        @Nonnull
+        private static Collection<Class<?>> getAsyncEventTypes(@Nonnull ExceptionHandlerProperties.EventListener props) {
+            return CollectionUtils.isEmpty(props.getAsyncEventTypes()) ? List.<Class<?>>of(ServletExceptionHandledEvent.class, ReactiveExceptionHandledEvent.class) : props.getAsyncEventTypes();
+        }
     }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.config;
+
+
+import java.time.Duration;
+import java.util.Optional;
+import jakarta.annotation.Nonnull;
+import org.apache.commons.lang3.BooleanUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.annotation.Order;
+import com.yookue.springstarter.exceptionhandler.endpoint.ErrorFingerprintEndpoint;
+import com.yookue.springstarter.exceptionhandler.property.ExceptionHandlerProperties;
+import com.yookue.springstarter.exceptionhandler.support.ErrorFingerprintAggregator;
+import com.yookue.springstarter.exceptionhandler.support.ErrorLogLimiter;
+import com.yookue.springstarter.exceptionhandler.support.ErrorMessageCache;
+import com.yookue.springstarter.exceptionhandler.support.ErrorStatusRegistry;
+import com.yookue.springstarter.exceptionhandler.support.ErrorStatusRegistryInstaller;
+import com.yookue.springstarter.exceptionhandler.support.StackTraceRenderer;
+
+
+/**
+ * Configuration of the beans that are shared by the servlet and the reactive exception handlers
+ * <p>
+ * Imported by both {@link com.yookue.springstarter.exceptionhandler.config.ExceptionHandlerAutoConfiguration} and {@link com.yookue.springstarter.exceptionhandler.config.ReactiveExceptionHandlerAutoConfiguration},
+ * the {@code Entry} before their own beans, and the {@code Endpoint} after them
+ *
+ * @author David Hsing
+ */
+class ExceptionHandlerSharedConfiguration {
+    @Order(value = 0)
+    @EnableConfigurationProperties(value = {ExceptionHandlerProperties.class, ServerProperties.class})
+    static class Entry {
+        @Bean
+        @ConditionalOnMissingBean
+        public ErrorStatusRegistry errorStatusRegistry(@Nonnull ExceptionHandlerProperties properties) {
+            ExceptionHandlerProperties.StatusMapping props = properties.getStatusMapping();
+            return new ErrorStatusRegistry(props.getExceptionStatuses(), BooleanUtils.isNotFalse(props.getDetectResponseStatus()));
+        }
+
+        @Bean
+        public ErrorStatusRegistryInstaller errorStatusRegistryInstaller(@Nonnull ObjectProvider<ErrorStatusRegistry> registries) {
+            return new ErrorStatusRegistryInstaller(registries);
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        public StackTraceRenderer stackTraceRenderer(@Nonnull ExceptionHandlerProperties properties) {
+            ExceptionHandlerProperties.StackTrace props = properties.getStackTrace();
+            int maxFrames = Optional.ofNullable(props.getMaxFrames()).orElse(0), maxLength = Optional.ofNullable(props.getMaxLength()).orElse(0), cacheLimit = Optional.ofNullable(props.getCacheLimit()).orElse(0);
+            return new StackTraceRenderer(maxFrames, maxLength, cacheLimit, props.getExcludePackages());
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = ExceptionHandlerAutoConfiguration.PROPERTIES_PREFIX + ".error-log", name = "rate-limit", havingValue = "true")
+        @ConditionalOnMissingBean
+        public ErrorLogLimiter errorLogLimiter(@Nonnull ExceptionHandlerProperties properties) {
+            ExceptionHandlerProperties.ErrorLog props = properties.getErrorLog();
+            double permits = Optional.ofNullable(props.getPermitsPerSecond()).orElse(0.0D);
+            int burstSize = Optional.ofNullable(props.getBurstSize()).orElse(1), maxKeys = Optional.ofNullable(props.getMaxKeys()).orElse(0);
+            return new ErrorLogLimiter(permits, burstSize, Optional.ofNullable(props.getSummaryInterval()).orElse(Duration.ofSeconds(10L)), maxKeys);
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = ExceptionHandlerAutoConfiguration.PROPERTIES_PREFIX + ".message-cache", name = "enabled", havingValue = "true")
+        @ConditionalOnMissingBean
+        public ErrorMessageCache errorMessageCache(@Nonnull ExceptionHandlerProperties properties) {
+            ExceptionHandlerProperties.MessageCache props = properties.getMessageCache();
+            Integer limit = props.getCacheLimit();
+            return new ErrorMessageCache((limit == null) ? 0 : limit, props.getTimeToLive());
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = ExceptionHandlerAutoConfiguration.PROPERTIES_PREFIX + ".fingerprint", name = "enabled", havingValue = "true")
+        @ConditionalOnMissingBean
+        public ErrorFingerprintAggregator errorFingerprintAggregator(@Nonnull ExceptionHandlerProperties properties, @Nonnull ServerProperties serverProperties) {
+            ExceptionHandlerProperties.Fingerprint props = properties.getFingerprint();
+            int topFrames = Optional.ofNullable(props.getTopFrames()).orElse(0), maxFingerprints = Optional.ofNullable(props.getMaxFingerprints()).orElse(1), sampleSize = Optional.ofNullable(props.getSampleSize()).orElse(0);
+            return new ErrorFingerprintAggregator(topFrames, maxFingerprints, sampleSize, serverProperties.getError().getPath(), Optional.ofNullable(props.getIdleTimeout()).orElse(Duration.ofMinutes(10L)));
+        }
+    }
+
+
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+    static class Endpoint {
+        @Bean
+        @ConditionalOnBean(value = ErrorFingerprintAggregator.class)
+        @ConditionalOnMissingBean
+        public ErrorFingerprintEndpoint errorFingerprintEndpoint(@Nonnull ErrorFingerprintAggregator aggregator) {
+            return new ErrorFingerprintEndpoint(aggregator);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.yookue.springstarter.exceptionhandler.config;
+
+
+import java.util.Optional;
+import jakarta.annotation.Nonnull;
+import org.apache.commons.lang3.BooleanUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.AutoConfigureOrder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.SearchStrategy;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.autoconfigure.web.WebProperties;
+import org.springframework.boot.autoconfigure.web.reactive.error.ErrorWebFluxAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.reactive.error.ErrorAttributes;
+import org.springframework.boot.web.reactive.error.ErrorWebExceptionHandler;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.view.ViewResolver;
+import com.yookue.springstarter.exceptionhandler.aot.ExceptionHandlerRuntimeHints;
+import com.yookue.springstarter.exceptionhandler.event.AsyncExceptionEventPublisher;
+import com.yookue.springstarter.exceptionhandler.facade.ExceptionHandlerMetrics;
+import com.yookue.springstarter.exceptionhandler.facade.ReactiveErrorCustomizer;
+import com.yookue.springstarter.exceptionhandler.handler.DefaultReactiveExceptionHandler;
+import com.yookue.springstarter.exceptionhandler.property.ExceptionHandlerProperties;
+import com.yookue.springstarter.exceptionhandler.support.ErrorLogLimiter;
+import com.yookue.springstarter.exceptionhandler.support.ErrorMessageCache;
+import com.yookue.springstarter.exceptionhandler.support.ErrorStatusRegistry;
+import com.yookue.springstarter.exceptionhandler.support.MicrometerExceptionHandlerMetrics;
+import com.yookue.springstarter.exceptionhandler.support.StackTraceRenderer;
+import io.micrometer.core.instrument.MeterRegistry;
+
+
+/**
+ * Configuration of reactive exception handler
+ * <p>
+ * The reactive counterpart of {@link com.yookue.springstarter.exceptionhandler.config.ExceptionHandlerAutoConfiguration},
+ * registers a {@link org.springframework.boot.web.reactive.error.ErrorWebExceptionHandler} before the one of spring boot
+ *
+ * @author David Hsing
+ * @see org.springframework.boot.autoconfigure.web.reactive.error.ErrorWebFluxAutoConfiguration
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = ExceptionHandlerAutoConfiguration.PROPERTIES_PREFIX, name = "enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnClass(value = WebFluxConfigurer.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@AutoConfigureOrder(value = Ordered.LOWEST_PRECEDENCE - 10)
+@AutoConfigureBefore(value = ErrorWebFluxAutoConfiguration.class)
+@ImportRuntimeHints(value = ExceptionHandlerRuntimeHints.class)
+@Import(value = {ExceptionHandlerSharedConfiguration.Entry.class, ReactiveExceptionHandlerAutoConfiguration.Metrics.class, ReactiveExceptionHandlerAutoConfiguration.Listener.class, ReactiveExceptionHandlerAutoConfiguration.Handler.class, ExceptionHandlerSharedConfiguration.Endpoint.class})
+public class ReactiveExceptionHandlerAutoConfiguration {
+    @Order(value = 1)
+    @ConditionalOnProperty(prefix = ExceptionHandlerAutoConfiguration.PROPERTIES_PREFIX + ".metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    static class Metrics {
+        @Bean
+        @ConditionalOnBean(value = MeterRegistry.class)
+        @ConditionalOnMissingBean
+        public ExceptionHandlerMetrics exceptionHandlerMetrics(@Nonnull ExceptionHandlerProperties properties, @Nonnull MeterRegistry registry, @Nonnull ObjectProvider<AsyncExceptionEventPublisher> publishers) {
+            Integer limit = properties.getMetrics().getMaxExceptionTags();
+            MicrometerExceptionHandlerMetrics result = new MicrometerExceptionHandlerMetrics(registry, (limit == null) ? 0 : limit);
+            publishers.ifAvailable(result::bindPublisher);
+            return result;
+        }
+    }
+
+
+    @Order(value = 2)
+    static class Listener {
+        @Bean
+        @ConditionalOnProperty(prefix = ExceptionHandlerAutoConfiguration.PROPERTIES_PREFIX + ".async-publisher", name = "enabled", havingValue = "true")
+        @ConditionalOnMissingBean
+        public AsyncExceptionEventPublisher asyncExceptionEventPublisher(@Nonnull ExceptionHandlerProperties properties, @Nonnull ApplicationEventPublisher publisher) {
+            ExceptionHandlerProperties.AsyncPublisher props = properties.getAsyncPublisher();
+            Integer capacity = props.getQueueCapacity();
+            AsyncExceptionEventPublisher result = new AsyncExceptionEventPublisher(publisher, (capacity == null) ? 0 : capacity);
+            Optional.ofNullable(props.getBatchSize()).ifPresent(result::setBatchSize);
+            Optional.ofNullable(props.getOverflowPolicy()).ifPresent(result::setOverflowPolicy);
+            Optional.ofNullable(props.getSampleRate()).ifPresent(result::setSampleRate);
+            Optional.ofNullable(props.getBlockTimeout()).ifPresent(result::setBlockTimeout);
+            Optional.ofNullable(props.getShutdownTimeout()).ifPresent(result::setShutdownTimeout);
+            return result;
+        }
+    }
+
+
+    @Order(value = 3)
+    @EnableConfigurationProperties(value = WebProperties.class)
+    static class Handler {
+        @Bean
+        @ConditionalOnProperty(prefix = ExceptionHandlerAutoConfiguration.PROPERTIES_PREFIX + ".reactive-handler", name = "enabled", havingValue = "true", matchIfMissing = true)
+        @ConditionalOnMissingBean(value = ErrorWebExceptionHandler.class, search = SearchStrategy.CURRENT)
+        @Order(value = -1)
+        public ErrorWebExceptionHandler reactiveErrorWebExceptionHandler(@Nonnull ExceptionHandlerProperties properties, @Nonnull ServerProperties serverProperties, @Nonnull WebProperties webProperties,
+            @Nonnull ErrorAttributes attributes, @Nonnull ObjectProvider<ViewResolver> viewResolvers, @Nonnull ServerCodecConfigurer codecConfigurer, @Nonnull ApplicationContext context,
+            @Nonnull ObjectProvider<ReactiveErrorCustomizer> customizers, @Nonnull ObjectProvider<AsyncExceptionEventPublisher> publishers, @Nonnull ObjectProvider<StackTraceRenderer> renderers,
+            @Nonnull ObjectProvider<ExceptionHandlerMetrics> metrics, @Nonnull ObjectProvider<ErrorLogLimiter> limiters, @Nonnull ObjectProvider<ErrorMessageCache> messageCaches, @Nonnull ObjectProvider<ErrorStatusRegistry> statusRegistries) {
+            ExceptionHandlerProperties.ReactiveHandler props = properties.getReactiveHandler();
+            DefaultReactiveExceptionHandler result = new DefaultReactiveExceptionHandler(attributes, webProperties.getResources(), serverProperties.getError(), context);
+            result.setViewResolvers(viewResolvers.orderedStream().toList());
+            result.setMessageWriters(codecConfigurer.getWriters());
+            result.setMessageReaders(codecConfigurer.getReaders());
+            result.setViewName(props.getViewName());
+            result.setPublishEvent(BooleanUtils.isNotFalse(props.getPublishEvent()));
+            customizers.ifAvailable(result::setErrorCustomizer);
+            publishers.ifAvailable(result::setAsyncEventPublisher);
+            renderers.ifAvailable(result::setStackTraceRenderer);
+            metrics.ifAvailable(result::setHandlerMetrics);
+            limiters.ifAvailable(result::setErrorLogLimiter);
+            messageCaches.ifAvailable(result::setErrorMessageCache);
+            statusRegistries.ifUnique(result::setStatusRegistry);
+            return result;
+        }
+    }
+}
@@ -54,8 +54,15 @@ import com.yookue.commonplexus.springutil.util.ErrorControllerWraps;
 import com.yookue.commonplexus.springutil.util.MessageSourceWraps;
 import com.yookue.commonplexus.springutil.util.UriUtilsWraps;
 import com.yookue.commonplexus.springutil.util.WebUtilsWraps;
+import com.yookue.springstarter.exceptionhandler.event.AsyncExceptionEventPublisher;
 import com.yookue.springstarter.exceptionhandler.event.ServletExceptionHandledEvent;
+import com.yookue.springstarter.exceptionhandler.facade.ExceptionHandlerMetrics;
 import com.yookue.springstarter.exceptionhandler.filter.FilterExceptionHandlerFilter;
+import com.yookue.springstarter.exceptionhandler.support.ErrorContext;
+import com.yookue.springstarter.exceptionhandler.support.ErrorLogLimiter;
+import com.yookue.springstarter.exceptionhandler.support.ErrorMessageCache;
+import com.yookue.springstarter.exceptionhandler.support.ErrorStatusRegistry;
+import com.yookue.springstarter.exceptionhandler.support.StackTraceRenderer;
 import com.yookue.springstarter.exceptionhandler.util.ErrorControllerUtils;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -83,6 +90,13 @@ public abstract class AbstractBasicErrorController extends BasicErrorController
 
     protected boolean publishEvent = true;
     protected ApplicationEventPublisher applicationEventPublisher;
+
+    protected AsyncExceptionEventPublisher asyncEventPublisher;
+    protected StackTraceRenderer stackTraceRenderer;
+    protected ExceptionHandlerMetrics handlerMetrics;
+    protected ErrorLogLimiter errorLogLimiter;
+    protected ErrorMessageCache errorMessageCache;
+    protected ErrorStatusRegistry statusRegistry;
     protected Environment environment;
     protected MessageSource messageSource;
 
@@ -94,6 +108,27 @@ public abstract class AbstractBasicErrorController extends BasicErrorController
         super(attributes, properties.getError());
     }
 
+    /**
+     * Constructs a new {@link com.yookue.springstarter.exceptionhandler.controller.AbstractBasicErrorController} instance
+     *
+     * @param attributes the error attributes
+     * @param properties the error properties
+     * @param publisher the async event publisher, {@code null} means to publish the events by the application context
+     * @param renderer the stack trace renderer, {@code null} means to render the stack traces in full
+     * @param metrics the metrics of exception handler, maybe {@code null}
+     * @param limiter the error log limiter, {@code null} means to log every error
+     * @param cache the error message cache, {@code null} means to look up the messages on every request
+     */
+    public AbstractBasicErrorController(@Nonnull ErrorAttributes attributes, @Nonnull ErrorProperties properties, @Nullable AsyncExceptionEventPublisher publisher, @Nullable StackTraceRenderer renderer,
+        @Nullable ExceptionHandlerMetrics metrics, @Nullable ErrorLogLimiter limiter, @Nullable ErrorMessageCache cache) {
+        super(attributes, properties);
+        this.asyncEventPublisher = publisher;
+        this.stackTraceRenderer = renderer;
+        this.handlerMetrics = metrics;
+        this.errorLogLimiter = limiter;
+        this.errorMessageCache = cache;
+    }
+
     @Override
     public void afterPropertiesSet() {
         if (log.isWarnEnabled() && ClassUtils.isPresent("org.thymeleaf.Thymeleaf", null) && BooleanUtils.isNotFalse(environment.getProperty(THYMELEAF_PROPERTIES, Boolean.class))) {    // $NON-NLS-1$
@@ -108,10 +143,9 @@ public abstract class AbstractBasicErrorController extends BasicErrorController
      */
     @Override
     public ModelAndView errorHtml(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response) {
-        Throwable cause = determineErrorCause(request);
-        HttpStatusCode status = determineErrorStatus(request, super.getStatus(request), cause);
-        handleErrorBehavior(request, response, status, cause, true);
-        return new ModelAndView(prepareErrorView(request, status, cause), prepareErrorData(request, status, cause, true));
+        ErrorContext context = createErrorContext(request, true);
+        handleErrorBehavior(context, response);
+        return new ModelAndView(prepareErrorView(request, context.getStatus(), context.getCause()), prepareErrorData(request, context.getStatus(), context.getCause(), true));
     }
 
     /**
@@ -122,10 +156,10 @@ public abstract class AbstractBasicErrorController extends BasicErrorController
      */
     @Override
     public ResponseEntity<Map<String, Object>> error(@Nonnull HttpServletRequest request) {
-        Throwable cause = determineErrorCause(request);
-        HttpStatusCode status = determineErrorStatus(request, super.getStatus(request), cause);
-        handleErrorBehavior(request, null, status, cause, false);
-        return (status == HttpStatus.NO_CONTENT) ? new ResponseEntity<>(status) : new ResponseEntity<>(prepareErrorData(request, status, cause, false), status);
+        ErrorContext context = createErrorContext(request, false);
+        handleErrorBehavior(context, null);
+        HttpStatusCode status = context.getStatus();
+        return (status == HttpStatus.NO_CONTENT) ? new ResponseEntity<>(status) : new ResponseEntity<>(prepareErrorData(request, status, context.getCause(), false), status);
     }
 
     /**
@@ -151,6 +185,39 @@ public abstract class AbstractBasicErrorController extends BasicErrorController
      */
     protected abstract Map<String, Object> prepareErrorData(@Nonnull HttpServletRequest request, @Nullable HttpStatusCode status, @Nonnull Throwable cause, boolean html);
 
+    /**
+     * Returns a new {@link com.yookue.springstarter.exceptionhandler.support.ErrorContext} of the given request, and binds it to the request
+     * <p>
+     * The cause, status and options are determined here only once per request
+     *
+     * @param request the servlet request
+     * @param html indicates is a html request if true, otherwise is an async request (probably ajax)
+     *
+     * @return a new {@link com.yookue.springstarter.exceptionhandler.support.ErrorContext} of the given request
+     */
+    @Nonnull
+    protected ErrorContext createErrorContext(@Nonnull HttpServletRequest request, boolean html) {
+        Throwable cause = determineErrorCause(request);
+        HttpStatusCode status = ObjectUtils.defaultIfNull(determineErrorStatus(request, super.getStatus(request), cause), HttpStatus.INTERNAL_SERVER_ERROR);
+        ErrorAttributeOptions options = super.getErrorAttributeOptions(request, html ? MediaType.TEXT_HTML : MediaType.ALL);
+        ErrorContext result = new ErrorContext(request, cause, status, options, html, element -> getErrorAttributes(request, element));
+        result.bindRequest();
+        return result;
+    }
+
+    /**
+     * Returns the {@link com.yookue.springstarter.exceptionhandler.support.ErrorContext} of the given request, creates one if absent
+     *
+     * @param request the servlet request
+     *
+     * @return the {@link com.yookue.springstarter.exceptionhandler.support.ErrorContext} of the given request
+     */
+    @Nonnull
+    protected ErrorContext getErrorContext(@Nonnull HttpServletRequest request) {
+        ErrorContext result = ErrorContext.getContext(request);
+        return (result != null) ? result : createErrorContext(request, false);
+    }
+
     /**
      * Returns the determined {@link java.lang.Throwable} of the given request
      *
@@ -178,7 +245,7 @@ public abstract class AbstractBasicErrorController extends BasicErrorController
      * @return the determined {@link org.springframework.http.HttpStatusCode} of the given request
      */
     protected HttpStatusCode determineErrorStatus(@Nonnull HttpServletRequest request, @Nullable HttpStatusCode status, @Nullable Throwable cause) {
-        return ErrorControllerUtils.determineErrorStatus(request, status, cause);
+        return ErrorControllerUtils.determineErrorStatus(statusRegistry, request, status, cause);
     }
 
     /**
@@ -187,7 +254,15 @@ public abstract class AbstractBasicErrorController extends BasicErrorController
     @Override
     protected Map<String, Object> getErrorAttributes(@Nonnull HttpServletRequest request, @Nonnull ErrorAttributeOptions options) {
         Throwable throwable = WebUtilsWraps.getRequestAttributeAs(request, FilterExceptionHandlerFilter.THROWABLE_ATTRIBUTE, Throwable.class);
-        Map<String, Object> result = super.getErrorAttributes(request, options);
+        // The stack trace of the default error attributes is rendered in full, so render it by ourselves
+        boolean renderTrace = stackTraceRenderer != null && options.isIncluded(ErrorAttributeOptions.Include.STACK_TRACE);
+        Map<String, Object> result = super.getErrorAttributes(request, renderTrace ? options.excluding(ErrorAttributeOptions.Include.STACK_TRACE) : options);
+        if (renderTrace) {
+            Throwable cause = (throwable != null) ? throwable : ErrorControllerWraps.getErrorCause(this, request);
+            if (cause != null) {
+                result.put(ErrorAttributeConst.TRACE, stackTraceRenderer.render(cause));
+            }
+        }
         if (throwable != null) {
             if (options.isIncluded(ErrorAttributeOptions.Include.EXCEPTION)) {
                 result.computeIfAbsent(ErrorAttributeConst.EXCEPTION, element -> throwable.getClass().getName());
@@ -196,14 +271,14 @@ public abstract class AbstractBasicErrorController extends BasicErrorController
                 }
             }
             if (options.isIncluded(ErrorAttributeOptions.Include.MESSAGE) && !result.containsKey(ErrorAttributeConst.MESSAGE)) {
-                String message = MessageSourceWraps.getMessageLookup(messageSource, MiscMessageConst.SOMETHING_ERROR_TRY, LocaleContextHolder.getLocale());
+                String message = getErrorMessage(MiscMessageConst.SOMETHING_ERROR_TRY, null);
                 StringUtilsWraps.ifNotBlank(message, () -> result.put(ErrorAttributeConst.MESSAGE, message));
             }
         }
         if (MapPlainWraps.containsKeyValue(result, ErrorAttributeConst.STATUS, 999)) {
             // Response status node
-            Throwable cause = determineErrorCause(request);
-            HttpStatusCode status = ObjectUtils.defaultIfNull(determineErrorStatus(request, super.getStatus(request), cause), HttpStatus.INTERNAL_SERVER_ERROR);
+            ErrorContext context = ErrorContext.getContext(request);
+            HttpStatusCode status = (context != null) ? context.getStatus() : ObjectUtils.defaultIfNull(determineErrorStatus(request, super.getStatus(request), determineErrorCause(request)), HttpStatus.INTERNAL_SERVER_ERROR);
             result.put(ErrorAttributeConst.STATUS, status.value());
             // Response error node
             String error = MapPlainWraps.getString(result, ErrorAttributeConst.ERROR);
@@ -214,18 +289,39 @@ public abstract class AbstractBasicErrorController extends BasicErrorController
         return result;
     }
 
-    private void handleErrorBehavior(@Nonnull HttpServletRequest request, @Nullable HttpServletResponse response, @Nullable HttpStatusCode status, @Nonnull Throwable cause, boolean html) {
-        HttpStatusCode httpStatus = (status != null) ? status : HttpStatus.INTERNAL_SERVER_ERROR;
+    /**
+     * Returns the message of the given code and the current locale, from the cache if present
+     *
+     * @param code the message code
+     * @param defaultMessage the message to return if the code is not found
+     *
+     * @return the message of the given code and the current locale
+     */
+    @Nullable
+    protected String getErrorMessage(@Nonnull String code, @Nullable String defaultMessage) {
+        if (errorMessageCache != null) {
+            return errorMessageCache.getMessage(messageSource, code, defaultMessage, LocaleContextHolder.getLocale());
+        }
+        return MessageSourceWraps.getMessageLookup(messageSource, code, null, defaultMessage, LocaleContextHolder.getLocale());
+    }
+
+    private void handleErrorBehavior(@Nonnull ErrorContext context, @Nullable HttpServletResponse response) {
+        HttpServletRequest request = context.getRequest();
+        HttpStatusCode httpStatus = context.getStatus();
         if (publishEvent) {
-            Map<String, Object> errors = getErrorAttributes(request, ErrorAttributeCombo.ALL_OPTIONS);
-            applicationEventPublisher.publishEvent(new ServletExceptionHandledEvent(request, httpStatus, cause, errors));
+            // The attributes are read from the request on this thread, since the listeners may run after the request is recycled
+            Map<String, Object> untracedErrors = context.getAttributes(ErrorAttributeCombo.ALL_OPTIONS.excluding(ErrorAttributeOptions.Include.STACK_TRACE));
+            ApplicationEventPublisher publisher = (asyncEventPublisher != null) ? asyncEventPublisher : applicationEventPublisher;
+            publisher.publishEvent(ServletExceptionHandledEvent.ofLazy(request, httpStatus, context.getCause(), untracedErrors, (stackTraceRenderer != null) ? stackTraceRenderer::render : null));
         }
-        ErrorAttributeOptions options = super.getErrorAttributeOptions(request, html ? MediaType.TEXT_HTML : MediaType.ALL);
-        Map<String, Object> attributes = getErrorAttributes(request, options);
         if (response != null) {
             response.setStatus(httpStatus.value());
         }
-        if (log.isErrorEnabled()) {
+        if (handlerMetrics != null) {
+            handlerMetrics.recordError(httpStatus, context.getRootCause(), context.isHtml());
+        }
+        if (log.isErrorEnabled() && isErrorLogAllowed(request, httpStatus)) {
+            Map<String, Object> attributes = context.getAttributes();
             String path = MapPlainWraps.getString(attributes, ErrorAttributeConst.PATH);
             if (StringUtils.isBlank(path)) {
                 path = UriUtilsWraps.getRequestUriQueryString(request);
@@ -237,4 +333,11 @@ public abstract class AbstractBasicErrorController extends BasicErrorController
             log.error("Error {} path '{}', status {}, reason: {}", request.getMethod(), path, httpStatus.value(), reason);
         }
     }
+
+    private boolean isErrorLogAllowed(@Nonnull HttpServletRequest request, @Nonnull HttpStatusCode status) {
+        if (errorLogLimiter == null) {
+            return true;
+        }
+        return errorLogLimiter.tryAcquire(request.getMethod(), ErrorControllerUtils.getErrorPattern(request), status.value());
+    }
 }
@@ -20,16 +20,15 @@ package com.yookue.springstarter.exceptionhandler.controller;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.ValidationException;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
-import org.springframework.beans.factory.annotation.Autowire;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Configurable;
 import org.springframework.boot.autoconfigure.web.ErrorProperties;
 import org.springframework.boot.autoconfigure.web.ServerProperties;
 import org.springframework.boot.web.error.ErrorAttributeOptions;
@@ -41,6 +40,7 @@ import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.validation.BindException;
 import org.springframework.validation.BindingResult;
+import org.springframework.web.servlet.ModelAndView;
 import com.yookue.commonplexus.javaseutil.exception.MaliciousAccessException;
 import com.yookue.commonplexus.javaseutil.structure.PureTextStruct;
 import com.yookue.commonplexus.javaseutil.util.MapPlainWraps;
@@ -49,12 +49,21 @@ import com.yookue.commonplexus.springutil.constant.ErrorAttributeConst;
 import com.yookue.commonplexus.springutil.constant.MiscMessageConst;
 import com.yookue.commonplexus.springutil.constant.ResponseBodyConst;
 import com.yookue.commonplexus.springutil.util.LocaleHolderWraps;
-import com.yookue.commonplexus.springutil.util.MessageSourceWraps;
 import com.yookue.commonplexus.springutil.util.ValidationUtilsWraps;
+import com.yookue.springstarter.exceptionhandler.event.AsyncExceptionEventPublisher;
 import com.yookue.springstarter.exceptionhandler.facade.ErrorControllerCustomizer;
-import com.yookue.springstarter.exceptionhandler.util.ErrorControllerUtils;
+import com.yookue.springstarter.exceptionhandler.facade.ExceptionHandlerMetrics;
+import com.yookue.springstarter.exceptionhandler.resolver.AbstractFilterExceptionResolver;
+import com.yookue.springstarter.exceptionhandler.support.ErrorContext;
+import com.yookue.springstarter.exceptionhandler.support.ErrorLogLimiter;
+import com.yookue.springstarter.exceptionhandler.support.ErrorMessageCache;
+import com.yookue.springstarter.exceptionhandler.support.ErrorPageCache;
+import com.yookue.springstarter.exceptionhandler.support.NotFoundPathCache;
+import com.yookue.springstarter.exceptionhandler.support.StackTraceRenderer;
 import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 
 
 /**
@@ -62,15 +71,18 @@ import lombok.Getter;
  *
  * @author David Hsing
  */
-@Configurable(autowire = Autowire.BY_TYPE, dependencyCheck = true)
 @Getter(value = AccessLevel.PROTECTED)
+@Slf4j
 @SuppressWarnings({"unused", "SameParameterValue"})
 public class DefaultBasicErrorController extends AbstractBasicErrorController {
     private static final String NO_MESSAGE_AVAILABLE = "No message available";    // $NON-NLS-1$
 
-    @Autowired(required = false)
+    @Setter
     private ErrorControllerCustomizer errorControllerCustomizer;
 
+    @Setter
+    private ErrorPageCache errorPageCache;
+
     public DefaultBasicErrorController(@Nonnull ErrorAttributes attributes, @Nonnull ErrorProperties properties) {
         super(attributes, properties);
     }
@@ -79,9 +91,64 @@ public class DefaultBasicErrorController extends AbstractBasicErrorController {
         super(attributes, properties.getError());
     }
 
+    /**
+     * Constructs a new {@link com.yookue.springstarter.exceptionhandler.controller.DefaultBasicErrorController} instance
+     *
+     * @param attributes the error attributes
+     * @param properties the error properties
+     * @param customizer the customizer of the view and the error data, maybe {@code null}
+     * @param pageCache the static error page cache, maybe {@code null}
+     * @param publisher the async event publisher, {@code null} means to publish the events by the application context
+     * @param renderer the stack trace renderer, {@code null} means to render the stack traces in full
+     * @param metrics the metrics of exception handler, maybe {@code null}
+     * @param limiter the error log limiter, {@code null} means to log every error
+     * @param cache the error message cache, {@code null} means to look up the messages on every request
+     */
+    public DefaultBasicErrorController(@Nonnull ErrorAttributes attributes, @Nonnull ErrorProperties properties, @Nullable ErrorControllerCustomizer customizer, @Nullable ErrorPageCache pageCache,
+        @Nullable AsyncExceptionEventPublisher publisher, @Nullable StackTraceRenderer renderer, @Nullable ExceptionHandlerMetrics metrics, @Nullable ErrorLogLimiter limiter, @Nullable ErrorMessageCache cache) {
+        super(attributes, properties, publisher, renderer, metrics, limiter, cache);
+        this.errorControllerCustomizer = customizer;
+        this.errorPageCache = pageCache;
+    }
+
+    /**
+     * Processes the html request
+     * <p>
+     * If the error page cache is enabled, and the error data holds no per-request data, the page will be served from the cache directly
+     */
+    @Override
+    public ModelAndView errorHtml(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response) {
+        ModelAndView result = super.errorHtml(request, response);
+        if (errorPageCache == null || result == null || StringUtils.isBlank(result.getViewName()) || !ErrorPageCache.isStaticData(result.getModel())) {
+            return result;
+        }
+        HttpStatusCode status = HttpStatusCode.valueOf(response.getStatus());
+        if (!useStaticErrorPage(request, status, getErrorContext(request).getCause())) {
+            return result;
+        }
+        request.setAttribute(ErrorPageCache.STATIC_PAGE_ATTRIBUTE, Boolean.TRUE);
+        Locale locale = LocaleContextHolder.getLocale();
+        try {
+            ErrorPageCache.ErrorPage page = errorPageCache.getPage(status.value(), locale, result.getViewName());
+            if (page == null && request.getAttribute(AbstractFilterExceptionResolver.RESOLVING_ATTRIBUTE) == null) {
+                // The filter exception resolver renders the page by itself
+                page = errorPageCache.renderPage(null, result.getModel(), request, response, status.value(), locale, result.getViewName());
+            }
+            if (page != null) {
+                errorPageCache.writePage(response, page, status.value());
+                return null;
+            }
+        } catch (Exception ex) {
+            if (log.isWarnEnabled()) {
+                log.warn("Exception occurred during rendering static error page", ex);
+            }
+        }
+        return result;
+    }
+
     @Override
     protected String prepareErrorView(@Nonnull HttpServletRequest request, @Nullable HttpStatusCode status, @Nullable Throwable cause) {
-        return errorControllerCustomizer == null ? null : errorControllerCustomizer.prepareErrorView(request, status, cause);
+        return errorControllerCustomizer == null ? null : errorControllerCustomizer.prepareErrorView(getErrorContext(request));
     }
 
     @Override
@@ -91,39 +158,42 @@ public class DefaultBasicErrorController extends AbstractBasicErrorController {
             result.putAll(generateDefaultData(request, status, cause, html));
         }
         if (errorControllerCustomizer != null) {
-            MapPlainWraps.putAllIfAllNotNull(result, errorControllerCustomizer.prepareErrorData(request, status, cause, html));
+            MapPlainWraps.putAllIfAllNotNull(result, errorControllerCustomizer.prepareErrorData(getErrorContext(request), html));
         }
         return result;
     }
 
     @Override
     protected HttpStatusCode determineErrorStatus(@Nonnull HttpServletRequest request, @Nullable HttpStatusCode status, @Nullable Throwable cause) {
-        if (errorControllerCustomizer != null) {
-            return errorControllerCustomizer.determineErrorStatus(request, status, cause);
-        }
-        return ErrorControllerUtils.determineErrorStatus(request, status, cause);
+        HttpStatusCode result = super.determineErrorStatus(request, status, cause);
+        return (errorControllerCustomizer != null) ? errorControllerCustomizer.determineErrorStatus(request, result, cause) : result;
     }
 
     protected boolean useDefaultErrorData(@Nonnull HttpServletRequest request, @Nullable HttpStatusCode status, @Nullable Throwable cause, boolean html) {
-        return errorControllerCustomizer == null || errorControllerCustomizer.useDefaultErrorData(request, status, cause, html);
+        return errorControllerCustomizer == null || errorControllerCustomizer.useDefaultErrorData(getErrorContext(request), html);
+    }
+
+    protected boolean useStaticErrorPage(@Nonnull HttpServletRequest request, @Nullable HttpStatusCode status, @Nullable Throwable cause) {
+        return errorControllerCustomizer != null && errorControllerCustomizer.useStaticErrorPage(getErrorContext(request));
     }
 
     protected boolean useLocalizedFieldName(@Nonnull HttpServletRequest request, @Nullable HttpStatusCode status, @Nullable Throwable cause, boolean html) {
-        return errorControllerCustomizer != null && errorControllerCustomizer.useLocalizedFieldName(request, status, cause, html);
+        return errorControllerCustomizer != null && errorControllerCustomizer.useLocalizedFieldName(getErrorContext(request), html);
     }
 
     @Nonnull
     @SuppressWarnings("DataFlowIssue")
     private Map<String, Object> generateDefaultData(@Nonnull HttpServletRequest request, @Nullable HttpStatusCode status, @Nullable Throwable cause, boolean html) {
         Map<String, Object> result = new LinkedHashMap<>();
-        Throwable rootCause = NestedExceptionUtils.getMostSpecificCause(cause);
-        ErrorAttributeOptions options = super.getErrorAttributeOptions(request, html ? MediaType.TEXT_HTML : MediaType.ALL);
-        Map<String, Object> attributes = super.getErrorAttributes(request, options);
+        ErrorContext context = getErrorContext(request);
+        Throwable rootCause = (context.getCause() == cause) ? context.getRootCause() : NestedExceptionUtils.getMostSpecificCause(cause);
+        ErrorAttributeOptions options = (context.isHtml() == html) ? context.getOptions() : super.getErrorAttributeOptions(request, html ? MediaType.TEXT_HTML : MediaType.ALL);
+        Map<String, Object> attributes = context.getAttributes(options);
         Date timestamp = MapPlainWraps.getUtilDate(attributes, ErrorAttributeConst.TIMESTAMP, UtilDateWraps.getCurrentDateTime());
         result.put(html ? ResponseBodyConst.HTML_STATUS : ResponseBodyConst.REST_STATUS, status.value());
         if (html) {
             String reason = (status instanceof HttpStatus instance) ? instance.getReasonPhrase() : null;
-            String phrase = MessageSourceWraps.getMessageLookup(super.messageSource, "HttpStatus." + status.value(), null, reason, LocaleContextHolder.getLocale());    // $NON-NLS-1$
+            String phrase = super.getErrorMessage(ErrorMessageCache.getStatusCode(status.value()), reason);
             result.put(ResponseBodyConst.HTML_PHRASE, phrase);
         }
         String rootMessage = null;
@@ -134,7 +204,7 @@ public class DefaultBasicErrorController extends AbstractBasicErrorController {
             List<String> reasons;
             if (useLocalizedFieldName(request, status, rootCause, html)) {
                 reasons = ValidationUtilsWraps.formatReasons(binding.getAllErrors(), element -> {
-                    String fieldName = MessageSourceWraps.getMessageLookup(super.messageSource, element.getField(), null, element.getField(), LocaleContextHolder.getLocale());
+                    String fieldName = super.getErrorMessage(element.getField(), element.getField());
                     return StringUtils.join(fieldName, LocaleHolderWraps.getOptionalSpace(), element.getDefaultMessage());
                 });
             } else {
@@ -143,11 +213,11 @@ public class DefaultBasicErrorController extends AbstractBasicErrorController {
             PureTextStruct struct = new PureTextStruct(reasons);
             rootMessage = struct.getCompositeTextOrdering(StringUtils.SPACE);
         } else if (rootCause instanceof MaliciousAccessException) {
-            rootMessage = MessageSourceWraps.getMessageLookup(super.messageSource, MiscMessageConst.MALICIOUS_ACCESS_LOG, null, rootCause.getMessage(), LocaleContextHolder.getLocale());
+            rootMessage = super.getErrorMessage(MiscMessageConst.MALICIOUS_ACCESS_LOG, rootCause.getMessage());
         } else {
             if (status == HttpStatus.INTERNAL_SERVER_ERROR) {
                 String placeholder = options.isIncluded(ErrorAttributeOptions.Include.EXCEPTION) ? rootCause.getMessage() : null;
-                rootMessage = MessageSourceWraps.getMessageLookup(super.messageSource, MiscMessageConst.SERVER_ERROR_TRY, null, placeholder, LocaleContextHolder.getLocale());
+                rootMessage = super.getErrorMessage(MiscMessageConst.SERVER_ERROR_TRY, placeholder);
             }
         }
         if (StringUtils.isNotBlank(rootMessage)) {
@@ -160,12 +230,16 @@ public class DefaultBasicErrorController extends AbstractBasicErrorController {
             }
         }
         if (options.isIncluded(ErrorAttributeOptions.Include.STACK_TRACE)) {
-            MapPlainWraps.removeByKeys(attributes, ErrorAttributeConst.STATUS, ErrorAttributeConst.TIMESTAMP);
-            MapPlainWraps.removeIf(attributes, (key, value) -> StringUtils.equals(key, ErrorAttributeConst.MESSAGE) && value instanceof String && StringUtils.equalsIgnoreCase((String) value, NO_MESSAGE_AVAILABLE));
-            attributes.computeIfAbsent(ErrorAttributeConst.TRACE, key -> ExceptionUtils.getStackTrace(rootCause));
-            result.put(html ? ResponseBodyConst.HTML_DATA : ResponseBodyConst.REST_DATA, attributes);
+            // The attributes are shared by the context, so modify a copy
+            Map<String, Object> data = new LinkedHashMap<>(attributes);
+            MapPlainWraps.removeByKeys(data, ErrorAttributeConst.STATUS, ErrorAttributeConst.TIMESTAMP);
+            MapPlainWraps.removeIf(data, (key, value) -> StringUtils.equals(key, ErrorAttributeConst.MESSAGE) && value instanceof String && StringUtils.equalsIgnoreCase((String) value, NO_MESSAGE_AVAILABLE));
+            data.computeIfAbsent(ErrorAttributeConst.TRACE, key -> (super.stackTraceRenderer != null) ? super.stackTraceRenderer.render(rootCause) : ExceptionUtils.getStackTrace(rootCause));
+            result.put(html ? ResponseBodyConst.HTML_DATA : ResponseBodyConst.REST_DATA, data);
         }
         result.put(html ? ResponseBodyConst.HTML_TIMESTAMP : ResponseBodyConst.REST_TIMESTAMP, timestamp);
+        // Lets the negative cache refresh the timestamp on replays
+        request.setAttribute(NotFoundPathCache.TIMESTAMP_ATTRIBUTE, timestamp);
         return result;
     }
 }
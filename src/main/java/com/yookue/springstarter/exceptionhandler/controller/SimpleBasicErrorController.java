@@ -26,6 +26,13 @@ import org.springframework.boot.web.servlet.error.ErrorAttributes;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.util.Assert;
 import com.yookue.commonplexus.javaseutil.constant.AssertMessageConst;
+import com.yookue.springstarter.exceptionhandler.event.AsyncExceptionEventPublisher;
+import com.yookue.springstarter.exceptionhandler.facade.ErrorControllerCustomizer;
+import com.yookue.springstarter.exceptionhandler.facade.ExceptionHandlerMetrics;
+import com.yookue.springstarter.exceptionhandler.support.ErrorLogLimiter;
+import com.yookue.springstarter.exceptionhandler.support.ErrorMessageCache;
+import com.yookue.springstarter.exceptionhandler.support.ErrorPageCache;
+import com.yookue.springstarter.exceptionhandler.support.StackTraceRenderer;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -63,6 +70,28 @@ public class SimpleBasicErrorController extends DefaultBasicErrorController {
         this.useLocalizedFieldName = useLocalizedFieldName;
     }
 
+    /**
+     * Constructs a new {@link com.yookue.springstarter.exceptionhandler.controller.SimpleBasicErrorController} instance
+     *
+     * @param attributes the error attributes
+     * @param properties the error properties
+     * @param viewName the view name for template engine
+     * @param useLocalizedFieldName whether to localize the field names of the binding errors or not
+     * @param customizer the customizer of the view and the error data, maybe {@code null}
+     * @param pageCache the static error page cache, maybe {@code null}
+     * @param publisher the async event publisher, {@code null} means to publish the events by the application context
+     * @param renderer the stack trace renderer, {@code null} means to render the stack traces in full
+     * @param metrics the metrics of exception handler, maybe {@code null}
+     * @param limiter the error log limiter, {@code null} means to log every error
+     * @param cache the error message cache, {@code null} means to look up the messages on every request
+     */
+    public SimpleBasicErrorController(@Nonnull ErrorAttributes attributes, @Nonnull ErrorProperties properties, @Nonnull String viewName, boolean useLocalizedFieldName, @Nullable ErrorControllerCustomizer customizer, @Nullable ErrorPageCache pageCache,
+        @Nullable AsyncExceptionEventPublisher publisher, @Nullable StackTraceRenderer renderer, @Nullable ExceptionHandlerMetrics metrics, @Nullable ErrorLogLimiter limiter, @Nullable ErrorMessageCache cache) {
+        super(attributes, properties, customizer, pageCache, publisher, renderer, metrics, limiter, cache);
+        this.viewName = viewName;
+        this.useLocalizedFieldName = useLocalizedFieldName;
+    }
+
     @Override
     protected String prepareErrorView(@Nonnull HttpServletRequest request, @Nullable HttpStatusCode status, @Nullable Throwable cause) {
         Assert.hasText(viewName, AssertMessageConst.HAS_TEXT);
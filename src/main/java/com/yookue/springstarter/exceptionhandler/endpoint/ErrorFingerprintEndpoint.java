@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.yookue.springstarter.exceptionhandler.endpoint;
+
+
+import java.util.List;
+import jakarta.annotation.Nonnull;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import com.yookue.commonplexus.javaseutil.constant.AssertMessageConst;
+import com.yookue.springstarter.exceptionhandler.support.ErrorFingerprintAggregator;
+
+
+/**
+ * Actuator endpoint of the hot error fingerprints
+ * <p>
+ * Exposes {@code /actuator/errorfingerprints}, reads the top fingerprints by {@code GET}, and resets the counters by {@code DELETE}
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.support.ErrorFingerprintAggregator
+ */
+@Endpoint(id = ErrorFingerprintEndpoint.ENDPOINT_ID)
+@SuppressWarnings("unused")
+public class ErrorFingerprintEndpoint {
+    public static final String ENDPOINT_ID = "errorfingerprints";    // $NON-NLS-1$
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final ErrorFingerprintAggregator aggregator;
+
+    public ErrorFingerprintEndpoint(@Nonnull ErrorFingerprintAggregator aggregator) {
+        Assert.notNull(aggregator, AssertMessageConst.NOT_NULL);
+        this.aggregator = aggregator;
+    }
+
+    @ReadOperation
+    public List<ErrorFingerprintAggregator.Snapshot> fingerprints(@Nullable Integer limit) {
+        return aggregator.getTopFingerprints((limit == null) ? DEFAULT_LIMIT : limit);
+    }
+
+    @DeleteOperation
+    public void reset() {
+        aggregator.clear();
+    }
+}
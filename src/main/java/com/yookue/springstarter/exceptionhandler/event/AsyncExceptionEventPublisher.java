@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.event;
+
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.ObjectUtils;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.util.Assert;
+import com.yookue.commonplexus.javaseutil.constant.AssertMessageConst;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * {@link org.springframework.context.ApplicationEventPublisher} that publishes events asynchronously through a bounded queue
+ * <p>
+ * The events are dispatched to the delegate publisher in batches by a single daemon thread, so that slow listeners never block the request threads.
+ * Before starting or after stopping, the events are published synchronously.
+ * A {@link com.yookue.springstarter.exceptionhandler.event.ServletExceptionHandledEvent} keeps the request data it needs when constructed,
+ * since the request may have been completed and recycled when the event is dispatched
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.controller.AbstractBasicErrorController
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class AsyncExceptionEventPublisher implements ApplicationEventPublisher, SmartLifecycle {
+    private static final String THREAD_NAME = "exception-event-publisher";    // $NON-NLS-1$
+    private static final long POLL_MILLIS = 100L;
+
+    private final ApplicationEventPublisher delegate;
+    private final BlockingQueue<Object> queue;
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    @Getter
+    @Setter
+    private int batchSize = 64;
+
+    @Getter
+    @Setter
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+    @Getter
+    @Setter
+    private int sampleRate = 10;
+
+    @Getter
+    @Setter
+    private Duration blockTimeout = Duration.ofMillis(100L);
+
+    @Getter
+    @Setter
+    private Duration shutdownTimeout = Duration.ofSeconds(5L);
+
+    /**
+     * Stops after the web server graceful shutdown, so that the events of the in-flight requests could be drained
+     */
+    @Getter
+    @Setter
+    private int phase = SmartLifecycle.DEFAULT_PHASE - 2048;
+
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    public AsyncExceptionEventPublisher(@Nonnull ApplicationEventPublisher delegate, int queueCapacity) {
+        Assert.notNull(delegate, AssertMessageConst.NOT_NULL);
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(Math.max(queueCapacity, 1));
+    }
+
+    @Override
+    public void publishEvent(@Nonnull Object event) {
+        if (!running) {
+            delegate.publishEvent(event);
+            return;
+        }
+        if (queue.offer(event)) {
+            recheckRunning(event);
+            return;
+        }
+        switch (ObjectUtils.defaultIfNull(overflowPolicy, OverflowPolicy.DROP)) {
+            case BLOCK -> {
+                try {
+                    if (queue.offer(event, blockTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                        recheckRunning(event);
+                    } else {
+                        droppedCount.increment();
+                    }
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                    droppedCount.increment();
+                }
+            }
+            case SAMPLE -> {
+                // Keeps one of every 'sampleRate' overflowing events, by evicting the eldest one
+                if (overflowCount.incrementAndGet() % Math.max(sampleRate, 1) == 0) {
+                    queue.poll();
+                    if (queue.offer(event)) {
+                        recheckRunning(event);
+                    } else {
+                        droppedCount.increment();
+                    }
+                }
+                droppedCount.increment();
+            }
+            default -> droppedCount.increment();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        dispatcher = new Thread(this::dispatchEvents, THREAD_NAME);
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        if (dispatcher != null) {
+            try {
+                dispatcher.join(shutdownTimeout.toMillis());
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+            dispatcher = null;
+        }
+        int remaining = queue.size();
+        if (remaining > 0) {
+            queue.clear();
+            droppedCount.add(remaining);
+            if (log.isWarnEnabled()) {
+                log.warn("Dropped {} exception events that were not dispatched in {}", remaining, shutdownTimeout);
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the number of events that are waiting in the queue
+     *
+     * @return the number of events that are waiting in the queue
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getQueueCapacity() {
+        return queue.size() + queue.remainingCapacity();
+    }
+
+    public long getPublishedCount() {
+        return publishedCount.sum();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * Publishes the queued event synchronously, if the publisher has been stopped after {@code running} was read,
+     * since the dispatcher may have exited, and the queue may have been cleared, before the event was queued
+     */
+    private void recheckRunning(@Nonnull Object event) {
+        if (!running && queue.remove(event)) {
+            delegate.publishEvent(event);
+        }
+    }
+
+    private void dispatchEvents() {
+        List<Object> batch = new ArrayList<>(Math.max(batchSize, 1));
+        while (true) {
+            Object first;
+            try {
+                first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                if (running) {
+                    continue;
+                }
+                // Drained on graceful shutdown
+                return;
+            }
+            batch.add(first);
+            queue.drainTo(batch, Math.max(batchSize, 1) - 1);
+            for (Object event : batch) {
+                dispatchEvent(event);
+            }
+            batch.clear();
+        }
+    }
+
+    private void dispatchEvent(@Nullable Object event) {
+        if (event == null) {
+            return;
+        }
+        try {
+            delegate.publishEvent(event);
+            publishedCount.increment();
+        } catch (Exception ex) {
+            if (log.isWarnEnabled()) {
+                log.warn("Exception occurred during dispatching event " + event.getClass().getName(), ex);
+            }
+        }
+    }
+
+
+    /**
+     * Policies when the queue of publisher is full
+     *
+     * @author David Hsing
+     */
+    public enum OverflowPolicy {
+        /**
+         * Drops the new event
+         */
+        DROP,
+
+        /**
+         * Blocks the publishing thread until timeout, then drops the new event
+         */
+        BLOCK,
+
+        /**
+         * Keeps one of every N overflowing events, by evicting the eldest event in the queue
+         */
+        SAMPLE
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.event;
+
+
+import jakarta.annotation.Nonnull;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.MessageSource;
+import com.yookue.commonplexus.javaseutil.util.ObjectUtilsWraps;
+
+
+/**
+ * Event when a message source has been reloaded
+ * <p>
+ * Publish it after reloading a reloadable or a database-backed message source, such as after calling {@link org.springframework.context.support.ReloadableResourceBundleMessageSource#clearCache()},
+ * then the cached error messages are dropped
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.support.ErrorMessageCache
+ */
+@SuppressWarnings("unused")
+public class MessageSourceReloadedEvent extends ApplicationEvent {
+    /**
+     * Constructs a new {@link com.yookue.springstarter.exceptionhandler.event.MessageSourceReloadedEvent} instance
+     *
+     * @param source the message source that has been reloaded
+     */
+    public MessageSourceReloadedEvent(@Nonnull MessageSource source) {
+        super(source);
+    }
+
+    public MessageSource getMessageSource() {
+        return ObjectUtilsWraps.castAs(super.getSource(), MessageSource.class);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.yookue.springstarter.exceptionhandler.event;
+
+
+import java.util.Map;
+import java.util.function.Supplier;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.util.function.SingletonSupplier;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import com.yookue.commonplexus.javaseutil.util.ObjectUtilsWraps;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+
+/**
+ * Event for exception handled in a reactive application
+ * <p>
+ * The reactive counterpart of {@link com.yookue.springstarter.exceptionhandler.event.ServletExceptionHandledEvent}, the path pattern of the handler is kept when the event is constructed.
+ * The event is published on the bounded elastic scheduler of reactor, or by the async publisher if {@code spring.exception-handler.async-publisher.enabled}, never on the event loop thread
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.handler.DefaultReactiveExceptionHandler
+ */
+@Getter
+@SuppressWarnings("unused")
+public class ReactiveExceptionHandledEvent extends ApplicationEvent {
+    private final HttpStatusCode httpStatus;
+    private final Throwable exception;
+    private final String pathPattern;
+
+    @Getter(value = AccessLevel.NONE)
+    private final Supplier<Map<String, Object>> errorAttributes;
+
+    /**
+     * Constructs a new {@link com.yookue.springstarter.exceptionhandler.event.ReactiveExceptionHandledEvent} instance
+     *
+     * @param exchange the server exchange from
+     * @param status the response http status
+     * @param exception the exception that occurred
+     * @param attributes the supplier of response error attributes, which is invoked at most once, on the first call of {@link #getErrorAttributes()}
+     */
+    public ReactiveExceptionHandledEvent(@Nonnull ServerWebExchange exchange, @Nonnull HttpStatusCode status, @Nullable Throwable exception, @Nullable Supplier<Map<String, Object>> attributes) {
+        super(exchange);
+        this.httpStatus = status;
+        this.exception = exception;
+        Object pattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        this.pathPattern = (pattern == null) ? null : pattern.toString();
+        this.errorAttributes = (attributes == null) ? null : SingletonSupplier.of(attributes);
+    }
+
+    /**
+     * Returns the response error attributes
+     * <p>
+     * The attributes are computed on the first call only, including the stack trace and the message
+     *
+     * @return the response error attributes
+     */
+    @Nullable
+    public Map<String, Object> getErrorAttributes() {
+        return (errorAttributes == null) ? null : errorAttributes.get();
+    }
+
+    public ServerWebExchange getServerWebExchange() {
+        return ObjectUtilsWraps.castAs(super.getSource(), ServerWebExchange.class);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.yookue.springstarter.exceptionhandler.event;
+
+
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.context.event.SimpleApplicationEventMulticaster;
+import org.springframework.core.ResolvableType;
+import org.springframework.util.ErrorHandler;
+import lombok.Getter;
+
+
+/**
+ * {@link org.springframework.context.event.SimpleApplicationEventMulticaster} that invokes the listeners asynchronously for the specified event types only
+ * <p>
+ * The events of the other types, such as the context events that are sensitive to ordering, are still multicast on the publishing thread
+ *
+ * @author David Hsing
+ * @see org.springframework.context.event.SimpleApplicationEventMulticaster
+ * @see com.yookue.springstarter.exceptionhandler.config.ExceptionHandlerAutoConfiguration
+ */
+@SuppressWarnings("unused")
+public class SelectiveEventMulticaster extends SimpleApplicationEventMulticaster {
+    @Getter
+    private Executor asyncExecutor;
+
+    @Getter
+    private Class<?>[] asyncEventTypes = new Class<?>[0];
+
+    private final ClassValue<Boolean> asyncCache = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(@Nonnull Class<?> type) {
+            for (Class<?> asyncType : asyncEventTypes) {
+                if (asyncType.isAssignableFrom(type)) {
+                    return Boolean.TRUE;
+                }
+            }
+            return Boolean.FALSE;
+        }
+    };
+
+    public SelectiveEventMulticaster() {
+        super();
+    }
+
+    public SelectiveEventMulticaster(@Nonnull BeanFactory beanFactory) {
+        super(beanFactory);
+    }
+
+    /**
+     * Sets the executor and the event types that should be multicast asynchronously
+     * <p>
+     * Should be invoked once before the first event is published
+     *
+     * @param executor the executor to invoke the listeners, or {@code null} to multicast all the events synchronously
+     * @param eventTypes the event types or the payload types that should be multicast asynchronously
+     */
+    public void setAsyncExecution(@Nullable Executor executor, @Nullable Collection<Class<?>> eventTypes) {
+        this.asyncExecutor = executor;
+        this.asyncEventTypes = (eventTypes == null) ? new Class<?>[0] : eventTypes.toArray(new Class<?>[0]);
+    }
+
+    /**
+     * Returns the error handler of the listeners, publicly
+     *
+     * @return the error handler of the listeners, or {@code null} if not set
+     */
+    @Nullable
+    @Override
+    public ErrorHandler getErrorHandler() {
+        return super.getErrorHandler();
+    }
+
+    @Override
+    public void multicastEvent(@Nonnull ApplicationEvent event, @Nullable ResolvableType eventType) {
+        Executor executor = asyncExecutor;
+        if (executor == null || !isAsyncEvent(event)) {
+            super.multicastEvent(event, eventType);
+            return;
+        }
+        ResolvableType type = (eventType != null) ? eventType : ResolvableType.forInstance(event);
+        for (ApplicationListener<?> listener : super.getApplicationListeners(event, type)) {
+            if (listener.supportsAsyncExecution()) {
+                executor.execute(() -> super.invokeListener(listener, event));
+            } else {
+                super.invokeListener(listener, event);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the given event should be multicast asynchronously or not
+     *
+     * @param event the event to inspect
+     *
+     * @return whether the given event should be multicast asynchronously or not
+     */
+    protected boolean isAsyncEvent(@Nonnull ApplicationEvent event) {
+        if (asyncEventTypes.length == 0) {
+            return false;
+        }
+        Object target = (event instanceof PayloadApplicationEvent<?> instance) ? instance.getPayload() : event;
+        return asyncCache.get(target.getClass());
+    }
+}
@@ -17,18 +17,31 @@
 package com.yookue.springstarter.exceptionhandler.event;
 
 
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import jakarta.servlet.RequestDispatcher;
 import jakarta.servlet.http.HttpServletRequest;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.springframework.context.ApplicationEvent;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.util.function.SingletonSupplier;
 import com.yookue.commonplexus.javaseutil.util.ObjectUtilsWraps;
+import com.yookue.commonplexus.springutil.constant.ErrorAttributeConst;
+import com.yookue.commonplexus.springutil.util.WebUtilsWraps;
+import com.yookue.springstarter.exceptionhandler.util.ErrorControllerUtils;
+import lombok.AccessLevel;
 import lombok.Getter;
 
 
 /**
  * Event when error occurred in controllers
+ * <p>
+ * The method, the path and the path pattern of the request, and the error attributes without the stack trace, are kept when the event is constructed,
+ * so they stay valid after the request is recycled. The source of the event is always the servlet request. Only the stack trace could be rendered lazily, on the first call of {@link #getErrorAttributes()}, since it needs nothing but the exception
  *
  * @author David Hsing
  * @see org.springframework.web.context.support.ServletRequestHandledEvent
@@ -38,10 +51,22 @@ import lombok.Getter;
 public class ServletExceptionHandledEvent extends ApplicationEvent {
     private HttpStatusCode httpStatus;
     private Throwable exception;
-    private Map<String, Object> errorAttributes;
+    private final String requestMethod;
+    private final String requestPath;
+    private final String pathPattern;
+
+    @Getter(value = AccessLevel.NONE)
+    private Supplier<Map<String, Object>> errorAttributes;
+
+    @Getter(value = AccessLevel.NONE)
+    private Function<Throwable, String> traceRenderer;
 
     public ServletExceptionHandledEvent(@Nonnull HttpServletRequest request) {
         super(request);
+        this.requestMethod = request.getMethod();
+        String path = WebUtilsWraps.getRequestAttributeAs(request, RequestDispatcher.ERROR_REQUEST_URI, String.class);
+        this.requestPath = (path != null) ? path : request.getRequestURI();
+        this.pathPattern = ErrorControllerUtils.getErrorPattern(request);
     }
 
     /**
@@ -52,7 +77,7 @@ public class ServletExceptionHandledEvent extends ApplicationEvent {
      * @param exception the exception that occurred
      */
     public ServletExceptionHandledEvent(@Nonnull HttpServletRequest request, @Nonnull HttpStatusCode status, @Nullable Throwable exception) {
-        super(request);
+        this(request);
         this.httpStatus = status;
         this.exception = exception;
     }
@@ -66,13 +91,61 @@ public class ServletExceptionHandledEvent extends ApplicationEvent {
      * @param attributes the response error attributes
      */
     public ServletExceptionHandledEvent(@Nonnull HttpServletRequest request, @Nonnull HttpStatusCode status, @Nullable Throwable exception, @Nullable Map<String, Object> attributes) {
-        super(request);
-        this.httpStatus = status;
-        this.exception = exception;
-        this.errorAttributes = attributes;
+        this(request, status, exception);
+        this.errorAttributes = (attributes == null) ? null : () -> attributes;
     }
 
+    /**
+     * Returns a new {@link com.yookue.springstarter.exceptionhandler.event.ServletExceptionHandledEvent} instance, with the stack trace rendered lazily
+     *
+     * @param request the servlet request from
+     * @param status the response http status
+     * @param exception the exception that occurred
+     * @param untracedAttributes the response error attributes without the stack trace, computed on the request thread
+     * @param traceRenderer the renderer of the stack trace, which is invoked at most once, on the first call of {@link #getErrorAttributes()}, {@code null} means to render in full
+     *
+     * @return a new {@link com.yookue.springstarter.exceptionhandler.event.ServletExceptionHandledEvent} instance, with the stack trace rendered lazily
+     */
+    @Nonnull
+    public static ServletExceptionHandledEvent ofLazy(@Nonnull HttpServletRequest request, @Nonnull HttpStatusCode status, @Nullable Throwable exception, @Nullable Map<String, Object> untracedAttributes, @Nullable Function<Throwable, String> traceRenderer) {
+        ServletExceptionHandledEvent result = new ServletExceptionHandledEvent(request, status, exception);
+        if (untracedAttributes != null) {
+            Map<String, Object> attributes = new LinkedHashMap<>(untracedAttributes);
+            result.errorAttributes = SingletonSupplier.of(() -> result.appendStackTrace(attributes));
+        }
+        result.traceRenderer = traceRenderer;
+        return result;
+    }
+
+    /**
+     * Returns the response error attributes
+     * <p>
+     * The stack trace is rendered on the first call only
+     *
+     * @return the response error attributes
+     */
+    @Nullable
+    public Map<String, Object> getErrorAttributes() {
+        return (errorAttributes == null) ? null : errorAttributes.get();
+    }
+
+    /**
+     * Returns the servlet request of this event, which is also the source of this event
+     * <p>
+     * A listener that runs on another thread may get a request that has been recycled,
+     * so prefer {@link #getRequestMethod()}, {@link #getRequestPath()} and {@link #getPathPattern()}, which are kept when the event is constructed
+     *
+     * @return the servlet request of this event
+     */
     public HttpServletRequest getServletRequest() {
         return ObjectUtilsWraps.castAs(super.getSource(), HttpServletRequest.class);
     }
+
+    @Nonnull
+    private Map<String, Object> appendStackTrace(@Nonnull Map<String, Object> attributes) {
+        if (exception != null && !attributes.containsKey(ErrorAttributeConst.TRACE)) {
+            attributes.put(ErrorAttributeConst.TRACE, (traceRenderer != null) ? traceRenderer.apply(exception) : ExceptionUtils.getStackTrace(exception));
+        }
+        return attributes;
+    }
 }
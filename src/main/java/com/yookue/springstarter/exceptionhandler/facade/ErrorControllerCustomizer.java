@@ -22,7 +22,7 @@ import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatusCode;
-import com.yookue.springstarter.exceptionhandler.util.ErrorControllerUtils;
+import com.yookue.springstarter.exceptionhandler.support.ErrorContext;
 
 
 /**
@@ -65,7 +65,7 @@ public interface ErrorControllerCustomizer {
     /**
      * Returns the determined {@link org.springframework.http.HttpStatusCode}
      * <p>
-     * For converting status with {@link java.lang.Throwable}
+     * For converting status with {@link java.lang.Throwable}, the given status has been mapped by the {@link com.yookue.springstarter.exceptionhandler.support.ErrorStatusRegistry} of the application context
      *
      * @param request the servlet request
      * @param status the http status that determined
@@ -74,7 +74,7 @@ public interface ErrorControllerCustomizer {
      * @return the determined {@link org.springframework.http.HttpStatusCode}
      */
     default HttpStatusCode determineErrorStatus(@Nonnull HttpServletRequest request, @Nullable HttpStatusCode status, @Nullable Throwable cause) {
-        return ErrorControllerUtils.determineErrorStatus(request, status, cause);
+        return status;
     }
 
     /**
@@ -91,6 +91,23 @@ public interface ErrorControllerCustomizer {
         return true;
     }
 
+    /**
+     * Returns whether the error page could be served from the pre-rendered page cache or not
+     * <p>
+     * Depends on {@code spring.exception-handler.page-cache.enabled} is {@code true}, and the error data holds no per-request data, such as message or trace.
+     * The timestamp is removed from the model of a cached page. The cached page is the output of the first request that rendered it,
+     * return {@code true} only if the error templates do not read any other request or session state, such as the path, the csrf token or the current user
+     *
+     * @param request the servlet request
+     * @param status the http status that determined
+     * @param cause the exception occurred, maybe {@code null} if http 404
+     *
+     * @return whether the error page could be served from the pre-rendered page cache or not, default is {@code false}
+     */
+    default boolean useStaticErrorPage(@Nonnull HttpServletRequest request, @Nullable HttpStatusCode status, @Nullable Throwable cause) {
+        return false;
+    }
+
     /**
      * Returns whether to use the localized field name in the controller or not
      * <p>
@@ -106,4 +123,73 @@ public interface ErrorControllerCustomizer {
     default boolean useLocalizedFieldName(@Nonnull HttpServletRequest request, @Nullable HttpStatusCode status, @Nullable Throwable cause, boolean html) {
         return false;
     }
+
+    /**
+     * Returns the view name for template engine
+     * <p>
+     * Delegates to {@link #prepareErrorView(jakarta.servlet.http.HttpServletRequest, org.springframework.http.HttpStatusCode, java.lang.Throwable)} by default,
+     * override this to reuse the cause, status and error attributes that determined once per request
+     *
+     * @param context the context of the error
+     *
+     * @return the view name for template engine
+     */
+    default String prepareErrorView(@Nonnull ErrorContext context) {
+        return prepareErrorView(context.getRequest(), context.getStatus(), context.getCause());
+    }
+
+    /**
+     * Returns the view data for a html request, or the rest data for an async request
+     * <p>
+     * Delegates to {@link #prepareErrorData(jakarta.servlet.http.HttpServletRequest, org.springframework.http.HttpStatusCode, java.lang.Throwable, boolean)} by default
+     *
+     * @param context the context of the error
+     * @param html indicates is a html request if true, otherwise is an async request (probably ajax)
+     *
+     * @return the view data for a html request, or the rest data for an async request
+     */
+    default Map<String, Object> prepareErrorData(@Nonnull ErrorContext context, boolean html) {
+        return prepareErrorData(context.getRequest(), context.getStatus(), context.getCause(), html);
+    }
+
+    /**
+     * Returns whether to use the default error data in the controller or not
+     * <p>
+     * Delegates to {@link #useDefaultErrorData(jakarta.servlet.http.HttpServletRequest, org.springframework.http.HttpStatusCode, java.lang.Throwable, boolean)} by default
+     *
+     * @param context the context of the error
+     * @param html indicates is a html request if true, otherwise is an async request (probably ajax)
+     *
+     * @return whether to use the default error data in the controller or not
+     */
+    default boolean useDefaultErrorData(@Nonnull ErrorContext context, boolean html) {
+        return useDefaultErrorData(context.getRequest(), context.getStatus(), context.getCause(), html);
+    }
+
+    /**
+     * Returns whether the error page could be served from the pre-rendered page cache or not
+     * <p>
+     * Delegates to {@link #useStaticErrorPage(jakarta.servlet.http.HttpServletRequest, org.springframework.http.HttpStatusCode, java.lang.Throwable)} by default
+     *
+     * @param context the context of the error
+     *
+     * @return whether the error page could be served from the pre-rendered page cache or not
+     */
+    default boolean useStaticErrorPage(@Nonnull ErrorContext context) {
+        return useStaticErrorPage(context.getRequest(), context.getStatus(), context.getCause());
+    }
+
+    /**
+     * Returns whether to use the localized field name in the controller or not
+     * <p>
+     * Delegates to {@link #useLocalizedFieldName(jakarta.servlet.http.HttpServletRequest, org.springframework.http.HttpStatusCode, java.lang.Throwable, boolean)} with the root cause by default
+     *
+     * @param context the context of the error
+     * @param html indicates is a html request if true, otherwise is an async request (probably ajax)
+     *
+     * @return whether to use the localized field name in the controller or not
+     */
+    default boolean useLocalizedFieldName(@Nonnull ErrorContext context, boolean html) {
+        return useLocalizedFieldName(context.getRequest(), context.getStatus(), context.getRootCause(), html);
+    }
 }
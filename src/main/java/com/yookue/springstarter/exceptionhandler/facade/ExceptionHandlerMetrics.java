@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.facade;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.http.HttpStatusCode;
+
+
+/**
+ * Facade interface for recording the metrics of exception handling
+ * <p>
+ * All the durations are in nanoseconds, the implementations should keep the cardinality of tags bounded
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.support.MicrometerExceptionHandlerMetrics
+ */
+@SuppressWarnings("unused")
+public interface ExceptionHandlerMetrics {
+    /**
+     * Records an error that handled by the error controller
+     *
+     * @param status the http status that determined
+     * @param rootCause the root cause of the exception, maybe {@code null} if http 404
+     * @param html indicates is a html request if true, otherwise is an async request (probably ajax)
+     */
+    void recordError(@Nonnull HttpStatusCode status, @Nullable Throwable rootCause, boolean html);
+
+    /**
+     * Records the duration of handling an exception in the filter
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    void recordFilterHandling(long nanos);
+
+    /**
+     * Records the duration of resolving an exception in the resolver
+     *
+     * @param nanos the duration in nanoseconds
+     * @param html indicates is a html request if true, otherwise is an async request (probably ajax)
+     */
+    void recordResolving(long nanos, boolean html);
+
+    /**
+     * Records the duration of rendering an error view
+     *
+     * @param engine the name of the template engine
+     * @param nanos the duration in nanoseconds
+     */
+    void recordRendering(@Nonnull String engine, long nanos);
+}
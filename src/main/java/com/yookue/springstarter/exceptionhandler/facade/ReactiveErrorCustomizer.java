@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.yookue.springstarter.exceptionhandler.facade;
+
+
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+
+/**
+ * Facade interface for customizing {@link com.yookue.springstarter.exceptionhandler.handler.DefaultReactiveExceptionHandler}
+ * <p>
+ * The reactive counterpart of {@link com.yookue.springstarter.exceptionhandler.facade.ErrorControllerCustomizer}, all the methods are invoked on the event loop thread, so they should never block
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.handler.DefaultReactiveExceptionHandler
+ */
+@SuppressWarnings({"unused", "SameReturnValue"})
+public interface ReactiveErrorCustomizer {
+    /**
+     * Returns the view name for template engine
+     *
+     * @param request the server request
+     * @param status the http status that determined
+     * @param cause the exception occurred
+     *
+     * @return the view name for template engine
+     */
+    String prepareErrorView(@Nonnull ServerRequest request, @Nullable HttpStatusCode status, @Nullable Throwable cause);
+
+    /**
+     * Returns the view data for a html request, or the rest data for an async request
+     * <p>
+     * if {@code useDefaultErrorData} is {@code true}, this will be appended to the generated default error data
+     * <br>
+     * Otherwise, this will replace the default error data totally
+     *
+     * @param request the server request
+     * @param status the http status that determined
+     * @param cause the exception occurred
+     * @param html indicates is a html request if true, otherwise is an async request (probably ajax)
+     *
+     * @return the view data for a html request, or the rest data for an async request
+     */
+    default Map<String, Object> prepareErrorData(@Nonnull ServerRequest request, @Nullable HttpStatusCode status, @Nullable Throwable cause, boolean html) {
+        return null;
+    }
+
+    /**
+     * Returns the determined {@link org.springframework.http.HttpStatusCode}
+     * <p>
+     * For converting status with {@link java.lang.Throwable}, the given status has been mapped by the {@link com.yookue.springstarter.exceptionhandler.support.ErrorStatusRegistry} of the application context
+     *
+     * @param request the server request
+     * @param status the http status that determined
+     * @param cause the exception occurred
+     *
+     * @return the determined {@link org.springframework.http.HttpStatusCode}
+     */
+    default HttpStatusCode determineErrorStatus(@Nonnull ServerRequest request, @Nullable HttpStatusCode status, @Nullable Throwable cause) {
+        return status;
+    }
+
+    /**
+     * Returns whether to use the default error data in the handler or not
+     *
+     * @param request the server request
+     * @param status the http status that determined
+     * @param cause the exception occurred
+     * @param html indicates is a html request if true, otherwise is an async request (probably ajax)
+     *
+     * @return whether to use the default error data in the handler or not
+     */
+    default boolean useDefaultErrorData(@Nonnull ServerRequest request, @Nullable HttpStatusCode status, @Nullable Throwable cause, boolean html) {
+        return true;
+    }
+}
@@ -17,31 +17,55 @@
 package com.yookue.springstarter.exceptionhandler.filter;
 
 
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.FilterChain;
+import jakarta.servlet.RequestDispatcher;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.i18n.LocaleContext;
 import org.springframework.context.i18n.LocaleContextHolder;
-import org.springframework.util.CollectionUtils;
 import org.springframework.util.ReflectionUtils;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.DispatcherServlet;
 import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.NoHandlerFoundException;
+import org.springframework.web.servlet.resource.NoResourceFoundException;
 import com.yookue.commonplexus.javaseutil.constant.LogMessageConst;
 import com.yookue.commonplexus.javaseutil.util.ExceptionUtilsWraps;
-import com.yookue.commonplexus.springutil.util.AntPathWraps;
 import com.yookue.commonplexus.springutil.util.UriUtilsWraps;
 import com.yookue.commonplexus.springutil.util.WebUtilsWraps;
+import com.yookue.springstarter.exceptionhandler.facade.ExceptionHandlerMetrics;
 import com.yookue.springstarter.exceptionhandler.property.ExceptionHandlerProperties;
+import com.yookue.springstarter.exceptionhandler.support.NotFoundPathCache;
+import com.yookue.springstarter.exceptionhandler.support.PathExcludeMatcher;
 import lombok.extern.slf4j.Slf4j;
 
 
 /**
  * {@link jakarta.servlet.Filter} for exception handler
+ * <p>
+ * The locale of the request is resolved only when an exception is being handled, the session is never created by the locale resolution.
+ * The exceptions of async dispatches, such as the failures of {@code DeferredResult} or {@code CompletableFuture}, are handled as well, and each request gets one error response at most.
+ * If a negative cache presents, the hot paths of http 404 that no handler matched are answered by the filter directly, without going through the filter chain
  *
  * @author David Hsing
  * @see org.springframework.web.filter.OncePerRequestFilter
@@ -49,13 +73,35 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class FilterExceptionHandlerFilter extends OncePerRequestFilter {
     public static final String THROWABLE_ATTRIBUTE = FilterExceptionHandlerFilter.class.getName() + ".THROWABLE";    // $NON-NLS-1$
+    public static final String HANDLED_ATTRIBUTE = FilterExceptionHandlerFilter.class.getName() + ".HANDLED";    // $NON-NLS-1$
+    public static final String PATTERN_ATTRIBUTE = FilterExceptionHandlerFilter.class.getName() + ".PATTERN";    // $NON-NLS-1$
+    private static final String LISTENER_ATTRIBUTE = FilterExceptionHandlerFilter.class.getName() + ".LISTENER";    // $NON-NLS-1$
+    private static final String[] EXCEPTION_ATTRIBUTES = {THROWABLE_ATTRIBUTE, DispatcherServlet.EXCEPTION_ATTRIBUTE, RequestDispatcher.ERROR_EXCEPTION};
+    private static final int LOCALE_CACHE_LIMIT = 256;
     private final ExceptionHandlerProperties handlerProperties;
     private final HandlerExceptionResolver handlerResolver;
+    private final ExceptionHandlerMetrics handlerMetrics;
+    private final PathExcludeMatcher excludeMatcher;
+    private final boolean asyncDispatch;
+    private final NotFoundPathCache notFoundCache;
+    private final Map<String, Locale> cookieLocales = new ConcurrentHashMap<>();
     private HandlerMethod handlerMethod;
 
     public FilterExceptionHandlerFilter(@Nonnull ExceptionHandlerProperties properties, @Nonnull HandlerExceptionResolver resolver) {
+        this(properties, resolver, null);
+    }
+
+    public FilterExceptionHandlerFilter(@Nonnull ExceptionHandlerProperties properties, @Nonnull HandlerExceptionResolver resolver, @Nullable ExceptionHandlerMetrics metrics) {
+        this(properties, resolver, metrics, null);
+    }
+
+    public FilterExceptionHandlerFilter(@Nonnull ExceptionHandlerProperties properties, @Nonnull HandlerExceptionResolver resolver, @Nullable ExceptionHandlerMetrics metrics, @Nullable NotFoundPathCache notFoundCache) {
+        this.notFoundCache = notFoundCache;
         this.handlerProperties = properties;
         this.handlerResolver = resolver;
+        this.handlerMetrics = metrics;
+        this.excludeMatcher = new PathExcludeMatcher(properties.getExceptionFilter().getExcludePaths());
+        this.asyncDispatch = BooleanUtils.isNotFalse(properties.getExceptionFilter().getAsyncDispatch());
         Method method = ReflectionUtils.findMethod(FilterExceptionHandlerFilter.class, "doFilterInternal", HttpServletRequest.class, HttpServletResponse.class, FilterChain.class);    // $NON-NLS-1$
         if (method != null) {
             handlerMethod = new HandlerMethod(this, method);
@@ -64,41 +110,231 @@ public class FilterExceptionHandlerFilter extends OncePerRequestFilter {
 
     @Override
     protected void doFilterInternal(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nonnull FilterChain chain) {
+        String notFoundPath = getNotFoundPath(request);
+        NotFoundPathCache.PathKey notFoundKey = null;
+        HttpServletResponse target = response;
+        if (notFoundPath != null && notFoundCache.isCandidate(notFoundPath)) {
+            // Only the candidate paths may have a cached response, so the locale and the request type are resolved for them only
+            notFoundKey = getNotFoundKey(request, notFoundPath);
+            try {
+                if (notFoundKey != null && notFoundCache.writeResponse(notFoundKey, response)) {
+                    return;
+                }
+            } catch (IOException ex) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Writing cached response of '{}' failed", request.getRequestURI(), ex);    // $NON-NLS-1$
+                }
+                return;
+            }
+            // The path is likely to be admitted by this 404, so capture its body
+            target = new NotFoundPathCache.CapturingResponse(response, notFoundCache.getMaxBodySize());
+        }
         try {
-            Locale locale = null;
-            ExceptionHandlerProperties.LocaleChange props = handlerProperties.getLocaleChange();
-            if (StringUtils.isNotBlank(props.getSessionName())) {
-                locale = WebUtilsWraps.getLocaleFromSession(request, props.getSessionName());
+            filterInternal(request, target, chain);
+        } finally {
+            if (request.getDispatcherType() != DispatcherType.ERROR && request.getAttribute(PATTERN_ATTRIBUTE) == null) {
+                // Keep the matched pattern, the error dispatch overwrites it with the one of the error controller
+                Optional.ofNullable(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE)).ifPresent(pattern -> request.setAttribute(PATTERN_ATTRIBUTE, pattern));
             }
-            if (locale == null && StringUtils.isNotBlank(props.getCookieName())) {
-                locale = WebUtilsWraps.getLocaleFromCookie(request, props.getCookieName());
+            if (notFoundPath != null && !request.isAsyncStarted() && target.getStatus() == HttpServletResponse.SC_NOT_FOUND && isNoHandlerFound(request)) {
+                // The key of a path that was not a candidate is resolved only now, when its 404 is recorded
+                NotFoundPathCache.PathKey recordKey = (notFoundKey != null) ? notFoundKey : getNotFoundKey(request, notFoundPath);
+                if (recordKey != null) {
+                    notFoundCache.recordNotFound(recordKey, request, target);
+                }
             }
-            if (locale != null) {
-                LocaleContextHolder.setLocale(locale, true);
-            }
-        } catch (Exception ignored) {
         }
+    }
+
+    private void filterInternal(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nonnull FilterChain chain) {
         try {
             chain.doFilter(request, response);
         } catch (Exception ex) {
-            Exception cause = ExceptionUtilsWraps.getRootCauseAsException(ex, ex);
-            if (log.isDebugEnabled()) {
-                log.debug(LogMessageConst.EXCEPTION_OCCURRED, cause);
+            handleException(request, response, ex);
+            return;
+        }
+        if (asyncDispatch && request.isAsyncStarted() && request.getAttribute(WebAsyncUtils.WEB_ASYNC_MANAGER_ATTRIBUTE) == null && request.getAttribute(LISTENER_ATTRIBUTE) == null) {
+            // The async processing started outside spring mvc never dispatches its timeouts and errors back to the filter chain
+            request.setAttribute(LISTENER_ATTRIBUTE, Boolean.TRUE);
+            request.getAsyncContext().addListener(new ExceptionHandlerAsyncListener(), request, response);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return !asyncDispatch;
+    }
+
+    /**
+     * Resolves the given exception through the resolver, at most once per request
+     * <p>
+     * The exception is skipped if an error response has been written by a previous dispatch, or the response has been committed
+     *
+     * @param request the servlet request
+     * @param response the servlet response
+     * @param ex the exception occurred
+     */
+    protected void handleException(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nonnull Exception ex) {
+        Exception cause = ExceptionUtilsWraps.getRootCauseAsException(ex, ex);
+        if (request.getAttribute(HANDLED_ATTRIBUTE) != null || response.isCommitted()) {
+            if (log.isWarnEnabled()) {
+                log.warn("Skip handling exception of '{}', the response has been written", request.getRequestURI(), cause);    // $NON-NLS-1$
             }
-            request.setAttribute(THROWABLE_ATTRIBUTE, cause);
-            try {
-                handlerResolver.resolveException(request, response, handlerMethod, cause);
-            } catch (Exception ignored) {
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(LogMessageConst.EXCEPTION_OCCURRED, cause);
+        }
+        request.setAttribute(THROWABLE_ATTRIBUTE, cause);
+        request.setAttribute(HANDLED_ATTRIBUTE, Boolean.TRUE);
+        long startTime = (handlerMetrics != null) ? System.nanoTime() : 0L;
+        LocaleContext previousLocale = LocaleContextHolder.getLocaleContext();
+        try {
+            Locale locale = resolveLocale(request);
+            if (locale != null) {
+                LocaleContextHolder.setLocale(locale, true);
             }
+            handlerResolver.resolveException(request, response, handlerMethod, cause);
+        } catch (Exception ignored) {
+        } finally {
+            LocaleContextHolder.setLocaleContext(previousLocale, true);
+        }
+        if (handlerMetrics != null) {
+            handlerMetrics.recordFilterHandling(System.nanoTime() - startTime);
         }
     }
 
     @Override
     protected boolean shouldNotFilter(@Nonnull HttpServletRequest request) throws ServletException {
-        if (!CollectionUtils.isEmpty(handlerProperties.getExceptionFilter().getExcludePaths())) {
-            String servletPath = UriUtilsWraps.getServletPath(request);
-            return AntPathWraps.matchAnyPatterns(servletPath, handlerProperties.getExceptionFilter().getExcludePaths());
+        if (!excludeMatcher.isEmpty()) {
+            return excludeMatcher.matches(UriUtilsWraps.getServletPath(request));
         }
         return super.shouldNotFilter(request);
     }
+
+    /**
+     * Returns the locale from the session or the cookie of the given request
+     * <p>
+     * The session is never created, and the parsed locales are cached by the cookie values
+     *
+     * @param request the servlet request
+     *
+     * @return the locale from the session or the cookie of the given request
+     */
+    @Nullable
+    protected Locale resolveLocale(@Nonnull HttpServletRequest request) {
+        ExceptionHandlerProperties.LocaleChange props = handlerProperties.getLocaleChange();
+        if (StringUtils.isNotBlank(props.getSessionName())) {
+            HttpSession session = request.getSession(false);
+            Object value = (session == null) ? null : session.getAttribute(props.getSessionName());
+            if (value instanceof Locale instance) {
+                return instance;
+            }
+            if (value instanceof String instance && StringUtils.isNotBlank(instance)) {
+                return parseLocale(instance);
+            }
+        }
+        if (StringUtils.isNotBlank(props.getCookieName()) && request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (StringUtils.equals(cookie.getName(), props.getCookieName()) && StringUtils.isNotBlank(cookie.getValue())) {
+                    return parseLocale(cookie.getValue());
+                }
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private String getNotFoundPath(@Nonnull HttpServletRequest request) {
+        if (notFoundCache == null || isAsyncDispatch(request)) {
+            return null;
+        }
+        String path = UriUtilsWraps.getServletPath(request);
+        return notFoundCache.isCacheable(request, path) ? path : null;
+    }
+
+    @Nullable
+    private NotFoundPathCache.PathKey getNotFoundKey(@Nonnull HttpServletRequest request, @Nonnull String path) {
+        return notFoundCache.getKey(request, path, WebUtilsWraps.isRestRequest(request), resolveLocale(request));
+    }
+
+    /**
+     * Returns whether no handler matched the given request or not, the 404 responses of a handler are never cached
+     */
+    private boolean isNoHandlerFound(@Nonnull HttpServletRequest request) {
+        if (request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE) == null) {
+            return true;
+        }
+        for (String name : EXCEPTION_ATTRIBUTES) {
+            Object value = request.getAttribute(name);
+            if (value instanceof NoHandlerFoundException || value instanceof NoResourceFoundException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Nullable
+    private Locale parseLocale(@Nonnull String value) {
+        Locale result = cookieLocales.get(value);
+        if (result == null) {
+            try {
+                result = org.springframework.util.StringUtils.parseLocale(value);
+            } catch (IllegalArgumentException ignored) {
+                return null;
+            }
+            if (result != null && cookieLocales.size() < LOCALE_CACHE_LIMIT) {
+                cookieLocales.putIfAbsent(value, result);
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * {@link jakarta.servlet.AsyncListener} for the async processing that started outside spring mvc
+     * <p>
+     * The timeouts and errors are resolved on the container thread that notifies the listener, then the async processing is completed.
+     * If a listener of the application has written or dispatched the response already, the async processing is left to the application
+     */
+    private class ExceptionHandlerAsyncListener implements AsyncListener {
+        @Override
+        public void onComplete(@Nonnull AsyncEvent event) {
+        }
+
+        @Override
+        public void onTimeout(@Nonnull AsyncEvent event) {
+            handleAsyncEvent(event, new AsyncRequestTimeoutException());
+        }
+
+        @Override
+        public void onError(@Nonnull AsyncEvent event) {
+            Throwable throwable = event.getThrowable();
+            handleAsyncEvent(event, (throwable instanceof Exception instance) ? instance : new ServletException(throwable));
+        }
+
+        @Override
+        public void onStartAsync(@Nonnull AsyncEvent event) {
+            event.getAsyncContext().addListener(this, event.getSuppliedRequest(), event.getSuppliedResponse());
+        }
+
+        private void handleAsyncEvent(@Nonnull AsyncEvent event, @Nonnull Exception cause) {
+            if (!(event.getSuppliedRequest() instanceof HttpServletRequest request) || !(event.getSuppliedResponse() instanceof HttpServletResponse response)) {
+                return;
+            }
+            if (!request.isAsyncStarted() || request.getAttribute(HANDLED_ATTRIBUTE) != null) {
+                // Dispatched or completed by the application, or written by this listener already
+                return;
+            }
+            handleException(request, response, cause);
+            if (request.getAttribute(HANDLED_ATTRIBUTE) == null) {
+                // Skipped since the response has been written by the application
+                return;
+            }
+            try {
+                event.getAsyncContext().complete();
+            } catch (IllegalStateException ignored) {
+            }
+        }
+    }
 }
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.yookue.springstarter.exceptionhandler.handler;
+
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.autoconfigure.web.ErrorProperties;
+import org.springframework.boot.autoconfigure.web.WebProperties;
+import org.springframework.boot.autoconfigure.web.reactive.error.DefaultErrorWebExceptionHandler;
+import org.springframework.boot.web.error.ErrorAttributeOptions;
+import org.springframework.boot.web.reactive.error.ErrorAttributes;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.MessageSource;
+import org.springframework.context.i18n.LocaleContext;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import com.yookue.commonplexus.javaseutil.util.MapPlainWraps;
+import com.yookue.commonplexus.javaseutil.util.StringUtilsWraps;
+import com.yookue.commonplexus.springutil.constant.ErrorAttributeCombo;
+import com.yookue.commonplexus.springutil.constant.ErrorAttributeConst;
+import com.yookue.commonplexus.springutil.constant.MiscMessageConst;
+import com.yookue.commonplexus.springutil.util.MessageSourceWraps;
+import com.yookue.springstarter.exceptionhandler.event.AsyncExceptionEventPublisher;
+import com.yookue.springstarter.exceptionhandler.event.ReactiveExceptionHandledEvent;
+import com.yookue.springstarter.exceptionhandler.facade.ExceptionHandlerMetrics;
+import com.yookue.springstarter.exceptionhandler.facade.ReactiveErrorCustomizer;
+import com.yookue.springstarter.exceptionhandler.support.ErrorLogLimiter;
+import com.yookue.springstarter.exceptionhandler.support.ErrorMessageCache;
+import com.yookue.springstarter.exceptionhandler.support.ErrorStatusRegistry;
+import com.yookue.springstarter.exceptionhandler.support.StackTraceRenderer;
+import com.yookue.springstarter.exceptionhandler.util.ErrorControllerUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import lombok.Getter;
+import lombok.Setter;
+
+
+/**
+ * Default reactive exception handler for global exception handling
+ * <p>
+ * The reactive counterpart of {@link com.yookue.springstarter.exceptionhandler.controller.DefaultBasicErrorController},
+ * the status is mapped by the {@link com.yookue.springstarter.exceptionhandler.support.ErrorStatusRegistry} of the application context, the view and the data are customized by {@link com.yookue.springstarter.exceptionhandler.facade.ReactiveErrorCustomizer},
+ * and a {@link com.yookue.springstarter.exceptionhandler.event.ReactiveExceptionHandledEvent} is published for each error.
+ * Both the json and the templates are written by the non-blocking codecs and view resolvers of spring webflux
+ *
+ * @author David Hsing
+ * @see org.springframework.boot.autoconfigure.web.reactive.error.DefaultErrorWebExceptionHandler
+ * @see org.springframework.boot.autoconfigure.web.reactive.error.ErrorWebFluxAutoConfiguration
+ */
+@Getter
+@Setter
+@SuppressWarnings("unused")
+public class DefaultReactiveExceptionHandler extends DefaultErrorWebExceptionHandler {
+    private static final String STATUS_ATTRIBUTE = DefaultReactiveExceptionHandler.class.getName() + ".STATUS";    // $NON-NLS-1$
+
+    private String viewName;
+    private boolean publishEvent = true;
+    private ReactiveErrorCustomizer errorCustomizer;
+    private ApplicationEventPublisher applicationEventPublisher;
+    private AsyncExceptionEventPublisher asyncEventPublisher;
+    private StackTraceRenderer stackTraceRenderer;
+    private ExceptionHandlerMetrics handlerMetrics;
+    private ErrorLogLimiter errorLogLimiter;
+    private ErrorMessageCache errorMessageCache;
+    private ErrorStatusRegistry statusRegistry;
+    private MessageSource messageSource;
+
+    public DefaultReactiveExceptionHandler(@Nonnull ErrorAttributes attributes, @Nonnull WebProperties.Resources resources, @Nonnull ErrorProperties properties, @Nonnull ApplicationContext context) {
+        super(attributes, resources, properties, context);
+        this.applicationEventPublisher = context;
+        this.messageSource = context;
+    }
+
+    @Override
+    @Nonnull
+    protected Mono<ServerResponse> renderErrorView(@Nonnull ServerRequest request) {
+        Throwable cause = super.getError(request);
+        HttpStatusCode status = determineErrorStatus(request, cause);
+        handleErrorBehavior(request, status, cause, true);
+        String view = (errorCustomizer != null) ? errorCustomizer.prepareErrorView(request, status, cause) : null;
+        if (StringUtils.isBlank(view)) {
+            view = viewName;
+        }
+        if (StringUtils.isBlank(view)) {
+            // Falls back to the templates of spring boot, such as 'error/404' or 'error/4xx'
+            return super.renderErrorView(request);
+        }
+        return ServerResponse.status(status).contentType(MediaType.TEXT_HTML).render(view, prepareErrorData(request, status, cause, true));
+    }
+
+    @Override
+    @Nonnull
+    protected Mono<ServerResponse> renderErrorResponse(@Nonnull ServerRequest request) {
+        Throwable cause = super.getError(request);
+        HttpStatusCode status = determineErrorStatus(request, cause);
+        handleErrorBehavior(request, status, cause, false);
+        if (status == HttpStatus.NO_CONTENT) {
+            return ServerResponse.status(status).build();
+        }
+        return ServerResponse.status(status).contentType(MediaType.APPLICATION_JSON).body(BodyInserters.fromValue(prepareErrorData(request, status, cause, false)));
+    }
+
+    @Override
+    protected void logError(@Nonnull ServerRequest request, @Nonnull ServerResponse response, @Nonnull Throwable throwable) {
+        // Only the http 500 are logged as errors by super, the others are not worth a token
+        if (errorLogLimiter == null || response.statusCode().value() != HttpStatus.INTERNAL_SERVER_ERROR.value() || errorLogLimiter.tryAcquire(request.method().name(), getLogPattern(request), response.statusCode().value())) {
+            super.logError(request, response, throwable);
+        }
+    }
+
+    /**
+     * Returns the key path of the error log limiter, for the given request
+     * <p>
+     * The requests that failed before any handler matched have no pattern, and share a single key of the limiter, the same as the servlet requests,
+     * so that a path scan does not fill the limiter up with its own keys
+     *
+     * @param request the server request
+     *
+     * @return the key path of the error log limiter, for the given request, or {@code null} if no handler matched
+     */
+    @Nullable
+    protected String getLogPattern(@Nonnull ServerRequest request) {
+        return request.attribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE).map(Object::toString).orElse(null);
+    }
+
+    /**
+     * Returns the view data for a html request, or the rest data for an async request
+     *
+     * @param request the server request
+     * @param status the http status that determined
+     * @param cause the exception occurred
+     * @param html indicates is a html request if true, otherwise is an async request (probably ajax)
+     *
+     * @return the view data for a html request, or the rest data for an async request
+     */
+    @Nonnull
+    protected Map<String, Object> prepareErrorData(@Nonnull ServerRequest request, @Nonnull HttpStatusCode status, @Nullable Throwable cause, boolean html) {
+        Map<String, Object> result = null;
+        if (errorCustomizer == null || errorCustomizer.useDefaultErrorData(request, status, cause, html)) {
+            result = getErrorAttributes(request, super.getErrorAttributeOptions(request, html ? MediaType.TEXT_HTML : MediaType.ALL));
+        }
+        Map<String, Object> customData = (errorCustomizer != null) ? errorCustomizer.prepareErrorData(request, status, cause, html) : null;
+        if (result == null) {
+            return (customData != null) ? customData : new LinkedHashMap<>();
+        }
+        if (customData != null) {
+            result.putAll(customData);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the determined {@link org.springframework.http.HttpStatusCode} of the given request, which is determined only once per request
+     *
+     * @param request the server request
+     * @param cause the exception occurred
+     *
+     * @return the determined {@link org.springframework.http.HttpStatusCode} of the given request
+     */
+    @Nonnull
+    protected HttpStatusCode determineErrorStatus(@Nonnull ServerRequest request, @Nullable Throwable cause) {
+        if (request.attributes().get(STATUS_ATTRIBUTE) instanceof HttpStatusCode instance) {
+            return instance;
+        }
+        HttpStatusCode status = (cause instanceof ErrorResponse instance) ? instance.getStatusCode() : HttpStatus.INTERNAL_SERVER_ERROR;
+        status = ErrorControllerUtils.determineErrorStatus(statusRegistry, status, cause);
+        if (errorCustomizer != null) {
+            status = errorCustomizer.determineErrorStatus(request, status, cause);
+        }
+        HttpStatusCode result = ObjectUtils.defaultIfNull(status, HttpStatus.INTERNAL_SERVER_ERROR);
+        request.attributes().put(STATUS_ATTRIBUTE, result);
+        return result;
+    }
+
+    /**
+     * @see org.springframework.boot.web.reactive.error.DefaultErrorAttributes#getErrorAttributes(org.springframework.web.reactive.function.server.ServerRequest, org.springframework.boot.web.error.ErrorAttributeOptions)
+     */
+    @Override
+    @Nonnull
+    protected Map<String, Object> getErrorAttributes(@Nonnull ServerRequest request, @Nonnull ErrorAttributeOptions options) {
+        // The stack trace of the default error attributes is rendered in full, so render it by ourselves
+        boolean renderTrace = stackTraceRenderer != null && options.isIncluded(ErrorAttributeOptions.Include.STACK_TRACE);
+        Map<String, Object> result = super.getErrorAttributes(request, renderTrace ? options.excluding(ErrorAttributeOptions.Include.STACK_TRACE) : options);
+        Throwable cause = super.getError(request);
+        if (renderTrace && cause != null) {
+            result.put(ErrorAttributeConst.TRACE, stackTraceRenderer.render(cause));
+        }
+        HttpStatusCode status = determineErrorStatus(request, cause);
+        result.put(ErrorAttributeConst.STATUS, status.value());
+        if (status instanceof HttpStatus instance) {
+            result.put(ErrorAttributeConst.ERROR, instance.getReasonPhrase());
+        }
+        if (cause != null && options.isIncluded(ErrorAttributeOptions.Include.MESSAGE) && StringUtils.isBlank(MapPlainWraps.getString(result, ErrorAttributeConst.MESSAGE))) {
+            String message = getErrorMessage(request, MiscMessageConst.SOMETHING_ERROR_TRY, null);
+            StringUtilsWraps.ifNotBlank(message, () -> result.put(ErrorAttributeConst.MESSAGE, message));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the message of the given code and the locale of the given request, from the cache if present
+     *
+     * @param request the server request
+     * @param code the message code
+     * @param defaultMessage the message to return if the code is not found
+     *
+     * @return the message of the given code and the locale of the given request
+     */
+    @Nullable
+    protected String getErrorMessage(@Nonnull ServerRequest request, @Nonnull String code, @Nullable String defaultMessage) {
+        LocaleContext context = request.exchange().getLocaleContext();
+        Locale locale = ObjectUtils.defaultIfNull(context.getLocale(), Locale.getDefault());
+        if (errorMessageCache != null) {
+            return errorMessageCache.getMessage(messageSource, code, defaultMessage, locale);
+        }
+        return MessageSourceWraps.getMessageLookup(messageSource, code, null, defaultMessage, locale);
+    }
+
+    private void handleErrorBehavior(@Nonnull ServerRequest request, @Nonnull HttpStatusCode status, @Nullable Throwable cause, boolean html) {
+        if (publishEvent) {
+            Supplier<Map<String, Object>> errors = () -> getErrorAttributes(request, ErrorAttributeCombo.ALL_OPTIONS);
+            ReactiveExceptionHandledEvent event = new ReactiveExceptionHandledEvent(request.exchange(), status, cause, errors);
+            if (asyncEventPublisher != null) {
+                asyncEventPublisher.publishEvent(event);
+            } else {
+                try {
+                    // The listeners may block, so they are never invoked on the event loop
+                    Schedulers.boundedElastic().schedule(() -> applicationEventPublisher.publishEvent(event));
+                } catch (RejectedExecutionException ignored) {
+                    // The scheduler is saturated or disposed, drops the event rather than blocking the event loop
+                }
+            }
+        }
+        if (handlerMetrics != null) {
+            handlerMetrics.recordError(status, (cause == null) ? null : NestedExceptionUtils.getMostSpecificCause(cause), html);
+        }
+    }
+}
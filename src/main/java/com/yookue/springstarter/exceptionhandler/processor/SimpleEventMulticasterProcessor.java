@@ -25,6 +25,7 @@ import org.springframework.core.Ordered;
 import org.springframework.util.ErrorHandler;
 import com.yookue.commonplexus.javaseutil.constant.LogMessageConst;
 import com.yookue.commonplexus.springutil.util.ReflectionUtilsWraps;
+import com.yookue.springstarter.exceptionhandler.event.SelectiveEventMulticaster;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -32,9 +33,13 @@ import lombok.extern.slf4j.Slf4j;
 
 /**
  * {@link org.springframework.beans.factory.config.BeanPostProcessor} for {@link org.springframework.context.event.SimpleApplicationEventMulticaster}
+ * <p>
+ * Installs the error handler only if the multicaster has none. The handler of a {@link com.yookue.springstarter.exceptionhandler.event.SelectiveEventMulticaster} is checked through its public accessor,
+ * the one of a plain multicaster is read reflectively, which is registered by {@link com.yookue.springstarter.exceptionhandler.aot.ExceptionHandlerRuntimeHints}
  *
  * @author David Hsing
  * @see org.springframework.context.event.SimpleApplicationEventMulticaster
+ * @see com.yookue.springstarter.exceptionhandler.event.SelectiveEventMulticaster
  */
 @Getter
 @Setter
@@ -45,7 +50,11 @@ public class SimpleEventMulticasterProcessor implements BeanPostProcessor, Order
 
     @Override
     public Object postProcessAfterInitialization(@Nonnull Object bean, @Nonnull String beanName) throws BeansException {
-        if (bean instanceof SimpleApplicationEventMulticaster instance) {
+        if (bean instanceof SelectiveEventMulticaster instance) {
+            if (instance.getErrorHandler() == null) {
+                instance.setErrorHandler(errorHandler);
+            }
+        } else if (bean instanceof SimpleApplicationEventMulticaster instance) {
             Object handler = ReflectionUtilsWraps.getField(SimpleApplicationEventMulticaster.class, "errorHandler", true, instance);    // $NON-NLS-1$
             if (handler == null) {
                 instance.setErrorHandler(errorHandler);
@@ -18,13 +18,16 @@ package com.yookue.springstarter.exceptionhandler.property;
 
 
 import java.io.Serializable;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.servlet.HandlerInterceptor;
 import com.yookue.springstarter.exceptionhandler.config.ExceptionHandlerAutoConfiguration;
+import com.yookue.springstarter.exceptionhandler.event.AsyncExceptionEventPublisher;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -57,6 +60,31 @@ public class ExceptionHandlerProperties implements Serializable {
      */
     private final ExceptionResolver exceptionResolver = new ExceptionResolver();
 
+    /**
+     * Error page cache attributes
+     */
+    private final PageCache pageCache = new PageCache();
+
+    /**
+     * Error render guard attributes
+     */
+    private final RenderGuard renderGuard = new RenderGuard();
+
+    /**
+     * Not found cache attributes
+     */
+    private final NotFoundCache notFoundCache = new NotFoundCache();
+
+    /**
+     * Exception status mapping attributes
+     */
+    private final StatusMapping statusMapping = new StatusMapping();
+
+    /**
+     * Stack trace rendering attributes
+     */
+    private final StackTrace stackTrace = new StackTrace();
+
     /**
      * Locale change attributes
      */
@@ -67,6 +95,36 @@ public class ExceptionHandlerProperties implements Serializable {
      */
     private final EventListener eventListener = new EventListener();
 
+    /**
+     * Asynchronous event publisher attributes
+     */
+    private final AsyncPublisher asyncPublisher = new AsyncPublisher();
+
+    /**
+     * Micrometer metrics attributes
+     */
+    private final Metrics metrics = new Metrics();
+
+    /**
+     * Error log limiting attributes
+     */
+    private final ErrorLog errorLog = new ErrorLog();
+
+    /**
+     * Error message cache attributes
+     */
+    private final MessageCache messageCache = new MessageCache();
+
+    /**
+     * Error fingerprint aggregation attributes
+     */
+    private final Fingerprint fingerprint = new Fingerprint();
+
+    /**
+     * Reactive exception handler attributes
+     */
+    private final ReactiveHandler reactiveHandler = new ReactiveHandler();
+
 
     /**
      * Properties for handle exception filter
@@ -99,6 +157,13 @@ public class ExceptionHandlerProperties implements Serializable {
          * The url patterns that ignored by the filter
          */
         private Set<String> excludePaths;
+
+        /**
+         * Indicates whether to handle the exceptions of async dispatches or not, such as the failures of {@code DeferredResult} or {@code CompletableFuture}
+         * <p>
+         * Default is {@code true}
+         */
+        private Boolean asyncDispatch = true;
     }
 
 
@@ -125,6 +190,253 @@ public class ExceptionHandlerProperties implements Serializable {
          * Default is {@code Ordered.HIGHEST_PRECEDENCE + 10}
          */
         private Integer resolverOrder = Ordered.HIGHEST_PRECEDENCE + 10;
+
+        /**
+         * Indicates whether to cache the resolved error views or not
+         * <p>
+         * Default is {@code true}, set it to {@code false} when the templates are being changed in development
+         */
+        private Boolean viewCache = true;
+
+        /**
+         * The maximum number of the resolved error views in the cache, the eldest ones will be evicted when exceeded
+         * <p>
+         * Default is {@code 64}
+         */
+        private Integer viewCacheLimit = 64;
+
+        /**
+         * Indicates whether to splice the json error bodies into pre-serialized envelopes or not
+         * <p>
+         * Default is {@code false}, requires jackson and a utf-8 servlet encoding
+         *
+         * @see com.yookue.springstarter.exceptionhandler.support.JsonEnvelopeWriter
+         */
+        private Boolean envelopeCache = false;
+
+        /**
+         * The maximum number of the json envelopes in the cache, the bodies beyond will be serialized on every request
+         * <p>
+         * Default is {@code 256}
+         */
+        private Integer envelopeCacheLimit = 256;
+
+        /**
+         * Indicates whether to negotiate the binary error bodies by the accept header or not
+         * <p>
+         * Default is {@code true}, takes effect when the cbor or smile dataformat of jackson presents
+         */
+        private Boolean binaryBodies = true;
+    }
+
+
+    /**
+     * Properties for caching the pre-rendered error pages
+     * <p>
+     * The pages are cached per status, locale and view name, and rendered without the timestamp, so the templates should not print any other per-request values, such as path
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.exceptionhandler.support.ErrorPageCache
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class PageCache implements Serializable {
+        /**
+         * Indicates whether to enable the error page cache or not
+         * <p>
+         * The pages are served from the cache only if the {@code ErrorControllerCustomizer} opts in by {@code useStaticErrorPage}
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean enabled = false;
+
+        /**
+         * The maximum number of the pages in the cache, the least recently used pages are evicted when the cache is full
+         * <p>
+         * Default is {@code 256}
+         */
+        private Integer cacheLimit = 256;
+    }
+
+
+    /**
+     * Properties for guarding the renders of error views by a bulkhead and a circuit breaker
+     * <p>
+     * When the breaker is open, or the bulkhead is full, the errors are answered with a minimal built-in html page
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.exceptionhandler.support.ErrorRenderGuard
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class RenderGuard implements Serializable {
+        /**
+         * Indicates whether to enable the render guard or not
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean enabled = false;
+
+        /**
+         * The maximum number of concurrent renders, non-positive means unlimited
+         * <p>
+         * Default is {@code 32}
+         */
+        private Integer maxConcurrent = 32;
+
+        /**
+         * The maximum time to wait for a render permit when the bulkhead is full
+         * <p>
+         * Default is {@code 50ms}
+         */
+        private Duration acquireTimeout = Duration.ofMillis(50L);
+
+        /**
+         * The maximum time of a render, the renders beyond count as failures
+         * <p>
+         * Default is {@code 2s}
+         */
+        private Duration renderBudget = Duration.ofSeconds(2L);
+
+        /**
+         * The number of consecutive failures to open the breaker, non-positive means never open
+         * <p>
+         * Default is {@code 5}
+         */
+        private Integer failureThreshold = 5;
+
+        /**
+         * The time that the breaker stays open, before a probe render is allowed
+         * <p>
+         * Default is {@code 30s}
+         */
+        private Duration openDuration = Duration.ofSeconds(30L);
+    }
+
+
+    /**
+     * Properties for the negative cache of the http 404 paths
+     * <p>
+     * The hot paths of http 404 are answered by the filter directly, without the error controller, the events and the template rendering
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.exceptionhandler.support.NotFoundPathCache
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class NotFoundCache implements Serializable {
+        /**
+         * Indicates whether to enable the not found cache or not
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean enabled = false;
+
+        /**
+         * The number of 404 occurrences of a path, to admit it to the cache
+         * <p>
+         * Default is {@code 3}
+         */
+        private Integer admitCount = 3;
+
+        /**
+         * The maximum number of the cached responses, the least recently served one will be evicted when exceeded
+         * <p>
+         * Default is {@code 1024}
+         */
+        private Integer maxPaths = 1024;
+
+        /**
+         * The time to live of the cached responses, the newly deployed routes become reachable after it at most
+         * <p>
+         * Default is {@code 60s}
+         */
+        private Duration timeToLive = Duration.ofSeconds(60L);
+
+        /**
+         * The maximum size of a response body in bytes, the larger ones are not cached
+         * <p>
+         * Default is {@code 16384}
+         */
+        private Integer maxBodySize = 16384;
+
+        /**
+         * Indicates whether to cache the responses of the html requests or not, otherwise the rest requests only
+         * <p>
+         * Enable it only if the 404 pages never print per-user content, such as the user name or the csrf token in the layout
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean cacheHtml = false;
+    }
+
+
+    /**
+     * Properties for mapping exceptions to http statuses
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.exceptionhandler.support.ErrorStatusRegistry
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class StatusMapping implements Serializable {
+        /**
+         * Indicates whether to detect the {@link org.springframework.web.bind.annotation.ResponseStatus} on exception classes or not
+         * <p>
+         * Default is {@code true}
+         */
+        private Boolean detectResponseStatus = true;
+
+        /**
+         * The http statuses of exception classes, which take precedence over the built-in mappings
+         * <p>
+         * The subclasses of a mapped exception class share the same status, unless they are mapped explicitly
+         */
+        private Map<Class<? extends Throwable>, HttpStatus> exceptionStatuses;
+    }
+
+
+    /**
+     * Properties for rendering the stack trace of error attributes
+     * <p>
+     * Only works when the stack trace is included, see {@code server.error.include-stacktrace}
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.exceptionhandler.support.StackTraceRenderer
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class StackTrace implements Serializable {
+        /**
+         * The maximum number of frames of each throwable, non-positive means unlimited
+         * <p>
+         * Default is {@code 0}, which keeps the full trace as {@link java.lang.Throwable#printStackTrace()}
+         */
+        private Integer maxFrames = 0;
+
+        /**
+         * The maximum length of the rendered trace, non-positive means unlimited
+         * <p>
+         * Default is {@code 0}, which keeps the full trace as {@link java.lang.Throwable#printStackTrace()}
+         */
+        private Integer maxLength = 0;
+
+        /**
+         * The maximum number of the rendered traces in the cache, the least recently used traces are evicted when the cache is full, non-positive means no cache
+         * <p>
+         * Default is {@code 256}
+         */
+        private Integer cacheLimit = 256;
+
+        /**
+         * The package prefixes whose frames should be collapsed, such as {@code org.apache.catalina.}
+         */
+        private Set<String> excludePackages;
     }
 
 
@@ -175,5 +487,281 @@ public class ExceptionHandlerProperties implements Serializable {
          * Default is {@code Ordered.LOWEST_PRECEDENCE - 1000}
          */
         private Integer processorOrder = Ordered.LOWEST_PRECEDENCE - 1000;
+
+        /**
+         * Indicates whether to invoke the listeners of the async event types on a task executor or not
+         * <p>
+         * The executor is installed by the multicaster that this starter creates, regardless of {@code handleEventMulticaster}
+         * <p>
+         * Default is {@code false}, the virtual threads are used on java 21 or later, otherwise the platform threads up to {@code asyncConcurrencyLimit}
+         */
+        private Boolean asyncExecutor = false;
+
+        /**
+         * The maximum number of the listener invocations in flight on platform threads, the publishers wait for a free slot when exceeded
+         * <p>
+         * Only works below java 21, where the virtual threads are not available
+         * <p>
+         * Default is {@code 16}
+         */
+        private Integer asyncConcurrencyLimit = 16;
+
+        /**
+         * The event types or the payload types whose listeners are invoked on the task executor, the other events are still multicast synchronously
+         * <p>
+         * Default is {@code ServletExceptionHandledEvent} and {@code ReactiveExceptionHandledEvent}
+         */
+        private Set<Class<?>> asyncEventTypes;
+    }
+
+
+    /**
+     * Properties for publishing the exception events asynchronously
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.exceptionhandler.event.AsyncExceptionEventPublisher
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class AsyncPublisher implements Serializable {
+        /**
+         * Indicates whether to publish the exception events asynchronously or not
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean enabled = false;
+
+        /**
+         * The maximum number of the events waiting in the queue
+         * <p>
+         * Default is {@code 1024}
+         */
+        private Integer queueCapacity = 1024;
+
+        /**
+         * The maximum number of the events dispatched in a batch
+         * <p>
+         * Default is {@code 64}
+         */
+        private Integer batchSize = 64;
+
+        /**
+         * The policy when the queue is full
+         * <p>
+         * Default is {@code DROP}
+         */
+        private AsyncExceptionEventPublisher.OverflowPolicy overflowPolicy = AsyncExceptionEventPublisher.OverflowPolicy.DROP;
+
+        /**
+         * Keeps one of every N overflowing events, only works with the {@code SAMPLE} policy
+         * <p>
+         * Default is {@code 10}
+         */
+        private Integer sampleRate = 10;
+
+        /**
+         * The maximum time to block the request thread, only works with the {@code BLOCK} policy
+         * <p>
+         * Default is {@code 100ms}
+         */
+        private Duration blockTimeout = Duration.ofMillis(100L);
+
+        /**
+         * The maximum time to drain the queue on shutdown
+         * <p>
+         * Default is {@code 5s}
+         */
+        private Duration shutdownTimeout = Duration.ofSeconds(5L);
+    }
+
+
+    /**
+     * Properties for recording the metrics of exception handling
+     * <p>
+     * Only works when a {@code io.micrometer.core.instrument.MeterRegistry} bean is present
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.exceptionhandler.support.MicrometerExceptionHandlerMetrics
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class Metrics implements Serializable {
+        /**
+         * Indicates whether to record the metrics or not
+         * <p>
+         * Default is {@code true}
+         */
+        private Boolean enabled = true;
+
+        /**
+         * The maximum number of distinct exception classes in the tags, the exception classes beyond are tagged as {@code OTHER}
+         * <p>
+         * Default is {@code 100}
+         */
+        private Integer maxExceptionTags = 100;
+    }
+
+
+    /**
+     * Properties for limiting the error logs of the error controller
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.exceptionhandler.support.ErrorLogLimiter
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class ErrorLog implements Serializable {
+        /**
+         * Indicates whether to limit the error logs or not
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean rateLimit = false;
+
+        /**
+         * The steady rate of logs per method, path pattern and status
+         * <p>
+         * Default is {@code 10.0}
+         */
+        private Double permitsPerSecond = 10.0D;
+
+        /**
+         * The maximum number of logs per method, path pattern and status in a burst
+         * <p>
+         * Default is {@code 20}
+         */
+        private Integer burstSize = 20;
+
+        /**
+         * The interval of the summary lines of the suppressed logs, the limits that have been idle for an interval are evicted
+         * <p>
+         * Default is {@code 10s}
+         */
+        private Duration summaryInterval = Duration.ofSeconds(10L);
+
+        /**
+         * The maximum number of the distinct method, path pattern and status, the ones beyond share a single limit
+         * <p>
+         * Default is {@code 1024}
+         */
+        private Integer maxKeys = 1024;
+    }
+
+
+    /**
+     * Properties for caching the error messages
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.exceptionhandler.support.ErrorMessageCache
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class MessageCache implements Serializable {
+        /**
+         * Indicates whether to cache the error messages or not
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean enabled = false;
+
+        /**
+         * The maximum number of the messages in the cache, the messages beyond will be looked up on every request
+         * <p>
+         * Default is {@code 1024}
+         */
+        private Integer cacheLimit = 1024;
+
+        /**
+         * The time to live of the messages, which bounds the staleness of a message source that reloads by itself
+         * <p>
+         * Publish a {@link com.yookue.springstarter.exceptionhandler.event.MessageSourceReloadedEvent} after reloading the message source, to drop the messages at once
+         * <p>
+         * Default is {@code 5m}, zero means never expire
+         */
+        private Duration timeToLive = Duration.ofMinutes(5L);
+    }
+
+
+    /**
+     * Properties for aggregating the handled errors by fingerprint
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.exceptionhandler.support.ErrorFingerprintAggregator
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class Fingerprint implements Serializable {
+        /**
+         * Indicates whether to aggregate the handled errors or not
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean enabled = false;
+
+        /**
+         * The number of the top frames of the root cause in the fingerprint
+         * <p>
+         * Default is {@code 5}
+         */
+        private Integer topFrames = 5;
+
+        /**
+         * The maximum number of the fingerprints, the fingerprints beyond share a single entry
+         * <p>
+         * Default is {@code 512}
+         */
+        private Integer maxFingerprints = 512;
+
+        /**
+         * The number of the latest samples per fingerprint
+         * <p>
+         * Default is {@code 8}
+         */
+        private Integer sampleSize = 8;
+
+        /**
+         * The duration after the latest occurrence, that a fingerprint could be evicted
+         * <p>
+         * Default is {@code 10m}
+         */
+        private Duration idleTimeout = Duration.ofMinutes(10L);
+    }
+
+
+    /**
+     * Properties for reactive exception handler
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.exceptionhandler.handler.DefaultReactiveExceptionHandler
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class ReactiveHandler implements Serializable {
+        /**
+         * Indicates whether to enable the reactive exception handler or not
+         * <p>
+         * Default is {@code true}
+         */
+        private Boolean enabled = true;
+
+        /**
+         * The view name for template engine, if no {@link com.yookue.springstarter.exceptionhandler.facade.ReactiveErrorCustomizer} specified
+         * <p>
+         * Default is {@code null}, means to use the templates of spring boot, such as {@code error/404} or {@code error/4xx}
+         */
+        private String viewName;
+
+        /**
+         * Indicates whether to publish the {@link com.yookue.springstarter.exceptionhandler.event.ReactiveExceptionHandledEvent} or not
+         * <p>
+         * Default is {@code true}
+         */
+        private Boolean publishEvent = true;
     }
 }
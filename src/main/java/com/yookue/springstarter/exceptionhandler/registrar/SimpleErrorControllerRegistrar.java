@@ -19,6 +19,7 @@ package com.yookue.springstarter.exceptionhandler.registrar;
 
 import java.lang.annotation.Annotation;
 import jakarta.annotation.Nonnull;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
@@ -28,12 +29,22 @@ import org.springframework.boot.web.servlet.error.ErrorAttributes;
 import org.springframework.boot.web.servlet.error.ErrorController;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ImportAware;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.core.annotation.AnnotationAttributes;
 import org.springframework.core.type.AnnotationMetadata;
 import org.springframework.util.Assert;
 import com.yookue.commonplexus.javaseutil.constant.AssertMessageConst;
 import com.yookue.springstarter.exceptionhandler.annotation.EnableSimpleErrorController;
+import com.yookue.springstarter.exceptionhandler.aot.ExceptionHandlerRuntimeHints;
 import com.yookue.springstarter.exceptionhandler.controller.SimpleBasicErrorController;
+import com.yookue.springstarter.exceptionhandler.event.AsyncExceptionEventPublisher;
+import com.yookue.springstarter.exceptionhandler.facade.ErrorControllerCustomizer;
+import com.yookue.springstarter.exceptionhandler.facade.ExceptionHandlerMetrics;
+import com.yookue.springstarter.exceptionhandler.support.ErrorLogLimiter;
+import com.yookue.springstarter.exceptionhandler.support.ErrorMessageCache;
+import com.yookue.springstarter.exceptionhandler.support.ErrorPageCache;
+import com.yookue.springstarter.exceptionhandler.support.ErrorStatusRegistry;
+import com.yookue.springstarter.exceptionhandler.support.StackTraceRenderer;
 
 
 /**
@@ -46,6 +57,7 @@ import com.yookue.springstarter.exceptionhandler.controller.SimpleBasicErrorCont
  */
 @AutoConfiguration(before = ErrorMvcAutoConfiguration.class)
 @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ImportRuntimeHints(value = ExceptionHandlerRuntimeHints.class)
 @SuppressWarnings({"SpringFacetCodeInspection", "SpringJavaInjectionPointsAutowiringInspection"})
 public class SimpleErrorControllerRegistrar implements ImportAware {
     private final Class<? extends Annotation> annotation = EnableSimpleErrorController.class;
@@ -61,13 +73,17 @@ public class SimpleErrorControllerRegistrar implements ImportAware {
 
     @Bean
     @ConditionalOnMissingBean
-    public ErrorController simpleBasicErrorController(@Nonnull ErrorAttributes errors, @Nonnull ServerProperties properties) {
+    public ErrorController simpleBasicErrorController(@Nonnull ErrorAttributes errors, @Nonnull ServerProperties properties, @Nonnull ObjectProvider<ErrorControllerCustomizer> customizers, @Nonnull ObjectProvider<ErrorPageCache> pageCaches,
+        @Nonnull ObjectProvider<AsyncExceptionEventPublisher> publishers, @Nonnull ObjectProvider<StackTraceRenderer> renderers, @Nonnull ObjectProvider<ExceptionHandlerMetrics> metrics,
+        @Nonnull ObjectProvider<ErrorLogLimiter> limiters, @Nonnull ObjectProvider<ErrorMessageCache> messageCaches, @Nonnull ObjectProvider<ErrorStatusRegistry> statusRegistries) {
         Assert.notNull(attributes, AssertMessageConst.NOT_NULL);
         String viewName = attributes.getString("viewName");    // $NON-NLS-1$
         boolean useLocalizedFieldName = attributes.getBoolean("useLocalizedFieldName");    // $NON-NLS-1$
         Assert.hasText(viewName, AssertMessageConst.HAS_TEXT);
-        SimpleBasicErrorController result = new SimpleBasicErrorController(errors, properties, viewName, useLocalizedFieldName);
+        SimpleBasicErrorController result = new SimpleBasicErrorController(errors, properties.getError(), viewName, useLocalizedFieldName, customizers.getIfAvailable(), pageCaches.getIfAvailable(),
+            publishers.getIfAvailable(), renderers.getIfAvailable(), metrics.getIfAvailable(), limiters.getIfAvailable(), messageCaches.getIfAvailable());
         result.setPublishEvent(attributes.getBoolean("publishEvent"));    // $NON-NLS-1$
+        statusRegistries.ifUnique(result::setStatusRegistry);
         return result;
     }
 }
@@ -19,7 +19,6 @@ package com.yookue.springstarter.exceptionhandler.resolver;
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,9 +30,7 @@ import org.apache.commons.lang3.ObjectUtils;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.beans.factory.InitializingBean;
-import org.springframework.beans.factory.annotation.Autowire;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Configurable;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.boot.autoconfigure.web.ServerProperties;
 import org.springframework.boot.autoconfigure.web.servlet.error.BasicErrorController;
 import org.springframework.http.HttpStatus;
@@ -51,14 +48,19 @@ import com.yookue.commonplexus.springutil.util.BeanFactoryWraps;
 import com.yookue.commonplexus.springutil.util.UriUtilsWraps;
 import com.yookue.commonplexus.springutil.util.WebUtilsWraps;
 import com.yookue.springstarter.exceptionhandler.facade.ErrorControllerCustomizer;
+import com.yookue.springstarter.exceptionhandler.facade.ExceptionHandlerMetrics;
 import com.yookue.springstarter.exceptionhandler.property.ExceptionHandlerProperties;
+import com.yookue.springstarter.exceptionhandler.support.ErrorContext;
+import com.yookue.springstarter.exceptionhandler.support.ErrorStatusRegistry;
 import com.yookue.springstarter.exceptionhandler.util.ErrorControllerUtils;
 import lombok.Setter;
-import lombok.extern.slf4j.Slf4j;
 
 
 /**
  * {@link org.springframework.web.servlet.HandlerExceptionResolver} for exception handler
+ * <p>
+ * The invokable interceptors and the error controller are resolved once all the singletons have been instantiated,
+ * and published together as an immutable snapshot, so the first error after startup does not scan the bean factory
  *
  * @author David Hsing
  * @see org.springframework.web.servlet.HandlerExceptionResolver
@@ -66,87 +68,66 @@ import lombok.extern.slf4j.Slf4j;
  * @see org.springframework.web.servlet.mvc.support.DefaultHandlerExceptionResolver
  * @see org.springframework.boot.autoconfigure.web.servlet.HttpEncodingAutoConfiguration
  */
-@Configurable(autowire = Autowire.BY_TYPE, dependencyCheck = true)
-@Slf4j
-@SuppressWarnings({"unused", "StringConcatenationArgumentToLogCall"})
-public abstract class AbstractFilterExceptionResolver extends AbstractHandlerExceptionResolver implements BeanFactoryAware, InitializingBean {
-    @Autowired
-    protected ServerProperties serverProperties;
+@SuppressWarnings("unused")
+public abstract class AbstractFilterExceptionResolver extends AbstractHandlerExceptionResolver implements BeanFactoryAware, InitializingBean, SmartInitializingSingleton {
+    public static final String RESOLVING_ATTRIBUTE = AbstractFilterExceptionResolver.class.getName() + ".RESOLVING";    // $NON-NLS-1$
 
-    @Autowired
-    protected ExceptionHandlerProperties handlerProperties;
+    protected final ServerProperties serverProperties;
+    protected final ExceptionHandlerProperties handlerProperties;
 
-    @Autowired(required = false)
+    @Setter
     protected ErrorControllerCustomizer errorControllerCustomizer;
 
+    @Setter
+    protected ExceptionHandlerMetrics handlerMetrics;
+
+    @Setter
+    protected ErrorStatusRegistry statusRegistry;
+
     @Setter
     protected BeanFactory beanFactory;
 
-    private BasicErrorController errorController;
-    private Map<String, HandlerInterceptor> interceptorBeans;
-    private final List<String> interceptedBeans = new ArrayList<>();
+    private volatile ResolverDependencies dependencies;
+
+    protected AbstractFilterExceptionResolver(@Nonnull ServerProperties serverProperties, @Nonnull ExceptionHandlerProperties handlerProperties) {
+        Assert.notNull(serverProperties, AssertMessageConst.NOT_NULL);
+        Assert.notNull(handlerProperties, AssertMessageConst.NOT_NULL);
+        this.serverProperties = serverProperties;
+        this.handlerProperties = handlerProperties;
+    }
 
     @Override
     public void afterPropertiesSet() {
         super.setWarnLogCategory(this.getClass().getName());
     }
 
+    @Override
+    public void afterSingletonsInstantiated() {
+        getDependencies();
+    }
+
     @Override
     protected ModelAndView doResolveException(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nullable Object handler, @Nonnull Exception cause) {
-        initInterceptorBeans();
-        boolean shouldIntercept = !CollectionUtils.isEmpty(interceptorBeans) && handler != null;
-        if (shouldIntercept) {
-            MapPlainWraps.forEach(interceptorBeans, (key, value) -> {
-                try {
-                    if (value.preHandle(request, response, handler)) {
-                        interceptedBeans.add(key);
-                    }
-                } catch (Exception ex) {
-                    if (log.isWarnEnabled()) {
-                        log.warn("Exception occurred during executing method preHandle of " + value.getClass().getName(), ex);
-                    }
-                }
-            });
-        }
-        if (WebUtilsWraps.isRestRequest(request)) {
-            ResponseEntity<?> entity = getErrorController().error(request);
-            if (shouldIntercept && !interceptedBeans.isEmpty()) {
-                MapPlainWraps.reverseForEach(interceptorBeans, (key, value) -> {
-                    try {
-                        value.postHandle(request, response, handler, null);
-                    } catch (Exception ex) {
-                        if (log.isWarnEnabled()) {
-                            log.warn("Exception occurred during executing method 'postHandle' of " + value.getClass().getName(), ex);
-                        }
-                    }
-                }, (key, value) -> interceptedBeans.contains(key));
+        request.setAttribute(RESOLVING_ATTRIBUTE, Boolean.TRUE);
+        long startTime = (handlerMetrics != null) ? System.nanoTime() : 0L;
+        boolean rest = WebUtilsWraps.isRestRequest(request);
+        FilterInterceptorChain chain = new FilterInterceptorChain((handler == null) ? null : getInterceptorBeans(), handler);
+        chain.applyPreHandle(request, response);
+        try {
+            if (rest) {
+                ResponseEntity<?> entity = getErrorController().error(request);
+                chain.applyPostHandle(request, response, null);
+                resolveRestInternal(request, response, handler, cause, entity);
+            } else {
+                ModelAndView view = getErrorController().errorHtml(request, response);
+                chain.applyPostHandle(request, response, view);
+                resolveHtmlInternal(request, response, handler, cause, view);
             }
-            resolveRestInternal(request, response, handler, cause, entity);
-        } else {
-            ModelAndView view = getErrorController().errorHtml(request, response);
-            if (shouldIntercept && !interceptedBeans.isEmpty()) {
-                MapPlainWraps.reverseForEach(interceptorBeans, (key, value) -> {
-                    try {
-                        value.postHandle(request, response, handler, view);
-                    } catch (Exception ex) {
-                        if (log.isWarnEnabled()) {
-                            log.warn("Exception occurred during executing method 'postHandle' of " + value.getClass().getName(), ex);
-                        }
-                    }
-                }, (key, value) -> interceptedBeans.contains(key));
+        } finally {
+            chain.triggerAfterCompletion(request, response);
+            if (handlerMetrics != null) {
+                handlerMetrics.recordResolving(System.nanoTime() - startTime, !rest);
             }
-            resolveHtmlInternal(request, response, handler, cause, view);
-        }
-        if (shouldIntercept && !interceptedBeans.isEmpty()) {
-            MapPlainWraps.reverseForEach(interceptorBeans, (key, value) -> {
-                try {
-                    value.afterCompletion(request, response, handler, null);
-                } catch (Exception ex) {
-                    if (log.isWarnEnabled()) {
-                        log.warn("Exception occurred during executing method 'afterCompletion' of " + value.getClass().getName(), ex);
-                    }
-                }
-            }, (key, value) -> interceptedBeans.contains(key));
         }
         return new ModelAndView();
     }
@@ -157,22 +138,39 @@ public abstract class AbstractFilterExceptionResolver extends AbstractHandlerExc
         return super.buildLogMessage(ex, request) + ", url: " + UriUtilsWraps.getRequestUrlQueryString(request);    // $NON-NLS-1$
     }
 
-    protected void initInterceptorBeans() {
-        if (interceptorBeans == null) {
-            interceptorBeans = new LinkedHashMap<>();
-            MapPlainWraps.putAll(interceptorBeans, BeanFactoryWraps.getBeansWithAnnotationAs(beanFactory, ExceptionHandlerInvokable.class, HandlerInterceptor.class));
-            List<Class<? extends HandlerInterceptor>> interceptors = handlerProperties.getExceptionResolver().getInvokableInterceptors();
-            if (!CollectionUtils.isEmpty(interceptors)) {
-                for (Class<? extends HandlerInterceptor> interceptor : interceptors) {
-                    MapPlainWraps.putAll(interceptorBeans, BeanFactoryWraps.getBeansOfType(beanFactory, interceptor));
-                }
+    /**
+     * Returns the interceptors that are allowed to be invoked by the resolver
+     * <p>
+     * The interceptors are resolved only once, the returned array must not be modified
+     *
+     * @return the interceptors that are allowed to be invoked by the resolver
+     */
+    @Nonnull
+    protected HandlerInterceptor[] getInterceptorBeans() {
+        return getDependencies().interceptorBeans();
+    }
+
+    @Nonnull
+    protected HandlerInterceptor[] initInterceptorBeans() {
+        Map<String, HandlerInterceptor> result = new LinkedHashMap<>();
+        MapPlainWraps.putAll(result, BeanFactoryWraps.getBeansWithAnnotationAs(beanFactory, ExceptionHandlerInvokable.class, HandlerInterceptor.class));
+        List<Class<? extends HandlerInterceptor>> interceptors = handlerProperties.getExceptionResolver().getInvokableInterceptors();
+        if (!CollectionUtils.isEmpty(interceptors)) {
+            for (Class<? extends HandlerInterceptor> interceptor : interceptors) {
+                MapPlainWraps.putAll(result, BeanFactoryWraps.getBeansOfType(beanFactory, interceptor));
             }
         }
+        return result.values().toArray(new HandlerInterceptor[0]);
     }
 
     @Nonnull
     protected HttpStatusCode determineErrorStatus(@Nonnull HttpServletRequest request, @Nullable HttpStatusCode status, @Nullable Throwable cause) {
-        HttpStatusCode result = ErrorControllerUtils.determineErrorStatus(request, status, cause);
+        ErrorContext context = ErrorContext.getContext(request);
+        if (context != null) {
+            // Already determined by the error controller
+            return context.getStatus();
+        }
+        HttpStatusCode result = ErrorControllerUtils.determineErrorStatus(statusRegistry, request, status, cause);
         if (errorControllerCustomizer != null) {
             result = errorControllerCustomizer.determineErrorStatus(request, result, cause);
         }
@@ -181,11 +179,22 @@ public abstract class AbstractFilterExceptionResolver extends AbstractHandlerExc
 
     @Nonnull
     protected BasicErrorController getErrorController() {
-        if (errorController == null) {
-            errorController = BeanFactoryWraps.getBean(beanFactory, BasicErrorController.class);
+        ResolverDependencies snapshot = getDependencies();
+        BasicErrorController result = snapshot.errorController();
+        if (result == null) {
+            // The controller may be registered later than the resolver, it is looked up without the lock, and published once found
+            result = initErrorController();
+            if (result != null) {
+                dependencies = new ResolverDependencies(snapshot.interceptorBeans(), result);
+            }
         }
-        Assert.notNull(errorController, AssertMessageConst.NOT_NULL);
-        return errorController;
+        Assert.notNull(result, AssertMessageConst.NOT_NULL);
+        return result;
+    }
+
+    @Nullable
+    protected BasicErrorController initErrorController() {
+        return BeanFactoryWraps.getBean(beanFactory, BasicErrorController.class);
     }
 
     @Nonnull
@@ -196,4 +205,29 @@ public abstract class AbstractFilterExceptionResolver extends AbstractHandlerExc
     protected abstract void resolveHtmlInternal(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nullable Object handler, @Nonnull Exception cause, @Nullable ModelAndView view);
 
     protected abstract void resolveRestInternal(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nullable Object handler, @Nonnull Exception cause, @Nullable ResponseEntity<?> entity);
+
+    /**
+     * Returns the resolved dependencies, resolves them under the lock if the resolver is not initialized as a singleton
+     * <p>
+     * The snapshot is published even without the error controller, so the lock is taken only once
+     */
+    @Nonnull
+    private ResolverDependencies getDependencies() {
+        ResolverDependencies result = dependencies;
+        if (result != null) {
+            return result;
+        }
+        synchronized (this) {
+            result = dependencies;
+            if (result == null) {
+                result = new ResolverDependencies(initInterceptorBeans(), initErrorController());
+                dependencies = result;
+            }
+        }
+        return result;
+    }
+
+
+    private record ResolverDependencies(@Nonnull HandlerInterceptor[] interceptorBeans, @Nullable BasicErrorController errorController) {
+    }
 }
@@ -17,18 +17,41 @@
 package com.yookue.springstarter.exceptionhandler.resolver;
 
 
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentLruCache;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.View;
+import org.springframework.web.servlet.ViewResolver;
+import com.yookue.commonplexus.javaseutil.constant.AssertMessageConst;
+import com.yookue.commonplexus.springutil.constant.ErrorAttributeConst;
+import com.yookue.commonplexus.springutil.constant.ResponseBodyConst;
 import com.yookue.commonplexus.springutil.util.JsonParserWraps;
 import com.yookue.commonplexus.springutil.util.WebUtilsWraps;
+import com.yookue.springstarter.exceptionhandler.property.ExceptionHandlerProperties;
+import com.yookue.springstarter.exceptionhandler.support.ErrorPageCache;
+import com.yookue.springstarter.exceptionhandler.support.ErrorRenderGuard;
+import com.yookue.springstarter.exceptionhandler.support.JsonEnvelopeWriter;
+import com.yookue.springstarter.exceptionhandler.support.JsonErrorWriter;
 import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.SneakyThrows;
 
 
@@ -38,16 +61,214 @@ import lombok.SneakyThrows;
  * @author David Hsing
  */
 @Getter(value = AccessLevel.PROTECTED)
+@SuppressWarnings("unused")
 public abstract class DefaultFilterExceptionResolver extends AbstractFilterExceptionResolver {
+    @Setter
+    protected ErrorPageCache errorPageCache;
+
+    @Setter
+    protected ErrorRenderGuard renderGuard;
+
+    private ConcurrentLruCache<ViewCacheKey, View> viewCache;
+    private JsonErrorWriter jsonErrorWriter;
+    private JsonEnvelopeWriter jsonEnvelopeWriter;
+    private List<JsonErrorWriter> binaryErrorWriters = List.of();
+
+    protected DefaultFilterExceptionResolver(@Nonnull ServerProperties serverProperties, @Nonnull ExceptionHandlerProperties handlerProperties) {
+        super(serverProperties, handlerProperties);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        ExceptionHandlerProperties.ExceptionResolver props = super.handlerProperties.getExceptionResolver();
+        if (BooleanUtils.isTrue(props.getViewCache()) && props.getViewCacheLimit() != null && props.getViewCacheLimit() > 0) {
+            viewCache = new ConcurrentLruCache<>(props.getViewCacheLimit(), this::resolveViewInternal);
+        }
+        jsonErrorWriter = JsonErrorWriter.of(super.beanFactory);
+        if (BooleanUtils.isTrue(props.getEnvelopeCache()) && props.getEnvelopeCacheLimit() != null) {
+            jsonEnvelopeWriter = JsonEnvelopeWriter.of(super.beanFactory, props.getEnvelopeCacheLimit(), List.of(ResponseBodyConst.REST_STATUS, ErrorAttributeConst.STATUS, ErrorAttributeConst.ERROR));
+        }
+        if (BooleanUtils.isNotFalse(props.getBinaryBodies())) {
+            binaryErrorWriters = List.copyOf(JsonErrorWriter.ofBinary(super.beanFactory));
+        }
+    }
+
     @Override
     @SneakyThrows
     protected void resolveRestInternal(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nullable Object handler, @Nonnull Exception cause, @Nullable ResponseEntity<?> entity) {
         HttpStatusCode status = determineErrorStatus(request, (entity == null ? null : entity.getStatusCode()), cause);
-        if (entity != null) {
-            String text = JsonParserWraps.toJsonString(entity.getBody(), super.beanFactory);
-            if (StringUtils.isNotEmpty(text)) {
-                WebUtilsWraps.writeResponseQuietly(response, text, MediaType.APPLICATION_JSON, getServletEncoding(), status);
+        if (entity == null || entity.getBody() == null) {
+            return;
+        }
+        if (!binaryErrorWriters.isEmpty()) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            JsonErrorWriter binaryWriter = negotiateBinaryWriter(request);
+            if (binaryWriter != null) {
+                try {
+                    binaryWriter.write(response, entity.getBody(), getServletEncoding(), status);
+                } catch (IOException ignored) {
+                }
+                return;
             }
         }
+        if (jsonEnvelopeWriter != null && entity.getBody() instanceof Map<?, ?> body) {
+            try {
+                if (jsonEnvelopeWriter.write(response, body, getServletEncoding(), status)) {
+                    return;
+                }
+            } catch (IOException ignored) {
+                return;
+            }
+        }
+        if (jsonErrorWriter != null) {
+            try {
+                jsonErrorWriter.write(response, entity.getBody(), getServletEncoding(), status);
+            } catch (IOException ignored) {
+            }
+            return;
+        }
+        String text = JsonParserWraps.toJsonString(entity.getBody(), super.beanFactory);
+        if (StringUtils.isNotEmpty(text)) {
+            WebUtilsWraps.writeResponseQuietly(response, text, MediaType.APPLICATION_JSON, getServletEncoding(), status);
+        }
+    }
+
+    /**
+     * Returns the writer of the binary dataformat that the request accepts most, or {@code null} if json is preferred
+     * <p>
+     * The accept header is parsed only if it mentions a binary dataformat, the types of the same quality are preferred by their order
+     *
+     * @param request the servlet request
+     *
+     * @return the writer of the binary dataformat that the request accepts most, or {@code null} if json is preferred
+     */
+    @Nullable
+    protected JsonErrorWriter negotiateBinaryWriter(@Nonnull HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (StringUtils.isBlank(accept) || !StringUtils.containsAnyIgnoreCase(accept, "cbor", "smile")) {    // $NON-NLS-1$ // $NON-NLS-2$
+            return null;
+        }
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException ignored) {
+            return null;
+        }
+        JsonErrorWriter result = null;
+        double quality = 0.0D;
+        for (MediaType mediaType : mediaTypes) {
+            double value = mediaType.getQualityValue();
+            if (value <= quality) {
+                continue;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                result = null;
+                quality = value;
+                continue;
+            }
+            for (JsonErrorWriter writer : binaryErrorWriters) {
+                if (writer.getMediaType().isCompatibleWith(mediaType)) {
+                    result = writer;
+                    quality = value;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the view resolver of the template engine
+     *
+     * @return the view resolver of the template engine
+     */
+    protected abstract ViewResolver getViewResolver();
+
+    /**
+     * Returns the resolved view of the given view name and locale
+     * <p>
+     * The resolved views are cached if {@code spring.exception-handler.exception-resolver.view-cache} is {@code true}
+     *
+     * @param viewName the view name to resolve
+     * @param locale the locale to resolve
+     *
+     * @return the resolved view of the given view name and locale
+     */
+    @Nonnull
+    protected View resolveErrorView(@Nonnull String viewName, @Nonnull Locale locale) {
+        ViewCacheKey key = new ViewCacheKey(viewName, locale);
+        return (viewCache != null) ? viewCache.get(key) : resolveViewInternal(key);
+    }
+
+    /**
+     * Renders the resolved view to the response
+     * <p>
+     * The rendered page will be cached as bytes if the error controller marks the request as a static page.
+     * If a render guard presents, the concurrent renders are limited, and a minimal built-in page is written when the render fails or the breaker is open
+     *
+     * @param resolvedView the resolved view to render
+     * @param view the model and view that prepared by the error controller
+     * @param request the servlet request
+     * @param response the servlet response
+     * @param status the http status that determined
+     *
+     * @see com.yookue.springstarter.exceptionhandler.support.ErrorPageCache
+     * @see com.yookue.springstarter.exceptionhandler.support.ErrorRenderGuard
+     */
+    protected void renderErrorView(@Nonnull View resolvedView, @Nonnull ModelAndView view, @Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nonnull HttpStatusCode status) throws Exception {
+        long startTime = (handlerMetrics != null) ? System.nanoTime() : 0L;
+        try {
+            if (renderGuard != null) {
+                renderGuard.render(() -> renderViewInternal(resolvedView, view, request, response, status), response, status.value(), getServletEncoding());
+            } else {
+                renderViewInternal(resolvedView, view, request, response, status);
+            }
+        } finally {
+            if (handlerMetrics != null) {
+                handlerMetrics.recordRendering(getTemplateEngine(), System.nanoTime() - startTime);
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the template engine, for tagging the metrics
+     *
+     * @return the name of the template engine
+     */
+    @Nonnull
+    protected String getTemplateEngine() {
+        return StringUtils.uncapitalize(StringUtils.removeEnd(getViewResolver().getClass().getSimpleName(), "ViewResolver"));    // $NON-NLS-1$
+    }
+
+    /**
+     * Removes all the resolved views from the cache
+     */
+    public void clearViewCache() {
+        if (viewCache != null) {
+            viewCache.clear();
+        }
+    }
+
+    private void renderViewInternal(@Nonnull View resolvedView, @Nonnull ModelAndView view, @Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nonnull HttpStatusCode status) throws Exception {
+        if (errorPageCache != null && StringUtils.isNotBlank(view.getViewName()) && ErrorPageCache.isStaticPage(request)) {
+            ErrorPageCache.ErrorPage page = errorPageCache.renderPage(resolvedView, view.getModel(), request, response, status.value(), LocaleContextHolder.getLocale(), view.getViewName());
+            if (page != null) {
+                errorPageCache.writePage(response, page, status.value());
+                return;
+            }
+        }
+        resolvedView.render(view.getModel(), request, response);
+    }
+
+    @Nonnull
+    @SneakyThrows
+    private View resolveViewInternal(@Nonnull ViewCacheKey key) {
+        View result = getViewResolver().resolveViewName(key.viewName(), key.locale());
+        Assert.notNull(result, AssertMessageConst.NOT_NULL);
+        return result;
+    }
+
+    private record ViewCacheKey(@Nonnull String viewName, @Nonnull Locale locale) {
     }
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.resolver;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Interceptor chain for {@link com.yookue.springstarter.exceptionhandler.resolver.AbstractFilterExceptionResolver}
+ * <p>
+ * An instance is created per request, and the interceptors array is shared between requests but never modified.
+ * Unlike {@link org.springframework.web.servlet.HandlerExecutionChain}, all the interceptors are applied during error handling, even if a previous one returns {@code false} or fails.
+ * The interceptors that have been applied successfully are tracked per request, and only they get the postHandle and afterCompletion callbacks
+ *
+ * @author David Hsing
+ * @see org.springframework.web.servlet.HandlerExecutionChain
+ */
+@Getter
+@Slf4j
+@SuppressWarnings({"unused", "StringConcatenationArgumentToLogCall"})
+public class FilterInterceptorChain {
+    @Getter(value = AccessLevel.NONE)
+    private final HandlerInterceptor[] interceptors;
+    private final Object handler;
+
+    @Getter(value = AccessLevel.NONE)
+    private final boolean[] appliedFlags;
+
+    private int appliedCount;
+
+    public FilterInterceptorChain(@Nullable HandlerInterceptor[] interceptors, @Nullable Object handler) {
+        this.interceptors = (interceptors == null || handler == null) ? new HandlerInterceptor[0] : interceptors;
+        this.handler = handler;
+        this.appliedFlags = new boolean[this.interceptors.length];
+    }
+
+    /**
+     * Applies the preHandle methods of all the interceptors, the ones that return {@code false} or fail do not stop the others
+     *
+     * @param request the servlet request
+     * @param response the servlet response
+     *
+     * @return whether all the interceptors are applied or not
+     */
+    public boolean applyPreHandle(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response) {
+        for (int i = 0; i < interceptors.length; i++) {
+            HandlerInterceptor interceptor = interceptors[i];
+            try {
+                if (interceptor.preHandle(request, response, handler)) {
+                    appliedFlags[i] = true;
+                    appliedCount++;
+                }
+            } catch (Exception ex) {
+                if (log.isWarnEnabled()) {
+                    log.warn("Exception occurred during executing method 'preHandle' of " + interceptor.getClass().getName(), ex);
+                }
+            }
+        }
+        return appliedCount == interceptors.length;
+    }
+
+    /**
+     * Applies the postHandle methods of the applied interceptors, in reverse order
+     *
+     * @param request the servlet request
+     * @param response the servlet response
+     * @param view the model and view of the error, maybe {@code null} if a rest request
+     */
+    public void applyPostHandle(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nullable ModelAndView view) {
+        for (int i = interceptors.length - 1; appliedCount > 0 && i >= 0; i--) {
+            if (!appliedFlags[i]) {
+                continue;
+            }
+            HandlerInterceptor interceptor = interceptors[i];
+            try {
+                interceptor.postHandle(request, response, handler, view);
+            } catch (Exception ex) {
+                if (log.isWarnEnabled()) {
+                    log.warn("Exception occurred during executing method 'postHandle' of " + interceptor.getClass().getName(), ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Triggers the afterCompletion methods of the applied interceptors, in reverse order
+     *
+     * @param request the servlet request
+     * @param response the servlet response
+     */
+    public void triggerAfterCompletion(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response) {
+        for (int i = interceptors.length - 1; appliedCount > 0 && i >= 0; i--) {
+            if (!appliedFlags[i]) {
+                continue;
+            }
+            HandlerInterceptor interceptor = interceptors[i];
+            try {
+                interceptor.afterCompletion(request, response, handler, null);
+            } catch (Exception ex) {
+                if (log.isWarnEnabled()) {
+                    log.warn("Exception occurred during executing method 'afterCompletion' of " + interceptor.getClass().getName(), ex);
+                }
+            }
+        }
+    }
+}
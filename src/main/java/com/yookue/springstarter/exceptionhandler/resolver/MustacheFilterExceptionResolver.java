@@ -22,6 +22,7 @@ import jakarta.annotation.Nullable;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
 import org.springframework.boot.web.servlet.view.MustacheView;
 import org.springframework.boot.web.servlet.view.MustacheViewResolver;
 import org.springframework.context.i18n.LocaleContextHolder;
@@ -29,9 +30,9 @@ import org.springframework.http.HttpStatusCode;
 import org.springframework.util.Assert;
 import org.springframework.web.servlet.ModelAndView;
 import com.yookue.commonplexus.javaseutil.constant.AssertMessageConst;
+import com.yookue.springstarter.exceptionhandler.property.ExceptionHandlerProperties;
 import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 
 
@@ -43,20 +44,24 @@ import lombok.SneakyThrows;
  * @see org.springframework.boot.web.servlet.view.MustacheView
  * @see org.springframework.boot.web.servlet.view.MustacheViewResolver
  */
-@RequiredArgsConstructor
 @Getter(value = AccessLevel.PROTECTED)
 public class MustacheFilterExceptionResolver extends DefaultFilterExceptionResolver {
     private final MustacheViewResolver viewResolver;
 
+    public MustacheFilterExceptionResolver(@Nonnull MustacheViewResolver viewResolver, @Nonnull ServerProperties serverProperties, @Nonnull ExceptionHandlerProperties handlerProperties) {
+        super(serverProperties, handlerProperties);
+        this.viewResolver = viewResolver;
+    }
+
     @Override
     @SneakyThrows
     protected void resolveHtmlInternal(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nullable Object handler, @Nonnull Exception cause, @Nullable ModelAndView view) {
         HttpStatusCode status = super.determineErrorStatus(request, (view == null ? null : view.getStatus()), cause);
         response.setStatus(status.value());
         if (view != null && StringUtils.isNotBlank(view.getViewName())) {
-            MustacheView resolvedView = (MustacheView) viewResolver.resolveViewName(view.getViewName(), LocaleContextHolder.getLocale());
+            MustacheView resolvedView = (MustacheView) super.resolveErrorView(view.getViewName(), LocaleContextHolder.getLocale());
             Assert.notNull(resolvedView, AssertMessageConst.NOT_NULL);
-            resolvedView.render(view.getModel(), request, response);
+            super.renderErrorView(resolvedView, view, request, response, status);
         }
     }
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.util.Map;
+import java.util.function.Function;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.web.error.ErrorAttributeOptions;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.util.Assert;
+import com.yookue.commonplexus.javaseutil.constant.AssertMessageConst;
+import com.yookue.commonplexus.springutil.util.WebUtilsWraps;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+
+/**
+ * Context of an error that is being handled in a request
+ * <p>
+ * The cause, root cause, status and options are determined once by the error controller, and the error attributes are computed at most once per options.
+ * The context is stored as a request attribute, so that the customizer and the resolvers could share it
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.controller.AbstractBasicErrorController
+ * @see com.yookue.springstarter.exceptionhandler.facade.ErrorControllerCustomizer
+ */
+@Getter
+@SuppressWarnings("unused")
+public class ErrorContext {
+    public static final String CONTEXT_ATTRIBUTE = ErrorContext.class.getName() + ".CONTEXT";    // $NON-NLS-1$
+
+    private final HttpServletRequest request;
+    private final Throwable cause;
+    private final Throwable rootCause;
+    private final HttpStatusCode status;
+    private final ErrorAttributeOptions options;
+    private final boolean html;
+
+    @Getter(value = AccessLevel.NONE)
+    private final Function<ErrorAttributeOptions, Map<String, Object>> attributesLoader;
+
+    @Getter(value = AccessLevel.NONE)
+    private Map<String, Object> attributes;
+
+    /**
+     * Constructs a new {@link com.yookue.springstarter.exceptionhandler.support.ErrorContext} instance
+     *
+     * @param request the servlet request
+     * @param cause the exception occurred, maybe {@code null} if http 404
+     * @param status the http status that determined
+     * @param options the error attribute options of the request
+     * @param html indicates is a html request if true, otherwise is an async request (probably ajax)
+     * @param attributesLoader the function to compute the error attributes with the given options
+     */
+    public ErrorContext(@Nonnull HttpServletRequest request, @Nullable Throwable cause, @Nonnull HttpStatusCode status, @Nonnull ErrorAttributeOptions options, boolean html, @Nonnull Function<ErrorAttributeOptions, Map<String, Object>> attributesLoader) {
+        Assert.notNull(status, AssertMessageConst.NOT_NULL);
+        Assert.notNull(attributesLoader, AssertMessageConst.NOT_NULL);
+        this.request = request;
+        this.cause = cause;
+        this.rootCause = (cause == null) ? null : NestedExceptionUtils.getMostSpecificCause(cause);
+        this.status = status;
+        this.options = options;
+        this.html = html;
+        this.attributesLoader = attributesLoader;
+    }
+
+    /**
+     * Returns the error attributes with the options of this context
+     * <p>
+     * The attributes are computed on the first call only, callers that modify the attributes should make a copy
+     *
+     * @return the error attributes with the options of this context
+     */
+    @Nonnull
+    public Map<String, Object> getAttributes() {
+        if (attributes == null) {
+            attributes = attributesLoader.apply(options);
+        }
+        return attributes;
+    }
+
+    /**
+     * Returns the error attributes with the given options
+     *
+     * @param options the error attribute options
+     *
+     * @return the error attributes with the given options
+     */
+    @Nonnull
+    public Map<String, Object> getAttributes(@Nonnull ErrorAttributeOptions options) {
+        if (this.options.getIncludes().equals(options.getIncludes())) {
+            return getAttributes();
+        }
+        return attributesLoader.apply(options);
+    }
+
+    /**
+     * Stores this context into the request
+     */
+    public void bindRequest() {
+        request.setAttribute(CONTEXT_ATTRIBUTE, this);
+    }
+
+    /**
+     * Returns the context of the given request
+     *
+     * @param request the servlet request
+     *
+     * @return the context of the given request, or {@code null} if the error controller has not been invoked
+     */
+    @Nullable
+    public static ErrorContext getContext(@Nonnull HttpServletRequest request) {
+        return WebUtilsWraps.getRequestAttributeAs(request, CONTEXT_ATTRIBUTE, ErrorContext.class);
+    }
+}
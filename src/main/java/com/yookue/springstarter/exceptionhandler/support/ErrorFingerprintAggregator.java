@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.event.SmartApplicationListener;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.http.HttpStatusCode;
+import com.yookue.springstarter.exceptionhandler.event.ReactiveExceptionHandledEvent;
+import com.yookue.springstarter.exceptionhandler.event.ServletExceptionHandledEvent;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+
+/**
+ * Aggregator of the handled errors in memory, keyed by fingerprint
+ * <p>
+ * The fingerprint is a hash of the root cause class, the top frames of the root cause, the status and the path pattern.
+ * Each fingerprint owns a striped counter, a ring of per-second counters for the rate of the last minute, and a ring buffer of the latest samples,
+ * so the hot path is lock-free and the memory is bounded by {@code maxFingerprints} and {@code sampleSize}.
+ * The entries whose hashes collide are told apart by the root cause class, the top frames, the status and the path pattern, and probe the next keys.
+ * The entries that have not been seen for {@code idleTimeout} are evicted when the aggregator is full, at most once per second, or when the snapshots are taken.
+ * When the aggregator is still full, the new fingerprints share an overflow entry
+ * <p>
+ * The path pattern is the one that the event resolved when it was published, so the errors of the container error dispatch keep the pattern of the failed handler,
+ * and the listener could be invoked on any thread
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.endpoint.ErrorFingerprintEndpoint
+ */
+@Getter
+@SuppressWarnings("unused")
+public class ErrorFingerprintAggregator implements SmartApplicationListener {
+    private static final String ANY_PATTERN = "*";    // $NON-NLS-1$
+    private static final int RATE_SECONDS = 60;
+    private static final int MAX_MESSAGE_LENGTH = 256;
+    private static final long OVERFLOW_FINGERPRINT = 0L;
+    private static final int MAX_PROBES = 8;
+    private static final long SWEEP_MILLIS = 1000L;
+    private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(10L);
+
+    private final int topFrames;
+    private final int maxFingerprints;
+    private final int sampleSize;
+    private final String errorPath;
+    private final Duration idleTimeout;
+
+    @Getter(value = AccessLevel.NONE)
+    private final Map<Long, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+
+    @Getter(value = AccessLevel.NONE)
+    private final AtomicLong nextSweep = new AtomicLong();
+
+    @Getter(value = AccessLevel.NONE)
+    private volatile Fingerprint overflow;
+
+    /**
+     * Constructs a new {@link com.yookue.springstarter.exceptionhandler.support.ErrorFingerprintAggregator} instance
+     *
+     * @param topFrames the number of the top frames of the root cause in the fingerprint
+     * @param maxFingerprints the maximum number of the fingerprints
+     * @param sampleSize the number of the latest samples per fingerprint
+     * @param errorPath the path of the error controller, which is never taken as a path pattern
+     */
+    public ErrorFingerprintAggregator(int topFrames, int maxFingerprints, int sampleSize, @Nullable String errorPath) {
+        this(topFrames, maxFingerprints, sampleSize, errorPath, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * Constructs a new {@link com.yookue.springstarter.exceptionhandler.support.ErrorFingerprintAggregator} instance
+     *
+     * @param topFrames the number of the top frames of the root cause in the fingerprint
+     * @param maxFingerprints the maximum number of the fingerprints
+     * @param sampleSize the number of the latest samples per fingerprint
+     * @param errorPath the path of the error controller, which is never taken as a path pattern
+     * @param idleTimeout the duration after the latest occurrence, that a fingerprint could be evicted
+     */
+    public ErrorFingerprintAggregator(int topFrames, int maxFingerprints, int sampleSize, @Nullable String errorPath, @Nonnull Duration idleTimeout) {
+        this.topFrames = Math.max(topFrames, 0);
+        this.maxFingerprints = Math.max(maxFingerprints, 1);
+        this.sampleSize = Math.max(sampleSize, 0);
+        this.errorPath = errorPath;
+        this.idleTimeout = (idleTimeout.isNegative() || idleTimeout.isZero()) ? DEFAULT_IDLE_TIMEOUT : idleTimeout;
+        this.overflow = new Fingerprint(null, null, 0, ANY_PATTERN);
+    }
+
+    @Override
+    public boolean supportsEventType(@Nonnull Class<? extends ApplicationEvent> eventType) {
+        return ServletExceptionHandledEvent.class.isAssignableFrom(eventType) || ReactiveExceptionHandledEvent.class.isAssignableFrom(eventType);
+    }
+
+    @Override
+    public void onApplicationEvent(@Nonnull ApplicationEvent event) {
+        if (event instanceof ServletExceptionHandledEvent instance && instance.getHttpStatus() != null) {
+            record(instance.getException(), instance.getHttpStatus(), instance.getPathPattern());
+        } else if (event instanceof ReactiveExceptionHandledEvent instance) {
+            record(instance.getException(), instance.getHttpStatus(), instance.getPathPattern());
+        }
+    }
+
+    /**
+     * Records an error
+     *
+     * @param cause the exception occurred, maybe {@code null} if http 404
+     * @param status the http status that determined
+     * @param pattern the path pattern of the handler, maybe {@code null} if not mapped
+     */
+    public void record(@Nullable Throwable cause, @Nonnull HttpStatusCode status, @Nullable String pattern) {
+        Throwable rootCause = (cause == null) ? null : NestedExceptionUtils.getMostSpecificCause(cause);
+        String path = (StringUtils.isBlank(pattern) || StringUtils.equals(pattern, errorPath)) ? ANY_PATTERN : pattern;
+        StackTraceElement[] frames = (rootCause == null || topFrames == 0) ? null : rootCause.getStackTrace();
+        long now = System.currentTimeMillis(), key = fingerprint(rootCause, frames, status.value(), path);
+        for (int i = 0; i < MAX_PROBES; i++) {
+            Fingerprint fingerprint = fingerprints.get(key);
+            if (fingerprint == null) {
+                if (fingerprints.size() >= maxFingerprints && !evictIdle(now)) {
+                    break;
+                }
+                fingerprint = fingerprints.computeIfAbsent(key, element -> new Fingerprint(rootCause, frames, status.value(), path));
+            }
+            if (fingerprint.matches(rootCause, frames, status.value(), path)) {
+                fingerprint.record(rootCause, now);
+                return;
+            }
+            // Probes the next key on a hash collision
+            key = (key + 1L == OVERFLOW_FINGERPRINT) ? 1L : key + 1L;
+        }
+        overflow.record(rootCause, now);
+    }
+
+    /**
+     * Returns the snapshots of the top fingerprints, ordered by the rate of the last minute, then the total count
+     *
+     * @param limit the maximum number of the snapshots
+     *
+     * @return the snapshots of the top fingerprints
+     */
+    @Nonnull
+    public List<Snapshot> getTopFingerprints(int limit) {
+        long now = System.currentTimeMillis();
+        removeIdle(now);
+        List<Snapshot> result = new ArrayList<>(fingerprints.size() + 1);
+        fingerprints.forEach((key, value) -> result.add(value.snapshot(key, now)));
+        Fingerprint entry = overflow;
+        if (entry.total.sum() > 0L) {
+            result.add(entry.snapshot(OVERFLOW_FINGERPRINT, now));
+        }
+        result.sort(Comparator.comparingLong(Snapshot::lastMinute).thenComparingLong(Snapshot::total).reversed());
+        return (limit > 0 && result.size() > limit) ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    /**
+     * Removes all the fingerprints
+     */
+    public void clear() {
+        fingerprints.clear();
+        overflow = new Fingerprint(null, null, 0, ANY_PATTERN);
+    }
+
+    public int size() {
+        return fingerprints.size();
+    }
+
+    private boolean evictIdle(long now) {
+        long next = nextSweep.get();
+        if (now >= next && nextSweep.compareAndSet(next, now + SWEEP_MILLIS)) {
+            removeIdle(now);
+        }
+        return fingerprints.size() < maxFingerprints;
+    }
+
+    private void removeIdle(long now) {
+        long idleMillis = idleTimeout.toMillis();
+        fingerprints.values().removeIf(element -> now - element.lastSeen >= idleMillis);
+    }
+
+    private long fingerprint(@Nullable Throwable rootCause, @Nullable StackTraceElement[] frames, int status, @Nonnull String pattern) {
+        long result = 17L;
+        result = 31L * result + ((rootCause == null) ? 0 : rootCause.getClass().getName().hashCode());
+        if (frames != null) {
+            for (int i = 0; i < Math.min(frames.length, topFrames); i++) {
+                result = 31L * result + Objects.hashCode(frames[i].getClassName());
+                result = 31L * result + Objects.hashCode(frames[i].getMethodName());
+                result = 31L * result + frames[i].getLineNumber();
+            }
+        }
+        result = 31L * result + status;
+        result = 31L * result + pattern.hashCode();
+        // Reserves the zero for the overflow entry
+        return (result == OVERFLOW_FINGERPRINT) ? 1L : result;
+    }
+
+
+    /**
+     * Snapshot of a fingerprint
+     *
+     * @param fingerprint the hash of the fingerprint, {@code 0} means the overflow entry
+     * @param exception the class name of the root cause
+     * @param frames the top frames of the root cause
+     * @param status the http status value
+     * @param pattern the path pattern of the handler
+     * @param total the total count since started
+     * @param lastMinute the count of the last minute
+     * @param perSecond the average rate of the last minute
+     * @param lastSeen the time of the latest occurrence
+     * @param samples the latest samples
+     */
+    public record Snapshot(long fingerprint, @Nullable String exception, @Nonnull List<String> frames, int status, @Nonnull String pattern, long total, long lastMinute, double perSecond, @Nullable Instant lastSeen, @Nonnull List<Sample> samples) {
+    }
+
+
+    /**
+     * Sample of an occurrence
+     *
+     * @param timestamp the time of the occurrence
+     * @param message the message of the root cause, truncated
+     */
+    public record Sample(@Nonnull Instant timestamp, @Nullable String message) {
+    }
+
+
+    /**
+     * Counters and samples of a fingerprint
+     *
+     * @author David Hsing
+     */
+    private class Fingerprint {
+        private final String exception;
+        private final StackTraceElement[] elements;
+        private final List<String> frames;
+        private final int status;
+        private final String pattern;
+        private final LongAdder total = new LongAdder();
+        private final AtomicLongArray secondCounts = new AtomicLongArray(RATE_SECONDS);
+        private final AtomicLongArray secondStamps = new AtomicLongArray(RATE_SECONDS);
+        private final AtomicReferenceArray<Sample> samples = new AtomicReferenceArray<>(Math.max(sampleSize, 1));
+        private final AtomicLong sampleCursor = new AtomicLong();
+        private volatile long lastSeen;
+
+        private Fingerprint(@Nullable Throwable rootCause, @Nullable StackTraceElement[] elements, int status, @Nonnull String pattern) {
+            this.exception = (rootCause == null) ? null : rootCause.getClass().getName();
+            this.elements = (elements == null) ? new StackTraceElement[0] : Arrays.copyOf(elements, Math.min(elements.length, topFrames));
+            List<String> list = new ArrayList<>(this.elements.length);
+            for (StackTraceElement element : this.elements) {
+                list.add(element.toString());
+            }
+            this.frames = List.copyOf(list);
+            this.status = status;
+            this.pattern = pattern;
+            this.lastSeen = System.currentTimeMillis();
+        }
+
+        private boolean matches(@Nullable Throwable rootCause, @Nullable StackTraceElement[] stack, int status, @Nonnull String pattern) {
+            if (this.status != status || !StringUtils.equals(this.pattern, pattern) || !StringUtils.equals(exception, (rootCause == null) ? null : rootCause.getClass().getName())) {
+                return false;
+            }
+            int count = (stack == null) ? 0 : Math.min(stack.length, topFrames);
+            if (count != elements.length) {
+                return false;
+            }
+            for (int i = 0; i < count; i++) {
+                if (elements[i].getLineNumber() != stack[i].getLineNumber() || !StringUtils.equals(elements[i].getClassName(), stack[i].getClassName()) || !StringUtils.equals(elements[i].getMethodName(), stack[i].getMethodName())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void record(@Nullable Throwable rootCause, long now) {
+            total.increment();
+            long second = TimeUnit.MILLISECONDS.toSeconds(now);
+            int index = (int) (second % RATE_SECONDS);
+            long stamp = secondStamps.get(index);
+            if (stamp != second && secondStamps.compareAndSet(index, stamp, second)) {
+                // A few increments of the same second may be lost under contention, which is acceptable for a rate
+                secondCounts.set(index, 0L);
+            }
+            secondCounts.incrementAndGet(index);
+            lastSeen = now;
+            if (sampleSize > 0) {
+                String message = (rootCause == null) ? null : StringUtils.abbreviate(rootCause.getMessage(), MAX_MESSAGE_LENGTH);
+                samples.set((int) (sampleCursor.getAndIncrement() % sampleSize), new Sample(Instant.ofEpochMilli(now), message));
+            }
+        }
+
+        @Nonnull
+        private Snapshot snapshot(long fingerprint, long now) {
+            long second = TimeUnit.MILLISECONDS.toSeconds(now), lastMinute = 0L;
+            for (int i = 0; i < RATE_SECONDS; i++) {
+                if (second - secondStamps.get(i) < RATE_SECONDS) {
+                    lastMinute += secondCounts.get(i);
+                }
+            }
+            List<Sample> list = new ArrayList<>(sampleSize);
+            for (int i = 0; i < sampleSize; i++) {
+                Sample sample = samples.get(i);
+                if (sample != null) {
+                    list.add(sample);
+                }
+            }
+            list.sort(Comparator.comparing(Sample::timestamp).reversed());
+            long seen = lastSeen;
+            return new Snapshot(fingerprint, exception, frames, status, pattern, total.sum(), lastMinute, (double) lastMinute / RATE_SECONDS, (seen == 0L) ? null : Instant.ofEpochMilli(seen), list);
+        }
+    }
+}
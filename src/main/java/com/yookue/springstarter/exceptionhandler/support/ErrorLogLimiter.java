@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.http.HttpStatus;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Limiter of the error logs, keyed by method, path pattern and status
+ * <p>
+ * Each key owns a lock-free token bucket, the occurrences beyond the rate are suppressed, and reported by a summary line per interval from a timer thread.
+ * The requests without a matched pattern, such as http 404, are collapsed into a single key, so a path scan costs one key only.
+ * The buckets that have been idle for a whole interval are evicted by the timer, and when the number of keys exceeds {@code maxKeys}, the new keys share an overflow bucket.
+ * The timer thread is started when the bean is initialized, and stopped when the bean is destroyed
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.controller.AbstractBasicErrorController
+ */
+@Getter
+@Slf4j
+@SuppressWarnings("unused")
+public class ErrorLogLimiter implements InitializingBean, DisposableBean {
+    private static final String ANY_PATH = "*";    // $NON-NLS-1$
+    private static final String THREAD_NAME = "error-log-summary";    // $NON-NLS-1$
+    private static final LogKey OVERFLOW_KEY = new LogKey("*", "*", 0);    // $NON-NLS-1$ // $NON-NLS-2$
+
+    private final double permitsPerSecond;
+    private final int burstSize;
+    private final Duration summaryInterval;
+    private final int maxKeys;
+
+    @Getter(value = AccessLevel.NONE)
+    private final long emissionNanos;
+
+    @Getter(value = AccessLevel.NONE)
+    private final long intervalNanos;
+
+    @Getter(value = AccessLevel.NONE)
+    private final Map<LogKey, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    @Getter(value = AccessLevel.NONE)
+    private ScheduledExecutorService summaryExecutor;
+
+    /**
+     * Constructs a new {@link com.yookue.springstarter.exceptionhandler.support.ErrorLogLimiter} instance
+     *
+     * @param permitsPerSecond the steady rate of logs per key
+     * @param burstSize the maximum number of logs per key in a burst
+     * @param summaryInterval the interval of the summary lines of the suppressed logs, and the idle time before a bucket is evicted
+     * @param maxKeys the maximum number of keys
+     */
+    public ErrorLogLimiter(double permitsPerSecond, int burstSize, @Nonnull Duration summaryInterval, int maxKeys) {
+        this.permitsPerSecond = (permitsPerSecond > 0.0D) ? permitsPerSecond : 1.0D;
+        this.burstSize = Math.max(burstSize, 1);
+        this.summaryInterval = summaryInterval;
+        this.maxKeys = maxKeys;
+        this.emissionNanos = (long) (1_000_000_000.0D / this.permitsPerSecond);
+        this.intervalNanos = Math.max(summaryInterval.toNanos(), TimeUnit.MILLISECONDS.toNanos(100L));
+    }
+
+    @Override
+    public synchronized void afterPropertiesSet() {
+        if (summaryExecutor != null) {
+            return;
+        }
+        summaryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        summaryExecutor.scheduleWithFixedDelay(this::flush, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns whether the error log of the given method, path pattern and status is allowed or not
+     *
+     * @param method the http method of the request
+     * @param pattern the best matching pattern of the request, {@code null} if no handler matched
+     * @param status the http status value
+     *
+     * @return whether the error log of the given method, path pattern and status is allowed or not
+     */
+    public boolean tryAcquire(@Nullable String method, @Nullable String pattern, int status) {
+        LogKey key = new LogKey(method, (status == HttpStatus.NOT_FOUND.value() || pattern == null) ? ANY_PATH : pattern, status);
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                key = OVERFLOW_KEY;
+            }
+            bucket = buckets.computeIfAbsent(key, element -> new TokenBucket());
+        }
+        return bucket.tryAcquire(System.nanoTime());
+    }
+
+    /**
+     * Writes the summary lines of the suppressed logs, and evicts the idle buckets
+     * <p>
+     * Invoked by the timer every {@code summaryInterval}
+     */
+    public void flush() {
+        long now = System.nanoTime();
+        try {
+            buckets.forEach((key, bucket) -> {
+                long count = bucket.suppressed.sumThenReset();
+                if (count > 0L && log.isErrorEnabled()) {
+                    log.error("Error {} path '{}', status {}, {} similar errors suppressed in last {}s", key.method(), key.path(), key.status(), count, summaryInterval.toSeconds());
+                }
+                if (count == 0L && bucket.isIdle(now)) {
+                    buckets.remove(key, bucket);
+                }
+            });
+        } catch (RuntimeException ex) {
+            // Never let the timer die
+            if (log.isWarnEnabled()) {
+                log.warn("Flushing error log summaries failed", ex);
+            }
+        }
+    }
+
+    /**
+     * Removes all the buckets
+     */
+    public void clear() {
+        buckets.clear();
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (summaryExecutor != null) {
+            summaryExecutor.shutdownNow();
+            summaryExecutor = null;
+        }
+        flush();
+    }
+
+    private record LogKey(@Nullable String method, @Nonnull String path, int status) {
+    }
+
+
+    /**
+     * Token bucket in the form of generic cell rate algorithm, which holds a single atomic state
+     *
+     * @author David Hsing
+     */
+    private class TokenBucket {
+        private final AtomicLong arrivalTime = new AtomicLong(System.nanoTime());
+        private final LongAdder suppressed = new LongAdder();
+
+        private boolean tryAcquire(long now) {
+            long tolerance = emissionNanos * (burstSize - 1L);
+            while (true) {
+                long expected = arrivalTime.get();
+                long theoretical = Math.max(expected, now);
+                if (theoretical - now > tolerance) {
+                    suppressed.increment();
+                    return false;
+                }
+                if (arrivalTime.compareAndSet(expected, theoretical + emissionNanos)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Returns whether the bucket is full and has not been touched for a whole interval, which equals a new bucket
+         */
+        private boolean isIdle(long now) {
+            return now - arrivalTime.get() >= intervalNanos;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.MessageSource;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.SmartApplicationListener;
+import com.yookue.commonplexus.springutil.util.MessageSourceWraps;
+import com.yookue.springstarter.exceptionhandler.event.MessageSourceReloadedEvent;
+import lombok.Getter;
+
+
+/**
+ * Cache of the error messages without arguments, keyed by code and locale
+ * <p>
+ * The default message is applied after the lookup, so the messages with different default messages share the same entry.
+ * The cache is cleared when the application context is refreshed, or when a {@link com.yookue.springstarter.exceptionhandler.event.MessageSourceReloadedEvent} is published,
+ * and the entries expire after {@code timeToLive} if specified, so the messages of a reloadable message source that reloads by itself are stale for {@code timeToLive} at most
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.controller.AbstractBasicErrorController
+ */
+@SuppressWarnings("unused")
+public class ErrorMessageCache implements SmartApplicationListener {
+    private static final String STATUS_PREFIX = "HttpStatus.";    // $NON-NLS-1$
+    private static final String[] STATUS_CODES = new String[600];
+
+    static {
+        for (int i = 100; i < STATUS_CODES.length; i++) {
+            STATUS_CODES[i] = STATUS_PREFIX + i;
+        }
+    }
+
+    @Getter
+    private final int cacheLimit;
+
+    @Getter
+    private final Duration timeToLive;
+
+    private final long ttlNanos;
+    private final Map<MessageKey, CachedMessage> messages = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new {@link com.yookue.springstarter.exceptionhandler.support.ErrorMessageCache} instance
+     *
+     * @param cacheLimit the maximum number of the messages in the cache, the messages beyond will be looked up on every request
+     * @param timeToLive the time to live of the messages, {@code null} means never expire
+     */
+    public ErrorMessageCache(int cacheLimit, @Nullable Duration timeToLive) {
+        this.cacheLimit = cacheLimit;
+        this.timeToLive = timeToLive;
+        this.ttlNanos = (timeToLive == null || timeToLive.isZero() || timeToLive.isNegative()) ? 0L : timeToLive.toNanos();
+    }
+
+    @Override
+    public boolean supportsEventType(@Nonnull Class<? extends ApplicationEvent> eventType) {
+        return ContextRefreshedEvent.class.isAssignableFrom(eventType) || MessageSourceReloadedEvent.class.isAssignableFrom(eventType);
+    }
+
+    @Override
+    public void onApplicationEvent(@Nonnull ApplicationEvent event) {
+        clear();
+    }
+
+    /**
+     * Returns the message of the given code and locale
+     *
+     * @param source the message source
+     * @param code the message code
+     * @param defaultMessage the message to return if the code is not found
+     * @param locale the locale of the message
+     *
+     * @return the message of the given code and locale
+     */
+    @Nullable
+    public String getMessage(@Nullable MessageSource source, @Nonnull String code, @Nullable String defaultMessage, @Nonnull Locale locale) {
+        if (source == null) {
+            return defaultMessage;
+        }
+        MessageKey key = new MessageKey(code, locale);
+        CachedMessage cached = messages.get(key);
+        long now = (ttlNanos > 0L) ? System.nanoTime() : 0L;
+        if (cached == null || (ttlNanos > 0L && now - cached.createTime() > ttlNanos)) {
+            cached = new CachedMessage(MessageSourceWraps.getMessageLookup(source, code, null, null, locale), now);
+            if (messages.size() < cacheLimit || messages.containsKey(key)) {
+                messages.put(key, cached);
+            }
+        }
+        return (cached.message() != null) ? cached.message() : defaultMessage;
+    }
+
+    /**
+     * Returns the message of the given http status and locale
+     *
+     * @param source the message source
+     * @param status the http status value
+     * @param defaultMessage the message to return if the code is not found
+     * @param locale the locale of the message
+     *
+     * @return the message of the given http status and locale
+     */
+    @Nullable
+    public String getStatusMessage(@Nullable MessageSource source, int status, @Nullable String defaultMessage, @Nonnull Locale locale) {
+        return getMessage(source, getStatusCode(status), defaultMessage, locale);
+    }
+
+    /**
+     * Removes all the messages from the cache
+     */
+    public void clear() {
+        messages.clear();
+    }
+
+    public int size() {
+        return messages.size();
+    }
+
+    /**
+     * Returns the message code of the given http status, such as {@code HttpStatus.404}
+     *
+     * @param status the http status value
+     *
+     * @return the message code of the given http status
+     */
+    @Nonnull
+    public static String getStatusCode(int status) {
+        return (status >= 100 && status < STATUS_CODES.length) ? STATUS_CODES[status] : STATUS_PREFIX + status;
+    }
+
+    private record MessageKey(@Nonnull String code, @Nonnull Locale locale) {
+    }
+
+    private record CachedMessage(@Nullable String message, long createTime) {
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.web.servlet.View;
+import org.springframework.web.servlet.ViewResolver;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import com.yookue.commonplexus.springutil.constant.ResponseBodyConst;
+import lombok.Getter;
+
+
+/**
+ * Cache of the pre-rendered error pages, keyed by status, locale and view name
+ * <p>
+ * Only the pages that do not depend on per-request data should be cached, such as the ones without message or trace.
+ * The timestamp is removed from the model before a cacheable render, so it is never served to the other requests.
+ * A cached page is the output of the first request that rendered it, so the templates of the cached pages must not read any other request or session state,
+ * such as the path, the csrf token or the current user. The least recently used pages are evicted when the cache is full
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.controller.DefaultBasicErrorController
+ * @see com.yookue.springstarter.exceptionhandler.resolver.DefaultFilterExceptionResolver
+ */
+@SuppressWarnings("unused")
+public class ErrorPageCache {
+    public static final String STATIC_PAGE_ATTRIBUTE = ErrorPageCache.class.getName() + ".STATIC_PAGE";    // $NON-NLS-1$
+
+    @Getter
+    private final int cacheLimit;
+
+    private final ObjectProvider<ViewResolver> viewResolvers;
+    private final Map<PageCacheKey, ErrorPage> pages;
+
+    public ErrorPageCache(int cacheLimit, @Nullable ObjectProvider<ViewResolver> viewResolvers) {
+        this.cacheLimit = cacheLimit;
+        this.viewResolvers = viewResolvers;
+        this.pages = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(@Nonnull Map.Entry<PageCacheKey, ErrorPage> eldest) {
+                return size() > ErrorPageCache.this.cacheLimit;
+            }
+        });
+    }
+
+    /**
+     * Returns the cached page of the given status, locale and view name
+     *
+     * @param status the http status value
+     * @param locale the locale of the page
+     * @param viewName the view name of the page
+     *
+     * @return the cached page of the given status, locale and view name
+     */
+    @Nullable
+    public ErrorPage getPage(int status, @Nonnull Locale locale, @Nonnull String viewName) {
+        return pages.get(new PageCacheKey(status, locale, viewName));
+    }
+
+    /**
+     * Renders the given view into bytes, and caches the result, evicting the least recently used page if the cache is full
+     * <p>
+     * The view is rendered without the per-request timestamp of the model
+     *
+     * @param view the view to render, or {@code null} to resolve it with the view resolvers of the application
+     * @param model the model of the view
+     * @param request the servlet request
+     * @param response the servlet response
+     * @param status the http status value
+     * @param locale the locale of the page
+     * @param viewName the view name of the page
+     *
+     * @return the rendered page, or {@code null} if the view could not be resolved
+     */
+    @Nullable
+    public ErrorPage renderPage(@Nullable View view, @Nullable Map<String, ?> model, @Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, int status, @Nonnull Locale locale, @Nonnull String viewName) throws Exception {
+        View resolvedView = (view != null) ? view : resolveView(viewName, locale);
+        if (resolvedView == null) {
+            return null;
+        }
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        resolvedView.render(getStaticModel(model), request, wrapper);
+        ErrorPage result = new ErrorPage(wrapper.getContentAsByteArray(), wrapper.getContentType());
+        if (cacheLimit > 0) {
+            pages.putIfAbsent(new PageCacheKey(status, locale, viewName), result);
+        }
+        return result;
+    }
+
+    /**
+     * Writes the given page to the response, with the content length
+     *
+     * @param response the servlet response
+     * @param page the page to write
+     * @param status the http status value
+     */
+    public void writePage(@Nonnull HttpServletResponse response, @Nonnull ErrorPage page, int status) throws IOException {
+        response.setStatus(status);
+        if (StringUtils.isNotBlank(page.contentType())) {
+            response.setContentType(page.contentType());
+        }
+        response.setContentLength(page.body().length);
+        response.getOutputStream().write(page.body());
+        response.flushBuffer();
+    }
+
+    /**
+     * Removes all the pages from the cache
+     */
+    public void clear() {
+        pages.clear();
+    }
+
+    public int size() {
+        return pages.size();
+    }
+
+    /**
+     * Returns whether the given error data holds no per-request data or not
+     *
+     * @param data the error data of a html request
+     *
+     * @return whether the given error data holds no per-request data or not
+     */
+    public static boolean isStaticData(@Nullable Map<String, ?> data) {
+        return data == null || (!data.containsKey(ResponseBodyConst.HTML_MESSAGE) && !data.containsKey(ResponseBodyConst.HTML_DATA));
+    }
+
+    /**
+     * Returns whether the error page of the given request could be cached or not
+     *
+     * @param request the servlet request
+     *
+     * @return whether the error page of the given request could be cached or not
+     */
+    public static boolean isStaticPage(@Nonnull HttpServletRequest request) {
+        return Boolean.TRUE.equals(request.getAttribute(STATIC_PAGE_ATTRIBUTE));
+    }
+
+    @Nullable
+    private static Map<String, ?> getStaticModel(@Nullable Map<String, ?> model) {
+        if (model == null || !model.containsKey(ResponseBodyConst.HTML_TIMESTAMP)) {
+            return model;
+        }
+        Map<String, Object> result = new LinkedHashMap<>(model);
+        result.remove(ResponseBodyConst.HTML_TIMESTAMP);
+        return result;
+    }
+
+    @Nullable
+    private View resolveView(@Nonnull String viewName, @Nonnull Locale locale) throws Exception {
+        if (viewResolvers == null) {
+            return null;
+        }
+        Iterator<ViewResolver> iterator = viewResolvers.orderedStream().iterator();
+        while (iterator.hasNext()) {
+            View result = iterator.next().resolveViewName(viewName, locale);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A pre-rendered error page
+     *
+     * @param body the encoded body of the page
+     * @param contentType the content type of the page
+     */
+    public record ErrorPage(@Nonnull byte[] body, @Nullable String contentType) {
+    }
+
+    private record PageCacheKey(int status, @Nonnull Locale locale, @Nonnull String viewName) {
+    }
+}
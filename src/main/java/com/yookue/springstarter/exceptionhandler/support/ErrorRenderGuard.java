@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Guard of rendering the error views, which combines a bulkhead and a circuit breaker
+ * <p>
+ * The bulkhead limits the concurrent renders, the renders beyond wait for {@code acquireTimeout} at most.
+ * A render that throws, or exceeds {@code renderBudget}, counts as a failure. The breaker opens after {@code failureThreshold} consecutive failures,
+ * then the errors are answered with a minimal built-in html page, without touching the template engine.
+ * After {@code openDuration}, a single probe render is allowed, which closes the breaker if succeeded, or opens it again if failed.
+ * Only the outcome of the probe decides the half-open breaker, the renders admitted before the breaker opened do not close or reopen it.
+ * The render budget is not enforced by interrupting the render, since the template engines write to the response on the container thread,
+ * the bulkhead bounds the threads that a hanging template can occupy instead
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.resolver.DefaultFilterExceptionResolver
+ */
+@Getter
+@Slf4j
+@SuppressWarnings("unused")
+public class ErrorRenderGuard {
+    private static final String FALLBACK_PAGE = "<!DOCTYPE html><html><head><meta charset=\"%s\"><title>%d %s</title></head><body><h1>%d %s</h1></body></html>";    // $NON-NLS-1$
+
+    private final int maxConcurrent;
+    private final Duration acquireTimeout;
+    private final Duration renderBudget;
+    private final int failureThreshold;
+    private final Duration openDuration;
+
+    @Getter(value = AccessLevel.NONE)
+    private final long budgetNanos;
+
+    @Getter(value = AccessLevel.NONE)
+    private final Semaphore bulkhead;
+
+    @Getter(value = AccessLevel.NONE)
+    private final AtomicInteger failures = new AtomicInteger();
+
+    @Getter(value = AccessLevel.NONE)
+    private final AtomicLong openedTime = new AtomicLong();
+
+    @Getter(value = AccessLevel.NONE)
+    private final AtomicBoolean probing = new AtomicBoolean();
+
+    @Getter(value = AccessLevel.NONE)
+    private final LongAdder rejectedCount = new LongAdder();
+
+    @Getter(value = AccessLevel.NONE)
+    private final LongAdder fallbackCount = new LongAdder();
+
+    /**
+     * Constructs a new {@link com.yookue.springstarter.exceptionhandler.support.ErrorRenderGuard} instance
+     *
+     * @param maxConcurrent the maximum number of concurrent renders, non-positive means unlimited
+     * @param acquireTimeout the maximum time to wait for a render permit
+     * @param renderBudget the maximum time of a successful render, {@code null} or non-positive means unlimited
+     * @param failureThreshold the number of consecutive failures to open the breaker, non-positive means never open
+     * @param openDuration the time that the breaker stays open before a probe render
+     */
+    public ErrorRenderGuard(int maxConcurrent, @Nullable Duration acquireTimeout, @Nullable Duration renderBudget, int failureThreshold, @Nonnull Duration openDuration) {
+        this.maxConcurrent = maxConcurrent;
+        this.acquireTimeout = (acquireTimeout == null || acquireTimeout.isNegative()) ? Duration.ZERO : acquireTimeout;
+        this.renderBudget = renderBudget;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.budgetNanos = (renderBudget == null || renderBudget.isNegative()) ? 0L : renderBudget.toNanos();
+        this.bulkhead = (maxConcurrent > 0) ? new Semaphore(maxConcurrent) : null;
+    }
+
+    /**
+     * Renders the error view by the given action, or writes the fallback page if the render is not allowed or failed
+     * <p>
+     * The exception of the action is rethrown only if the response has been committed, since nothing can be written anymore
+     *
+     * @param action the action that renders the error view
+     * @param response the servlet response
+     * @param status the http status value
+     * @param charset the charset of the fallback page
+     */
+    public void render(@Nonnull RenderAction action, @Nonnull HttpServletResponse response, int status, @Nonnull Charset charset) throws Exception {
+        Permit permit = tryAcquire();
+        if (permit == Permit.REJECTED) {
+            rejectedCount.increment();
+            writeFallback(response, status, charset);
+            return;
+        }
+        long startTime = System.nanoTime();
+        try {
+            action.render();
+        } catch (Exception ex) {
+            recordFailure(permit);
+            if (response.isCommitted()) {
+                throw ex;
+            }
+            if (log.isWarnEnabled()) {
+                log.warn("Rendering error view failed, fallback to the built-in page", ex);    // $NON-NLS-1$
+            }
+            response.resetBuffer();
+            writeFallback(response, status, charset);
+            return;
+        } finally {
+            if (bulkhead != null) {
+                bulkhead.release();
+            }
+        }
+        long elapsed = System.nanoTime() - startTime;
+        if (budgetNanos > 0L && elapsed > budgetNanos) {
+            if (log.isWarnEnabled()) {
+                log.warn("Rendering error view took {}ms, exceeded the budget of {}ms", TimeUnit.NANOSECONDS.toMillis(elapsed), renderBudget.toMillis());    // $NON-NLS-1$
+            }
+            recordFailure(permit);
+        } else {
+            recordSuccess(permit);
+        }
+    }
+
+    /**
+     * Returns whether the breaker is open or not
+     *
+     * @return whether the breaker is open or not
+     */
+    public boolean isOpen() {
+        return openedTime.get() != 0L;
+    }
+
+    public int getAvailablePermits() {
+        return (bulkhead == null) ? Integer.MAX_VALUE : bulkhead.availablePermits();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public long getFallbackCount() {
+        return fallbackCount.sum();
+    }
+
+    /**
+     * Closes the breaker, and clears the consecutive failures
+     */
+    public void reset() {
+        failures.set(0);
+        openedTime.set(0L);
+        probing.set(false);
+    }
+
+    @Nonnull
+    private Permit tryAcquire() {
+        long opened = openedTime.get();
+        Permit result = Permit.REGULAR;
+        if (opened != 0L) {
+            if (System.nanoTime() - opened < openDuration.toNanos() || !probing.compareAndSet(false, true)) {
+                return Permit.REJECTED;
+            }
+            result = Permit.PROBE;
+        }
+        if (bulkhead == null) {
+            return result;
+        }
+        try {
+            if (bulkhead.tryAcquire(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                return result;
+            }
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+        if (result == Permit.PROBE) {
+            // Releases the probe, so that the next request is able to probe
+            probing.set(false);
+        }
+        return Permit.REJECTED;
+    }
+
+    private void recordSuccess(@Nonnull Permit permit) {
+        if (permit != Permit.PROBE) {
+            if (!isOpen()) {
+                failures.set(0);
+            }
+            return;
+        }
+        // The probe may have been cleared by a reset in the meantime
+        if (probing.compareAndSet(true, false)) {
+            failures.set(0);
+            if (openedTime.getAndSet(0L) != 0L && log.isInfoEnabled()) {
+                log.info("Rendering error view recovered, the breaker is closed");    // $NON-NLS-1$
+            }
+        }
+    }
+
+    private void recordFailure(@Nonnull Permit permit) {
+        if (permit == Permit.PROBE) {
+            if (probing.get()) {
+                // The probe failed, opens the breaker again
+                openedTime.set(System.nanoTime());
+                probing.set(false);
+            }
+            return;
+        }
+        if (isOpen()) {
+            // Admitted before the breaker opened, it is open already
+            return;
+        }
+        if (failureThreshold > 0 && failures.incrementAndGet() >= failureThreshold && openedTime.compareAndSet(0L, System.nanoTime())) {
+            if (log.isWarnEnabled()) {
+                log.warn("Rendering error view failed {} times in a row, the breaker is open for {}s", failures.get(), openDuration.toSeconds());    // $NON-NLS-1$
+            }
+        }
+    }
+
+    private void writeFallback(@Nonnull HttpServletResponse response, int status, @Nonnull Charset charset) throws IOException {
+        fallbackCount.increment();
+        if (response.isCommitted()) {
+            return;
+        }
+        HttpStatus resolved = HttpStatus.resolve(status);
+        String reason = (resolved == null) ? HttpStatus.INTERNAL_SERVER_ERROR.getReasonPhrase() : resolved.getReasonPhrase();
+        String page = String.format(FALLBACK_PAGE, charset.name(), status, reason, status, reason);
+        response.setStatus(status);
+        response.setContentType(new MediaType(MediaType.TEXT_HTML, charset).toString());
+        try {
+            byte[] bytes = page.getBytes(charset);
+            response.setContentLength(bytes.length);
+            response.getOutputStream().write(bytes);
+        } catch (IllegalStateException ignored) {
+            // The failed render has obtained the writer already
+            response.getWriter().write(page);
+        }
+        response.flushBuffer();
+    }
+
+
+    /**
+     * Permit of a render, which tells whether the render is the probe of the half-open breaker
+     *
+     * @author David Hsing
+     */
+    private enum Permit {
+        REJECTED, REGULAR, PROBE
+    }
+
+
+    /**
+     * Action that renders an error view
+     *
+     * @author David Hsing
+     */
+    @FunctionalInterface
+    public interface RenderAction {
+        void render() throws Exception;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.security.GeneralSecurityException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.validation.ValidationException;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.util.ClassUtils;
+import org.springframework.validation.BindException;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import com.yookue.commonplexus.javaseutil.exception.LawProhibitedException;
+import com.yookue.commonplexus.javaseutil.exception.MaliciousAccessException;
+import com.yookue.commonplexus.javaseutil.exception.ServerBusyException;
+import com.yookue.commonplexus.javaseutil.exception.ServerMaintenanceException;
+import com.yookue.commonplexus.javaseutil.exception.ServiceConfigException;
+import com.yookue.commonplexus.javaseutil.exception.ServiceUnavailableException;
+import com.yookue.commonplexus.javaseutil.exception.ServiceVersionException;
+import lombok.Getter;
+
+
+/**
+ * Registry of http statuses for exception classes
+ * <p>
+ * The status of an exception class is determined by walking up its superclasses, the first class that is mapped explicitly, or annotated with {@link org.springframework.web.bind.annotation.ResponseStatus}, wins.
+ * If none of the superclasses matches, the interfaces implemented by the exception class hierarchy are inspected in the same way.
+ * The result is cached per class, so an exception class seen before costs a single lookup
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.util.ErrorControllerUtils
+ * @see java.lang.ClassValue
+ */
+@SuppressWarnings("unused")
+public class ErrorStatusRegistry {
+    private static final String AUTHENTICATION_EXCEPTION = "org.springframework.security.core.AuthenticationException";    // $NON-NLS-1$
+
+    @Getter
+    private final Map<Class<?>, HttpStatusCode> statusMappings;
+
+    @Getter
+    private final boolean detectResponseStatus;
+
+    private final ClassValue<Optional<HttpStatusCode>> statusCache = new ClassValue<>() {
+        @Override
+        protected Optional<HttpStatusCode> computeValue(@Nonnull Class<?> type) {
+            return Optional.ofNullable(lookupStatus(type));
+        }
+    };
+
+    public ErrorStatusRegistry() {
+        this(null, true);
+    }
+
+    /**
+     * Constructs a new {@link com.yookue.springstarter.exceptionhandler.support.ErrorStatusRegistry} instance
+     *
+     * @param mappings the http statuses of exception classes, which take precedence over the built-in mappings
+     * @param detectResponseStatus whether to detect the {@link org.springframework.web.bind.annotation.ResponseStatus} on exception classes or not
+     */
+    public ErrorStatusRegistry(@Nullable Map<Class<? extends Throwable>, ? extends HttpStatusCode> mappings, boolean detectResponseStatus) {
+        Map<Class<?>, HttpStatusCode> result = new HashMap<>(getBuiltinMappings());
+        if (mappings != null) {
+            result.putAll(mappings);
+        }
+        this.statusMappings = Collections.unmodifiableMap(result);
+        this.detectResponseStatus = detectResponseStatus;
+    }
+
+    /**
+     * Returns the http status of the given exception
+     *
+     * @param throwable the exception to inspect
+     *
+     * @return the http status of the given exception, or {@code null} if not mapped
+     */
+    @Nullable
+    public HttpStatusCode getStatus(@Nullable Throwable throwable) {
+        return (throwable == null) ? null : statusCache.get(throwable.getClass()).orElse(null);
+    }
+
+    @Nullable
+    private HttpStatusCode lookupStatus(@Nonnull Class<?> type) {
+        for (Class<?> clazz = type; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            HttpStatusCode status = getDeclaredStatus(clazz);
+            if (status != null) {
+                return status;
+            }
+        }
+        for (Class<?> clazz : ClassUtils.getAllInterfacesForClassAsSet(type)) {
+            HttpStatusCode status = getDeclaredStatus(clazz);
+            if (status != null) {
+                return status;
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private HttpStatusCode getDeclaredStatus(@Nonnull Class<?> clazz) {
+        HttpStatusCode status = statusMappings.get(clazz);
+        if (status != null || !detectResponseStatus) {
+            return status;
+        }
+        ResponseStatus annotation = AnnotatedElementUtils.getMergedAnnotation(clazz, ResponseStatus.class);
+        return (annotation == null) ? null : annotation.code();
+    }
+
+    @Nonnull
+    private static Map<Class<?>, HttpStatusCode> getBuiltinMappings() {
+        Map<Class<?>, HttpStatusCode> result = new HashMap<>();
+        result.put(BindException.class, HttpStatus.BAD_REQUEST);
+        result.put(ValidationException.class, HttpStatus.BAD_REQUEST);
+        result.put(GeneralSecurityException.class, HttpStatus.FORBIDDEN);
+        ClassLoader loader = ErrorStatusRegistry.class.getClassLoader();
+        if (ClassUtils.isPresent(AUTHENTICATION_EXCEPTION, loader)) {
+            result.put(ClassUtils.resolveClassName(AUTHENTICATION_EXCEPTION, loader), HttpStatus.FORBIDDEN);
+        }
+        result.put(MaliciousAccessException.class, HttpStatus.I_AM_A_TEAPOT);
+        result.put(ServerBusyException.class, HttpStatus.TOO_MANY_REQUESTS);
+        result.put(LawProhibitedException.class, HttpStatus.UNAVAILABLE_FOR_LEGAL_REASONS);
+        result.put(ServerMaintenanceException.class, HttpStatus.SERVICE_UNAVAILABLE);
+        result.put(ServiceUnavailableException.class, HttpStatus.SERVICE_UNAVAILABLE);
+        result.put(ServiceVersionException.class, HttpStatus.HTTP_VERSION_NOT_SUPPORTED);
+        result.put(ServiceConfigException.class, HttpStatus.VARIANT_ALSO_NEGOTIATES);
+        return result;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import jakarta.annotation.Nonnull;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import com.yookue.springstarter.exceptionhandler.util.ErrorControllerUtils;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Installer of the {@link com.yookue.springstarter.exceptionhandler.support.ErrorStatusRegistry} bean of the application context
+ * <p>
+ * Installs the registry bean, either the auto-configured one or the one supplied by the user, into {@link com.yookue.springstarter.exceptionhandler.util.ErrorControllerUtils}
+ * after all the singletons are instantiated, and restores the previous registry when the application context is closed,
+ * unless another application context has installed its own registry in the meantime.
+ * The installed registry only serves the static methods of {@link com.yookue.springstarter.exceptionhandler.util.ErrorControllerUtils},
+ * the beans of this starter get the registry of their own application context injected
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.util.ErrorControllerUtils#replaceStatusRegistry
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class ErrorStatusRegistryInstaller implements SmartInitializingSingleton, DisposableBean {
+    private final ObjectProvider<ErrorStatusRegistry> registryProvider;
+    private ErrorStatusRegistry installedRegistry;
+    private ErrorStatusRegistry previousRegistry;
+
+    public ErrorStatusRegistryInstaller(@Nonnull ObjectProvider<ErrorStatusRegistry> registryProvider) {
+        this.registryProvider = registryProvider;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        ErrorStatusRegistry registry = registryProvider.getIfUnique();
+        if (registry == null) {
+            if (log.isDebugEnabled()) {
+                log.debug("No unique error status registry found, keeping the current one");
+            }
+            return;
+        }
+        ErrorStatusRegistry previous = ErrorControllerUtils.getStatusRegistry();
+        if (ErrorControllerUtils.replaceStatusRegistry(previous, registry)) {
+            previousRegistry = previous;
+            installedRegistry = registry;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (installedRegistry != null && previousRegistry != null) {
+            ErrorControllerUtils.replaceStatusRegistry(installedRegistry, previousRegistry);
+        }
+        installedRegistry = null;
+        previousRegistry = null;
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.util.ClassUtils;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.json.JsonWriteFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+
+/**
+ * Writer that splices the error body into pre-serialized json envelopes
+ * <p>
+ * The keys, and the values of the constant keys (such as status), of an error body are serialized once per layout, as utf-8 fragments.
+ * Then each error writes the fragments, with only the other values serialized, and an exact content length.
+ * The layout reflects the included attributes, and the locale changes the dynamic values only, so the envelopes are keyed by the keys and the constant values.
+ * The bodies that cannot be spliced exactly the same as the json mapper does, such as with null values or a non utf-8 charset, are declined,
+ * so are the bodies of a new envelope when the cache is full
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.resolver.DefaultFilterExceptionResolver
+ */
+@Getter
+@SuppressWarnings("unused")
+public class JsonEnvelopeWriter {
+    private static final boolean JACKSON_PRESENT = ClassUtils.isPresent("com.fasterxml.jackson.databind.ObjectMapper", JsonEnvelopeWriter.class.getClassLoader());    // $NON-NLS-1$
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);    // $NON-NLS-1$
+    private static final String STRING_PROBE = "a\"\\/\b\t\n\f\r\u0000\u001f\u007f\u00e9\u4e2d\ud83d\ude00";    // $NON-NLS-1$
+
+    private final int cacheLimit;
+    private final Set<String> constantKeys;
+
+    @Getter(value = AccessLevel.NONE)
+    private final ObjectWriter valueWriter;
+
+    @Getter(value = AccessLevel.NONE)
+    private final boolean plainStrings;
+
+    @Getter(value = AccessLevel.NONE)
+    private final Map<Long, Envelope> envelopes = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new {@link com.yookue.springstarter.exceptionhandler.support.JsonEnvelopeWriter} instance
+     *
+     * @param mapper the json mapper to serialize the keys and the values
+     * @param cacheLimit the maximum number of the envelopes in the cache
+     * @param constantKeys the keys whose scalar values are serialized into the envelopes
+     */
+    public JsonEnvelopeWriter(@Nonnull ObjectMapper mapper, int cacheLimit, @Nullable Collection<String> constantKeys) {
+        this.valueWriter = mapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.cacheLimit = cacheLimit;
+        this.constantKeys = (constantKeys == null) ? Set.of() : Set.copyOf(constantKeys);
+        this.plainStrings = mapper.getFactory().getCharacterEscapes() == null && !mapper.getFactory().isEnabled(JsonGenerator.Feature.ESCAPE_NON_ASCII) && isPlainStrings(valueWriter);
+    }
+
+    /**
+     * Writes the given body to the response, if it can be spliced
+     *
+     * @param response the servlet response
+     * @param body the error body to write
+     * @param charset the charset of the response
+     * @param status the http status of the response
+     *
+     * @return whether the body has been written or not
+     */
+    public boolean write(@Nonnull HttpServletResponse response, @Nonnull Map<?, ?> body, @Nonnull Charset charset, @Nonnull HttpStatusCode status) throws IOException {
+        if (!StandardCharsets.UTF_8.equals(charset) || body.isEmpty()) {
+            return false;
+        }
+        Envelope envelope = getEnvelope(body);
+        if (envelope == null) {
+            return false;
+        }
+        byte[][] values = new byte[envelope.fragments().length - 1][];
+        long length = envelope.fragmentLength();
+        int index = 0;
+        for (Map.Entry<?, ?> entry : body.entrySet()) {
+            if (!isConstant(entry.getKey(), entry.getValue())) {
+                byte[] value = serializeValue(entry.getValue());
+                if (value == null) {
+                    return false;
+                }
+                values[index++] = value;
+                length += value.length;
+            }
+        }
+        response.setStatus(status.value());
+        response.setContentType(new MediaType(MediaType.APPLICATION_JSON, charset).toString());
+        response.setContentLengthLong(length);
+        OutputStream stream = response.getOutputStream();
+        byte[][] fragments = envelope.fragments();
+        for (int i = 0; i < values.length; i++) {
+            stream.write(fragments[i]);
+            stream.write(values[i]);
+        }
+        stream.write(fragments[values.length]);
+        stream.flush();
+        return true;
+    }
+
+    /**
+     * Removes all the envelopes from the cache
+     */
+    public void clear() {
+        envelopes.clear();
+    }
+
+    public int size() {
+        return envelopes.size();
+    }
+
+    @Nullable
+    private Envelope getEnvelope(@Nonnull Map<?, ?> body) throws IOException {
+        long hash = 17L;
+        for (Map.Entry<?, ?> entry : body.entrySet()) {
+            if (!(entry.getKey() instanceof String key) || entry.getValue() == null) {
+                return null;
+            }
+            hash = 31L * hash + key.hashCode();
+            if (isConstant(key, entry.getValue())) {
+                hash = 31L * hash + entry.getValue().hashCode();
+            }
+        }
+        Envelope result = envelopes.get(hash);
+        if (result != null) {
+            // Declines the rare collisions of the hashes
+            return result.matches(body, this) ? result : null;
+        }
+        if (envelopes.size() >= cacheLimit) {
+            // A throwaway envelope costs more than the streaming writer, declines the new layout instead
+            return null;
+        }
+        result = createEnvelope(body);
+        envelopes.putIfAbsent(hash, result);
+        return result;
+    }
+
+    @Nonnull
+    private Envelope createEnvelope(@Nonnull Map<?, ?> body) throws IOException {
+        List<byte[]> fragments = new ArrayList<>();
+        String[] keys = new String[body.size()];
+        Object[] constants = new Object[body.size()];
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+        buffer.write('{');
+        int index = 0;
+        for (Map.Entry<?, ?> entry : body.entrySet()) {
+            String key = (String) entry.getKey();
+            if (index > 0) {
+                buffer.write(',');
+            }
+            buffer.write(valueWriter.writeValueAsBytes(key));
+            buffer.write(':');
+            keys[index] = key;
+            if (isConstant(key, entry.getValue())) {
+                constants[index] = entry.getValue();
+                buffer.write(valueWriter.writeValueAsBytes(entry.getValue()));
+            } else {
+                fragments.add(buffer.toByteArray());
+                buffer.reset();
+            }
+            index++;
+        }
+        buffer.write('}');
+        fragments.add(buffer.toByteArray());
+        return new Envelope(keys, constants, fragments.toArray(new byte[0][]), fragments.stream().mapToLong(element -> element.length).sum());
+    }
+
+    private boolean isConstant(@Nullable Object key, @Nullable Object value) {
+        return key instanceof String && constantKeys.contains(key) && (value instanceof String || value instanceof Number || value instanceof Boolean);
+    }
+
+    /**
+     * Returns whether the given writer writes the strings the same as {@link #quoteString(java.lang.String)} or not
+     */
+    private static boolean isPlainStrings(@Nonnull ObjectWriter writer) {
+        try {
+            return Arrays.equals(writer.writeValueAsBytes(STRING_PROBE), quoteString(STRING_PROBE));
+        } catch (JsonProcessingException ignored) {
+            return false;
+        }
+    }
+
+    @Nullable
+    private byte[] serializeValue(@Nullable Object value) throws IOException {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof String instance && plainStrings) {
+            return quoteString(instance);
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Boolean) {
+            return value.toString().getBytes(StandardCharsets.US_ASCII);
+        }
+        return valueWriter.writeValueAsBytes(value);
+    }
+
+    /**
+     * Returns the json string of the given value as utf-8 bytes, escapes the same characters as jackson does by default
+     * <p>
+     * The surrogates are escaped one by one, since jackson does not combine them into utf-8 sequences by default
+     */
+    @Nonnull
+    private static byte[] quoteString(@Nonnull String value) {
+        int length = 2;
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch < 0x80) {
+                length += (ch == '"' || ch == '\\' || shortEscape(ch) != 0) ? 2 : ((ch < 0x20) ? 6 : 1);
+            } else if (ch < 0x800) {
+                length += 2;
+            } else {
+                length += Character.isSurrogate(ch) ? 6 : 3;
+            }
+        }
+        byte[] result = new byte[length];
+        int position = 0;
+        result[position++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch < 0x80) {
+                if (ch == '"' || ch == '\\') {
+                    result[position++] = '\\';
+                    result[position++] = (byte) ch;
+                } else if (shortEscape(ch) != 0) {
+                    result[position++] = '\\';
+                    result[position++] = shortEscape(ch);
+                } else if (ch < 0x20) {
+                    position = writeUnicodeEscape(result, position, ch);
+                } else {
+                    result[position++] = (byte) ch;
+                }
+            } else if (ch < 0x800) {
+                result[position++] = (byte) (0xC0 | (ch >> 6));
+                result[position++] = (byte) (0x80 | (ch & 0x3F));
+            } else if (Character.isSurrogate(ch)) {
+                position = writeUnicodeEscape(result, position, ch);
+            } else {
+                result[position++] = (byte) (0xE0 | (ch >> 12));
+                result[position++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+                result[position++] = (byte) (0x80 | (ch & 0x3F));
+            }
+        }
+        result[position] = '"';
+        return result;
+    }
+
+    private static int writeUnicodeEscape(@Nonnull byte[] buffer, int position, char ch) {
+        buffer[position++] = '\\';
+        buffer[position++] = 'u';
+        buffer[position++] = HEX_DIGITS[(ch >> 12) & 0x0F];
+        buffer[position++] = HEX_DIGITS[(ch >> 8) & 0x0F];
+        buffer[position++] = HEX_DIGITS[(ch >> 4) & 0x0F];
+        buffer[position++] = HEX_DIGITS[ch & 0x0F];
+        return position;
+    }
+
+    private static byte shortEscape(char value) {
+        return switch (value) {
+            case '\b' -> 'b';
+            case '\t' -> 't';
+            case '\n' -> 'n';
+            case '\f' -> 'f';
+            case '\r' -> 'r';
+            default -> 0;
+        };
+    }
+
+    /**
+     * Returns a writer with the json mapper of the given bean factory
+     * <p>
+     * The mappers that indent or sort the output, skip the map values by a non-default inclusion, or escape by non-default json write features are declined,
+     * since the envelopes would differ from their output
+     *
+     * @param beanFactory the bean factory to look up the json mapper
+     * @param cacheLimit the maximum number of the envelopes in the cache
+     * @param constantKeys the keys whose scalar values are serialized into the envelopes
+     *
+     * @return a writer with the json mapper of the given bean factory, or {@code null} if jackson is absent or the mapper is declined
+     */
+    @Nullable
+    public static JsonEnvelopeWriter of(@Nullable BeanFactory beanFactory, int cacheLimit, @Nullable Collection<String> constantKeys) {
+        if (!JACKSON_PRESENT || cacheLimit <= 0) {
+            return null;
+        }
+        ObjectMapper mapper = (beanFactory == null) ? null : beanFactory.getBeanProvider(ObjectMapper.class).getIfAvailable();
+        if (mapper == null) {
+            mapper = new ObjectMapper();
+        }
+        if (mapper.isEnabled(SerializationFeature.INDENT_OUTPUT) || mapper.isEnabled(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS) || !isDefaultInclusion(mapper) || !isDefaultWriteFeatures(mapper)) {
+            return null;
+        }
+        return new JsonEnvelopeWriter(mapper, cacheLimit, constantKeys);
+    }
+
+    private static boolean isDefaultInclusion(@Nonnull ObjectMapper mapper) {
+        JsonInclude.Value inclusion = mapper.getSerializationConfig().getDefaultPropertyInclusion(Map.class);
+        return inclusion == null || (isDefaultInclusion(inclusion.getValueInclusion()) && isDefaultInclusion(inclusion.getContentInclusion()));
+    }
+
+    private static boolean isDefaultInclusion(@Nullable JsonInclude.Include inclusion) {
+        return inclusion == null || inclusion == JsonInclude.Include.ALWAYS || inclusion == JsonInclude.Include.USE_DEFAULTS;
+    }
+
+    private static boolean isDefaultWriteFeatures(@Nonnull ObjectMapper mapper) {
+        JsonFactory factory = mapper.getFactory();
+        for (JsonWriteFeature feature : JsonWriteFeature.values()) {
+            JsonGenerator.Feature mapped = feature.mappedFeature();
+            if (mapped != null && factory.isEnabled(mapped) != feature.enabledByDefault()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Pre-serialized envelope of an error body, the fragments surround the dynamic values
+     *
+     * @author David Hsing
+     */
+    private record Envelope(@Nonnull String[] keys, @Nonnull Object[] constants, @Nonnull byte[][] fragments, long fragmentLength) {
+        private boolean matches(@Nonnull Map<?, ?> body, @Nonnull JsonEnvelopeWriter writer) {
+            if (body.size() != keys.length) {
+                return false;
+            }
+            int index = 0;
+            for (Map.Entry<?, ?> entry : body.entrySet()) {
+                if (!Objects.equals(keys[index], entry.getKey())) {
+                    return false;
+                }
+                boolean constant = writer.isConstant(entry.getKey(), entry.getValue());
+                if (constant != (constants[index] != null) || (constant && !Objects.equals(constants[index], entry.getValue()))) {
+                    return false;
+                }
+                index++;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.util.ClassUtils;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.gson.Gson;
+
+
+/**
+ * Writer that streams the error body to the servlet output stream as json
+ * <p>
+ * The json mapper is looked up only once, and the body is serialized into the output stream directly, without building an intermediate string.
+ * The binary dataformats of jackson, such as cbor and smile, are supported by copying the json mapper with their factories, if present on the classpath
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.resolver.DefaultFilterExceptionResolver
+ */
+@SuppressWarnings("unused")
+public abstract class JsonErrorWriter {
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");    // $NON-NLS-1$ // $NON-NLS-2$
+    private static final boolean JACKSON_PRESENT = ClassUtils.isPresent("com.fasterxml.jackson.databind.ObjectMapper", JsonErrorWriter.class.getClassLoader());    // $NON-NLS-1$
+    private static final boolean GSON_PRESENT = ClassUtils.isPresent("com.google.gson.Gson", JsonErrorWriter.class.getClassLoader());    // $NON-NLS-1$
+    private static final String CBOR_FACTORY = "com.fasterxml.jackson.dataformat.cbor.CBORFactory";    // $NON-NLS-1$
+    private static final String SMILE_FACTORY = "com.fasterxml.jackson.dataformat.smile.SmileFactory";    // $NON-NLS-1$
+
+    /**
+     * Writes the given body to the response
+     *
+     * @param response the servlet response
+     * @param body the error body to write
+     * @param charset the charset of the response
+     * @param status the http status of the response
+     */
+    public void write(@Nonnull HttpServletResponse response, @Nonnull Object body, @Nonnull Charset charset, @Nonnull HttpStatusCode status) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(getContentType(charset).toString());
+        OutputStream stream = response.getOutputStream();
+        writeInternal(stream, body, charset);
+        stream.flush();
+    }
+
+    /**
+     * Returns the media type that the writer produces
+     *
+     * @return the media type that the writer produces
+     */
+    @Nonnull
+    public MediaType getMediaType() {
+        return MediaType.APPLICATION_JSON;
+    }
+
+    @Nonnull
+    protected MediaType getContentType(@Nonnull Charset charset) {
+        return new MediaType(getMediaType(), charset);
+    }
+
+    protected abstract void writeInternal(@Nonnull OutputStream stream, @Nonnull Object body, @Nonnull Charset charset) throws IOException;
+
+    /**
+     * Returns a writer with the json mapper of the given bean factory
+     * <p>
+     * Prefers jackson to gson, just like spring boot does
+     *
+     * @param beanFactory the bean factory to look up the json mapper
+     *
+     * @return a writer with the json mapper of the given bean factory, or {@code null} if no json mapper available
+     */
+    @Nullable
+    public static JsonErrorWriter of(@Nullable BeanFactory beanFactory) {
+        if (JACKSON_PRESENT) {
+            ObjectMapper mapper = (beanFactory == null) ? null : beanFactory.getBeanProvider(ObjectMapper.class).getIfAvailable();
+            return new JacksonErrorWriter((mapper != null) ? mapper : new ObjectMapper());
+        }
+        if (GSON_PRESENT) {
+            Gson gson = (beanFactory == null) ? null : beanFactory.getBeanProvider(Gson.class).getIfAvailable();
+            return new GsonErrorWriter((gson != null) ? gson : new Gson());
+        }
+        return null;
+    }
+
+    /**
+     * Returns the writers of the binary dataformats that present on the classpath, with the json mapper of the given bean factory
+     *
+     * @param beanFactory the bean factory to look up the json mapper
+     *
+     * @return the writers of the binary dataformats that present on the classpath
+     */
+    @Nonnull
+    public static List<JsonErrorWriter> ofBinary(@Nullable BeanFactory beanFactory) {
+        List<JsonErrorWriter> result = new ArrayList<>(2);
+        if (!JACKSON_PRESENT) {
+            return result;
+        }
+        ObjectMapper mapper = (beanFactory == null) ? null : beanFactory.getBeanProvider(ObjectMapper.class).getIfAvailable();
+        ObjectMapper source = (mapper != null) ? mapper : new ObjectMapper();
+        ClassLoader loader = JsonErrorWriter.class.getClassLoader();
+        if (ClassUtils.isPresent(CBOR_FACTORY, loader)) {
+            JsonFactory factory = BeanUtils.instantiateClass(ClassUtils.resolveClassName(CBOR_FACTORY, loader), JsonFactory.class);
+            result.add(new JacksonErrorWriter(source.copyWith(factory), MediaType.APPLICATION_CBOR));
+        }
+        if (ClassUtils.isPresent(SMILE_FACTORY, loader)) {
+            JsonFactory factory = BeanUtils.instantiateClass(ClassUtils.resolveClassName(SMILE_FACTORY, loader), JsonFactory.class);
+            result.add(new JacksonErrorWriter(source.copyWith(factory), APPLICATION_SMILE));
+        }
+        return result;
+    }
+
+
+    /**
+     * Writer of jackson for error body
+     *
+     * @author David Hsing
+     */
+    public static class JacksonErrorWriter extends JsonErrorWriter {
+        private final ObjectWriter objectWriter;
+        private final MediaType mediaType;
+
+        public JacksonErrorWriter(@Nonnull ObjectMapper mapper) {
+            this(mapper, MediaType.APPLICATION_JSON);
+        }
+
+        /**
+         * Constructs a new {@link com.yookue.springstarter.exceptionhandler.support.JsonErrorWriter.JacksonErrorWriter} instance
+         *
+         * @param mapper the mapper, whose factory determines the dataformat
+         * @param mediaType the media type of the dataformat
+         */
+        public JacksonErrorWriter(@Nonnull ObjectMapper mapper, @Nonnull MediaType mediaType) {
+            this.objectWriter = mapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.mediaType = mediaType;
+        }
+
+        @Nonnull
+        @Override
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        @Nonnull
+        @Override
+        protected MediaType getContentType(@Nonnull Charset charset) {
+            return isBinary() ? mediaType : super.getContentType(charset);
+        }
+
+        @Override
+        protected void writeInternal(@Nonnull OutputStream stream, @Nonnull Object body, @Nonnull Charset charset) throws IOException {
+            if (isBinary() || StandardCharsets.UTF_8.equals(charset)) {
+                // Jackson encodes utf-8 and the binary dataformats by itself, with its own recycled buffers
+                objectWriter.writeValue(stream, body);
+            } else {
+                Writer writer = new OutputStreamWriter(stream, charset);
+                objectWriter.writeValue(writer, body);
+                writer.flush();
+            }
+        }
+
+        private boolean isBinary() {
+            return !MediaType.APPLICATION_JSON.equalsTypeAndSubtype(mediaType);
+        }
+    }
+
+
+    /**
+     * Writer of gson for error body
+     *
+     * @author David Hsing
+     */
+    public static class GsonErrorWriter extends JsonErrorWriter {
+        private final Gson gson;
+
+        public GsonErrorWriter(@Nonnull Gson gson) {
+            this.gson = gson;
+        }
+
+        @Override
+        protected void writeInternal(@Nonnull OutputStream stream, @Nonnull Object body, @Nonnull Charset charset) throws IOException {
+            Writer writer = new OutputStreamWriter(stream, charset);
+            gson.toJson(body, writer);
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.util.Assert;
+import com.yookue.commonplexus.javaseutil.constant.AssertMessageConst;
+import com.yookue.springstarter.exceptionhandler.event.AsyncExceptionEventPublisher;
+import com.yookue.springstarter.exceptionhandler.facade.ExceptionHandlerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+
+
+/**
+ * {@link com.yookue.springstarter.exceptionhandler.facade.ExceptionHandlerMetrics} for micrometer
+ * <p>
+ * The exception tag is bounded by {@code maxExceptionTags}, the exception classes beyond are tagged as {@code OTHER}.
+ * The meters are cached, so a recording costs a map lookup only
+ *
+ * @author David Hsing
+ * @see io.micrometer.core.instrument.MeterRegistry
+ */
+@SuppressWarnings("unused")
+public class MicrometerExceptionHandlerMetrics implements ExceptionHandlerMetrics {
+    public static final String ERRORS_METER = "exception.handler.errors";    // $NON-NLS-1$
+    public static final String FILTER_METER = "exception.handler.filter";    // $NON-NLS-1$
+    public static final String RESOLVER_METER = "exception.handler.resolver";    // $NON-NLS-1$
+    public static final String RENDER_METER = "exception.handler.render";    // $NON-NLS-1$
+    public static final String PUBLISHER_METER = "exception.handler.publisher";    // $NON-NLS-1$
+    public static final String RENDER_GUARD_METER = "exception.handler.render.guard";    // $NON-NLS-1$
+    private static final String OTHER_TAG = "OTHER";    // $NON-NLS-1$
+    private static final String NONE_TAG = "none";    // $NON-NLS-1$
+
+    private final MeterRegistry registry;
+
+    @Getter
+    private final int maxExceptionTags;
+
+    private final Set<String> exceptionTags = ConcurrentHashMap.newKeySet();
+    private final Map<ErrorKey, Counter> errorCounters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> renderTimers = new ConcurrentHashMap<>();
+    private final Timer filterTimer;
+    private final Timer restResolverTimer;
+    private final Timer htmlResolverTimer;
+
+    public MicrometerExceptionHandlerMetrics(@Nonnull MeterRegistry registry, int maxExceptionTags) {
+        Assert.notNull(registry, AssertMessageConst.NOT_NULL);
+        this.registry = registry;
+        this.maxExceptionTags = maxExceptionTags;
+        this.filterTimer = Timer.builder(FILTER_METER).description("Duration of handling exceptions in the filter").register(registry);    // $NON-NLS-1$
+        this.restResolverTimer = Timer.builder(RESOLVER_METER).description("Duration of resolving exceptions in the resolver").tag("type", "rest").register(registry);    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        this.htmlResolverTimer = Timer.builder(RESOLVER_METER).description("Duration of resolving exceptions in the resolver").tag("type", "html").register(registry);    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+    }
+
+    @Override
+    public void recordError(@Nonnull HttpStatusCode status, @Nullable Throwable rootCause, boolean html) {
+        ErrorKey key = new ErrorKey(status.value(), getExceptionTag(rootCause), html);
+        errorCounters.computeIfAbsent(key, element -> Counter.builder(ERRORS_METER).description("Number of errors handled by the error controller")    // $NON-NLS-1$
+            .tag("status", String.valueOf(element.status())).tag("exception", element.exception()).tag("type", element.html() ? "html" : "rest")    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$
+            .register(registry)).increment();
+    }
+
+    @Override
+    public void recordFilterHandling(long nanos) {
+        filterTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordResolving(long nanos, boolean html) {
+        (html ? htmlResolverTimer : restResolverTimer).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordRendering(@Nonnull String engine, long nanos) {
+        renderTimers.computeIfAbsent(engine, element -> Timer.builder(RENDER_METER).description("Duration of rendering error views").tag("engine", element).register(registry))    // $NON-NLS-1$ // $NON-NLS-2$
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Registers the meters of the given asynchronous publisher
+     *
+     * @param publisher the asynchronous publisher of exception events
+     */
+    public void bindPublisher(@Nonnull AsyncExceptionEventPublisher publisher) {
+        Gauge.builder(PUBLISHER_METER + ".queue.depth", publisher, AsyncExceptionEventPublisher::getQueueDepth).description("Number of events waiting in the queue").register(registry);    // $NON-NLS-1$ // $NON-NLS-2$
+        Gauge.builder(PUBLISHER_METER + ".queue.capacity", publisher, AsyncExceptionEventPublisher::getQueueCapacity).description("Capacity of the queue").register(registry);    // $NON-NLS-1$ // $NON-NLS-2$
+        FunctionCounter.builder(PUBLISHER_METER + ".published", publisher, AsyncExceptionEventPublisher::getPublishedCount).description("Number of events dispatched").register(registry);    // $NON-NLS-1$ // $NON-NLS-2$
+        FunctionCounter.builder(PUBLISHER_METER + ".dropped", publisher, AsyncExceptionEventPublisher::getDroppedCount).description("Number of events dropped").register(registry);    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    /**
+     * Registers the meters of the given render guard
+     *
+     * @param guard the guard of rendering the error views
+     */
+    public void bindRenderGuard(@Nonnull ErrorRenderGuard guard) {
+        Gauge.builder(RENDER_GUARD_METER + ".open", guard, element -> element.isOpen() ? 1.0D : 0.0D).description("Whether the breaker is open or not").register(registry);    // $NON-NLS-1$ // $NON-NLS-2$
+        FunctionCounter.builder(RENDER_GUARD_METER + ".rejected", guard, ErrorRenderGuard::getRejectedCount).description("Number of renders rejected by the bulkhead or the breaker").register(registry);    // $NON-NLS-1$ // $NON-NLS-2$
+        FunctionCounter.builder(RENDER_GUARD_METER + ".fallback", guard, ErrorRenderGuard::getFallbackCount).description("Number of built-in pages written").register(registry);    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Nonnull
+    private String getExceptionTag(@Nullable Throwable rootCause) {
+        if (rootCause == null) {
+            return NONE_TAG;
+        }
+        String result = rootCause.getClass().getName();
+        if (exceptionTags.contains(result)) {
+            return result;
+        }
+        // Racing threads may exceed the limit slightly, which is acceptable
+        if (exceptionTags.size() < maxExceptionTags) {
+            exceptionTags.add(result);
+            return result;
+        }
+        return OTHER_TAG;
+    }
+
+    private record ErrorKey(int status, @Nonnull String exception, boolean html) {
+    }
+}
@@ -0,0 +1,593 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+
+/**
+ * Negative cache of the paths that responded http 404 repeatedly
+ * <p>
+ * The 404 occurrences are counted per path by a count-min sketch, whose counters are halved periodically, so the paths that are not hot anymore fade out.
+ * A path that reaches {@code admitCount} has its next 404 response captured, and then answered by the filter directly, until {@code timeToLive} elapses.
+ * When the cache is full, the least recently served path is evicted. The responses are keyed by path, query string, request type, accept header, origin and locale, for the get requests only.
+ * The requests that carry any credentials, such as a session, a cookie, an authorization header or a principal, are never cached nor answered from the cache,
+ * since their responses may contain per-user content, and the cached responses are replayed before any security filter.
+ * The html responses are cached only if {@code cacheHtml} is {@code true}, as the layouts of the html pages are more likely to print per-user content.
+ * The headers of the captured response are replayed along with its body, except the ones that belong to a single response, such as {@code Set-Cookie}.
+ * The callers should look up the responses of the candidate paths only, so that the key is not resolved for the paths that are never cached.
+ * Only the 404 responses of the requests that no handler matched should be recorded, the 404 responses of a handler may depend on anything else.
+ * If the error body prints its timestamp in epoch milliseconds or in the iso format of jackson, the timestamp is refreshed on each replay,
+ * otherwise the bodies with a known timestamp are not cached.
+ * The cache is cleared when the application context is refreshed, so the newly deployed routes become reachable at once
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.filter.FilterExceptionHandlerFilter
+ */
+@Getter
+@SuppressWarnings("unused")
+public class NotFoundPathCache implements ApplicationListener<ContextRefreshedEvent> {
+    public static final String TIMESTAMP_ATTRIBUTE = NotFoundPathCache.class.getName() + ".TIMESTAMP";    // $NON-NLS-1$
+    private static final DateTimeFormatter ISO_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'+00:00'").withZone(ZoneOffset.UTC);    // $NON-NLS-1$
+    private static final int SKETCH_DEPTH = 4;
+    private static final int MIN_SKETCH_WIDTH = 256;
+    private static final Set<String> TRANSIENT_HEADERS = createTransientHeaders();
+
+    private final int admitCount;
+    private final int maxPaths;
+    private final Duration timeToLive;
+    private final int maxBodySize;
+    private final boolean cacheHtml;
+
+    @Getter(value = AccessLevel.NONE)
+    private final long ttlNanos;
+
+    @Getter(value = AccessLevel.NONE)
+    private final int widthMask;
+
+    @Getter(value = AccessLevel.NONE)
+    private final AtomicIntegerArray sketch;
+
+    @Getter(value = AccessLevel.NONE)
+    private final long resetSize;
+
+    @Getter(value = AccessLevel.NONE)
+    private final AtomicLong additions = new AtomicLong();
+
+    @Getter(value = AccessLevel.NONE)
+    private final Map<PathKey, CachedResponse> responses;
+
+    /**
+     * Constructs a new {@link com.yookue.springstarter.exceptionhandler.support.NotFoundPathCache} instance
+     *
+     * @param admitCount the number of 404 occurrences of a path, to admit it to the cache
+     * @param maxPaths the maximum number of the responses in the cache
+     * @param timeToLive the time to live of the responses
+     * @param maxBodySize the maximum size of a response body in bytes, the larger ones are not cached
+     */
+    public NotFoundPathCache(int admitCount, int maxPaths, @Nonnull Duration timeToLive, int maxBodySize) {
+        this(admitCount, maxPaths, timeToLive, maxBodySize, false);
+    }
+
+    /**
+     * Constructs a new {@link com.yookue.springstarter.exceptionhandler.support.NotFoundPathCache} instance
+     *
+     * @param admitCount the number of 404 occurrences of a path, to admit it to the cache
+     * @param maxPaths the maximum number of the responses in the cache
+     * @param timeToLive the time to live of the responses
+     * @param maxBodySize the maximum size of a response body in bytes, the larger ones are not cached
+     * @param cacheHtml whether to cache the responses of the html requests or not, otherwise the rest requests only
+     */
+    public NotFoundPathCache(int admitCount, int maxPaths, @Nonnull Duration timeToLive, int maxBodySize, boolean cacheHtml) {
+        this.cacheHtml = cacheHtml;
+        this.admitCount = Math.max(admitCount, 1);
+        this.maxPaths = maxPaths;
+        this.timeToLive = timeToLive;
+        this.maxBodySize = maxBodySize;
+        this.ttlNanos = (timeToLive.isZero() || timeToLive.isNegative()) ? 1L : timeToLive.toNanos();
+        int width = Integer.highestOneBit(Math.max(maxPaths * 8, MIN_SKETCH_WIDTH) - 1) << 1;
+        this.widthMask = width - 1;
+        this.sketch = new AtomicIntegerArray(width * SKETCH_DEPTH);
+        this.resetSize = width * 10L;
+        this.responses = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(@Nonnull Map.Entry<PathKey, CachedResponse> eldest) {
+                return size() > NotFoundPathCache.this.maxPaths;
+            }
+        });
+    }
+
+    @Override
+    public void onApplicationEvent(@Nonnull ContextRefreshedEvent event) {
+        clear();
+    }
+
+    /**
+     * Returns whether the response of the given request could be cached or not
+     * <p>
+     * The requests that carry any credentials are never cached
+     *
+     * @param request the servlet request
+     * @param path the path of the request, without query string
+     *
+     * @return whether the response of the given request could be cached or not
+     */
+    public boolean isCacheable(@Nonnull HttpServletRequest request, @Nullable String path) {
+        return maxPaths > 0 && StringUtils.isNotEmpty(path) && HttpMethod.GET.matches(request.getMethod()) && isAnonymous(request);
+    }
+
+    /**
+     * Returns the key of the given request, or {@code null} if the request is not cacheable
+     *
+     * @param request the servlet request
+     * @param path the path of the request, without query string, the query string is taken from the request
+     * @param rest indicates is a rest request if true, otherwise is a html request
+     * @param locale the locale that resolved by the filter, maybe {@code null}
+     *
+     * @return the key of the given request, or {@code null} if the request is not cacheable
+     */
+    @Nullable
+    public PathKey getKey(@Nonnull HttpServletRequest request, @Nullable String path, boolean rest, @Nullable Locale locale) {
+        if ((!rest && !cacheHtml) || !isCacheable(request, path)) {
+            return null;
+        }
+        return new PathKey(path, request.getQueryString(), rest, request.getHeader(HttpHeaders.ACCEPT), request.getHeader(HttpHeaders.ORIGIN), locale, request.getHeader(HttpHeaders.ACCEPT_LANGUAGE));
+    }
+
+    /**
+     * Writes the cached response of the given key to the response
+     *
+     * @param key the key of the request
+     * @param response the servlet response
+     *
+     * @return whether the cached response has been written or not
+     */
+    public boolean writeResponse(@Nonnull PathKey key, @Nonnull HttpServletResponse response) throws IOException {
+        CachedResponse cached = responses.get(key);
+        if (cached == null) {
+            return false;
+        }
+        long now = System.nanoTime();
+        if (now - cached.createTime > ttlNanos) {
+            responses.remove(key, cached);
+            return false;
+        }
+        // A replay is a 404 occurrence as well, which keeps the served paths candidates
+        increment(key.path().hashCode());
+        ErrorPageCache.ErrorPage page = cached.page;
+        response.setStatus(HttpStatus.NOT_FOUND.value());
+        if (StringUtils.isNotBlank(page.contentType())) {
+            response.setContentType(page.contentType());
+        }
+        for (Map.Entry<String, List<String>> entry : cached.headers.entrySet()) {
+            // The headers that the outer filters have written again are overwritten, rather than doubled
+            for (int i = 0; i < entry.getValue().size(); i++) {
+                if (i == 0) {
+                    response.setHeader(entry.getKey(), entry.getValue().get(i));
+                } else {
+                    response.addHeader(entry.getKey(), entry.getValue().get(i));
+                }
+            }
+        }
+        for (String vary : cached.varyHeaders) {
+            response.addHeader(HttpHeaders.VARY, vary);
+        }
+        byte[] body = page.body();
+        if (cached.timestampFormat != null) {
+            byte[] timestamp = cached.timestampFormat.format(Instant.now());
+            body = new byte[page.body().length - cached.timestampLength + timestamp.length];
+            System.arraycopy(page.body(), 0, body, 0, cached.timestampOffset);
+            System.arraycopy(timestamp, 0, body, cached.timestampOffset, timestamp.length);
+            int suffixOffset = cached.timestampOffset + cached.timestampLength;
+            System.arraycopy(page.body(), suffixOffset, body, cached.timestampOffset + timestamp.length, page.body().length - suffixOffset);
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        response.flushBuffer();
+        return true;
+    }
+
+    /**
+     * Returns whether the given path may have a cached response, or its next 404 is going to be admitted, so that its response should be captured
+     *
+     * @param path the path of the request, without query string
+     *
+     * @return whether the given path may have a cached response, or its next 404 is going to be admitted
+     */
+    public boolean isCandidate(@Nonnull String path) {
+        return estimate(path.hashCode()) + 1 >= admitCount;
+    }
+
+    /**
+     * Records a 404 of the given key, and admits the captured response if the path is hot
+     * <p>
+     * The caller should record the requests that no handler matched only.
+     * The credentials of the request are checked again, as the session or the principal may have been established while it was processed
+     *
+     * @param key the key of the request
+     * @param request the servlet request, which may hold the timestamp of the error body in {@link #TIMESTAMP_ATTRIBUTE}
+     * @param response the servlet response, captures the body if it is a {@link com.yookue.springstarter.exceptionhandler.support.NotFoundPathCache.CapturingResponse}
+     */
+    public void recordNotFound(@Nonnull PathKey key, @Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response) {
+        int hash = key.path().hashCode();
+        increment(hash);
+        if (!(response instanceof CapturingResponse capturing) || estimate(hash) < admitCount || !isAnonymous(request)) {
+            return;
+        }
+        byte[] body = capturing.getCapturedBody();
+        if (body == null || body.length == 0) {
+            // Nothing written in this dispatch, such as the body of the error dispatch of the container
+            return;
+        }
+        CachedResponse cached = new CachedResponse(new ErrorPageCache.ErrorPage(body, response.getContentType()), System.nanoTime(), getHeaders(response), getVaryHeaders(response));
+        Object timestamp = request.getAttribute(TIMESTAMP_ATTRIBUTE);
+        if (timestamp instanceof Date date && !cached.locateTimestamp(date.toInstant())) {
+            // The body prints the timestamp in an unknown format, or not at all, either way it cannot be refreshed
+            return;
+        }
+        responses.put(key, cached);
+    }
+
+    /**
+     * Removes all the responses and the counters
+     */
+    public void clear() {
+        responses.clear();
+        for (int i = 0; i < sketch.length(); i++) {
+            sketch.set(i, 0);
+        }
+        additions.set(0L);
+    }
+
+    public int size() {
+        return responses.size();
+    }
+
+    private int estimate(int hash) {
+        int result = Integer.MAX_VALUE;
+        int step = Integer.rotateLeft(hash * 0x9E3779B9, 16) | 1;
+        for (int i = 0; i < SKETCH_DEPTH; i++) {
+            result = Math.min(result, sketch.get(i * (widthMask + 1) + ((hash + i * step) & widthMask)));
+        }
+        return result;
+    }
+
+    private void increment(int hash) {
+        int step = Integer.rotateLeft(hash * 0x9E3779B9, 16) | 1;
+        for (int i = 0; i < SKETCH_DEPTH; i++) {
+            int index = i * (widthMask + 1) + ((hash + i * step) & widthMask);
+            if (sketch.get(index) < Integer.MAX_VALUE) {
+                sketch.incrementAndGet(index);
+            }
+        }
+        long count = additions.incrementAndGet();
+        if (count >= resetSize && additions.compareAndSet(count, 0L)) {
+            // Ages the counters, the halving races with the increments, which is acceptable for an estimation
+            for (int i = 0; i < sketch.length(); i++) {
+                sketch.set(i, sketch.get(i) >>> 1);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the given request carries no credentials, so that its response is the same for anyone
+     */
+    private static boolean isAnonymous(@Nonnull HttpServletRequest request) {
+        return request.getSession(false) == null && request.getHeader(HttpHeaders.COOKIE) == null && request.getHeader(HttpHeaders.AUTHORIZATION) == null && request.getUserPrincipal() == null;
+    }
+
+    @Nonnull
+    private static Map<String, List<String>> getHeaders(@Nonnull HttpServletResponse response) {
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (String name : response.getHeaderNames()) {
+            if (!TRANSIENT_HEADERS.contains(name)) {
+                result.putIfAbsent(name, List.copyOf(response.getHeaders(name)));
+            }
+        }
+        return result.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(result);
+    }
+
+    @Nonnull
+    private static Set<String> createTransientHeaders() {
+        // The headers that belong to a single response, or that are written by the cache itself
+        Set<String> result = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        result.addAll(List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.CONNECTION, HttpHeaders.DATE, HttpHeaders.SET_COOKIE, HttpHeaders.VARY));
+        return Collections.unmodifiableSet(result);
+    }
+
+    @Nonnull
+    private static String[] getVaryHeaders(@Nonnull HttpServletResponse response) {
+        Collection<String> headers = response.getHeaders(HttpHeaders.VARY);
+        boolean accept = headers.stream().anyMatch(header -> StringUtils.containsIgnoreCase(header, HttpHeaders.ACCEPT) || StringUtils.contains(header, '*'));
+        String[] result = headers.toArray(new String[headers.size() + (accept ? 0 : 1)]);
+        if (!accept) {
+            // The responses are keyed by the accept header, so are the caches in between
+            result[headers.size()] = HttpHeaders.ACCEPT;
+        }
+        return result;
+    }
+
+    public record PathKey(@Nonnull String path, @Nullable String query, boolean rest, @Nullable String accept, @Nullable String origin, @Nullable Locale locale, @Nullable String acceptLanguage) {
+    }
+
+
+    /**
+     * Formats of the timestamp that could be refreshed in a cached body
+     *
+     * @author David Hsing
+     */
+    private enum TimestampFormat {
+        EPOCH_MILLIS {
+            @Override
+            byte[] format(@Nonnull Instant instant) {
+                return Long.toString(instant.toEpochMilli()).getBytes(StandardCharsets.US_ASCII);
+            }
+        },
+        ISO_DATE_TIME {
+            @Override
+            byte[] format(@Nonnull Instant instant) {
+                return ISO_TIMESTAMP.format(instant).getBytes(StandardCharsets.US_ASCII);
+            }
+        };
+
+        abstract byte[] format(@Nonnull Instant instant);
+    }
+
+
+    /**
+     * Cached response of a path
+     *
+     * @author David Hsing
+     */
+    private static class CachedResponse {
+        private final ErrorPageCache.ErrorPage page;
+        private final long createTime;
+        private final Map<String, List<String>> headers;
+        private final String[] varyHeaders;
+        private TimestampFormat timestampFormat;
+        private int timestampOffset;
+        private int timestampLength;
+
+        private CachedResponse(@Nonnull ErrorPageCache.ErrorPage page, long createTime, @Nonnull Map<String, List<String>> headers, @Nonnull String[] varyHeaders) {
+            this.page = page;
+            this.createTime = createTime;
+            this.headers = headers;
+            this.varyHeaders = varyHeaders;
+        }
+
+        /**
+         * Locates the only occurrence of the given timestamp in the body, in any of the known formats
+         *
+         * @return whether the timestamp has been located or not
+         */
+        private boolean locateTimestamp(@Nonnull Instant timestamp) {
+            for (TimestampFormat format : TimestampFormat.values()) {
+                byte[] needle = format.format(timestamp);
+                int offset = indexOf(page.body(), needle, 0);
+                if (offset >= 0 && indexOf(page.body(), needle, offset + needle.length) < 0) {
+                    timestampFormat = format;
+                    timestampOffset = offset;
+                    timestampLength = needle.length;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static int indexOf(@Nonnull byte[] source, @Nonnull byte[] target, int fromIndex) {
+            outer:
+            for (int i = fromIndex; i <= source.length - target.length; i++) {
+                for (int j = 0; j < target.length; j++) {
+                    if (source[i + j] != target[j]) {
+                        continue outer;
+                    }
+                }
+                return i;
+            }
+            return -1;
+        }
+    }
+
+
+    /**
+     * {@link jakarta.servlet.http.HttpServletResponseWrapper} that copies the body being written, up to a limit
+     * <p>
+     * The body is written through to the response as usual, so nothing has to be flushed afterwards, even if the request goes async
+     *
+     * @author David Hsing
+     */
+    public static class CapturingResponse extends HttpServletResponseWrapper {
+        private final int limit;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        private final StringBuilder chars = new StringBuilder(512);
+        private boolean overflow;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        public CapturingResponse(@Nonnull HttpServletResponse response, int limit) {
+            super(response);
+            this.limit = limit;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new CapturingOutputStream(super.getOutputStream());
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new CapturingWriter(super.getWriter()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            clearCapture();
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            clearCapture();
+        }
+
+        /**
+         * Returns the captured body, or {@code null} if the body exceeds the limit
+         *
+         * @return the captured body, or {@code null} if the body exceeds the limit
+         */
+        @Nullable
+        public byte[] getCapturedBody() {
+            if (overflow) {
+                return null;
+            }
+            if (writer != null) {
+                writer.flush();
+                return chars.toString().getBytes(Charset.forName(getCharacterEncoding()));
+            }
+            return bytes.toByteArray();
+        }
+
+        private void clearCapture() {
+            bytes.reset();
+            chars.setLength(0);
+            overflow = false;
+        }
+
+        private boolean isCapturable(int length) {
+            if (!overflow && bytes.size() + chars.length() + length > limit) {
+                overflow = true;
+            }
+            return !overflow;
+        }
+
+
+        private class CapturingOutputStream extends ServletOutputStream {
+            private final ServletOutputStream delegate;
+
+            private CapturingOutputStream(@Nonnull ServletOutputStream delegate) {
+                this.delegate = delegate;
+            }
+
+            @Override
+            public void write(int value) throws IOException {
+                delegate.write(value);
+                if (isCapturable(1)) {
+                    bytes.write(value);
+                }
+            }
+
+            @Override
+            public void write(@Nonnull byte[] buffer, int offset, int length) throws IOException {
+                delegate.write(buffer, offset, length);
+                if (isCapturable(length)) {
+                    bytes.write(buffer, offset, length);
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                delegate.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                delegate.close();
+            }
+
+            @Override
+            public boolean isReady() {
+                return delegate.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+                delegate.setWriteListener(listener);
+            }
+        }
+
+
+        private class CapturingWriter extends Writer {
+            private final Writer delegate;
+
+            private CapturingWriter(@Nonnull Writer delegate) {
+                this.delegate = delegate;
+            }
+
+            @Override
+            public void write(@Nonnull char[] buffer, int offset, int length) throws IOException {
+                delegate.write(buffer, offset, length);
+                if (isCapturable(length)) {
+                    chars.append(buffer, offset, length);
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                delegate.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                delegate.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import lombok.Getter;
+
+
+/**
+ * Matcher of the excluded paths, which compiles the ant patterns only once
+ * <p>
+ * The literal paths are matched by a hash set, the patterns like {@code /foo/bar/**} are matched by a segment trie,
+ * so the cost of these two kinds does not grow with the number of patterns. The other patterns are matched by {@link org.springframework.util.AntPathMatcher}
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.exceptionhandler.filter.FilterExceptionHandlerFilter
+ */
+@SuppressWarnings("unused")
+public class PathExcludeMatcher {
+    private static final String ANY_SUFFIX = "/**";    // $NON-NLS-1$
+    private static final char[] WILDCARDS = {'*', '?', '{'};
+
+    private final Set<String> literalPaths = new HashSet<>();
+    private final PrefixNode prefixRoot = new PrefixNode();
+    private final List<String> otherPatterns = new ArrayList<>();
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+
+    @Getter
+    private final boolean empty;
+
+    public PathExcludeMatcher(@Nullable Collection<String> patterns) {
+        if (patterns != null) {
+            for (String pattern : patterns) {
+                if (StringUtils.isBlank(pattern)) {
+                    continue;
+                }
+                if (!StringUtils.containsAny(pattern, WILDCARDS)) {
+                    literalPaths.add(pattern);
+                } else if (pattern.endsWith(ANY_SUFFIX) && !StringUtils.containsAny(StringUtils.removeEnd(pattern, ANY_SUFFIX), WILDCARDS)) {
+                    prefixRoot.addPrefix(StringUtils.removeEnd(pattern, ANY_SUFFIX));
+                } else {
+                    otherPatterns.add(pattern);
+                }
+            }
+        }
+        this.empty = literalPaths.isEmpty() && !prefixRoot.hasChildren() && !prefixRoot.terminal && otherPatterns.isEmpty();
+    }
+
+    /**
+     * Returns whether the given path matches any of the patterns or not
+     *
+     * @param path the path to match
+     *
+     * @return whether the given path matches any of the patterns or not
+     */
+    public boolean matches(@Nullable String path) {
+        if (empty || path == null) {
+            return false;
+        }
+        if (literalPaths.contains(path) || prefixRoot.matchPrefix(path)) {
+            return true;
+        }
+        for (String pattern : otherPatterns) {
+            if (pathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Node of the segment trie for path prefixes
+     *
+     * @author David Hsing
+     */
+    private static class PrefixNode {
+        private Map<String, PrefixNode> children;
+        private boolean terminal;
+
+        private void addPrefix(@Nonnull String prefix) {
+            PrefixNode node = this;
+            for (String segment : StringUtils.split(prefix, '/')) {
+                if (node.children == null) {
+                    node.children = new HashMap<>();
+                }
+                node = node.children.computeIfAbsent(segment, element -> new PrefixNode());
+            }
+            node.terminal = true;
+        }
+
+        private boolean hasChildren() {
+            return children != null && !children.isEmpty();
+        }
+
+        private boolean matchPrefix(@Nonnull String path) {
+            PrefixNode node = this;
+            int length = path.length(), start = 0;
+            while (true) {
+                if (node.terminal) {
+                    return true;
+                }
+                if (node.children == null) {
+                    return false;
+                }
+                while (start < length && path.charAt(start) == '/') {
+                    start++;
+                }
+                if (start >= length) {
+                    return false;
+                }
+                int end = path.indexOf('/', start);
+                if (end < 0) {
+                    end = length;
+                }
+                node = node.children.get(path.substring(start, end));
+                if (node == null) {
+                    return false;
+                }
+                start = end;
+            }
+        }
+    }
+}
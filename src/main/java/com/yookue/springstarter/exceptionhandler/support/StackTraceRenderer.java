@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.util.ConcurrentLruCache;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+
+/**
+ * Renderer of the stack trace for error attributes
+ * <p>
+ * The layout follows {@link java.lang.Throwable#printStackTrace()}, including the suppressed throwables and the "... n more" elision of the frames in common with the enclosing trace.
+ * The frames of each throwable are limited by depth, the frames of the excluded packages are collapsed, and the whole trace is truncated by length.
+ * The rendered frames are cached by the classes and the frames of the throwable tree, excluding the messages, so a repeating failure is rendered only once,
+ * while the header lines of the throwables are rendered on every call. The least recently used traces are evicted when the cache is full
+ *
+ * @author David Hsing
+ * @see org.apache.commons.lang3.exception.ExceptionUtils#getStackTrace(java.lang.Throwable)
+ * @see com.yookue.springstarter.exceptionhandler.controller.AbstractBasicErrorController
+ */
+@Getter
+@SuppressWarnings("unused")
+public class StackTraceRenderer {
+    private static final String CAUSED_BY = "Caused by: ";    // $NON-NLS-1$
+    private static final String SUPPRESSED = "Suppressed: ";    // $NON-NLS-1$
+    private static final String CIRCULAR_REFERENCE = "[CIRCULAR REFERENCE: ";    // $NON-NLS-1$
+    private static final String FRAME_PREFIX = "\tat ";    // $NON-NLS-1$
+    private static final String TRUNCATED = "\t... (truncated)";    // $NON-NLS-1$
+    private static final int MAX_THROWABLES = 32;
+
+    private final int maxFrames;
+    private final int maxLength;
+    private final int cacheLimit;
+    private final String[] excludePackages;
+
+    @Getter(value = AccessLevel.NONE)
+    private final ConcurrentLruCache<TraceKey, String[]> traces;
+
+    public StackTraceRenderer() {
+        this(0, 0, 0, null);
+    }
+
+    /**
+     * Constructs a new {@link com.yookue.springstarter.exceptionhandler.support.StackTraceRenderer} instance
+     *
+     * @param maxFrames the maximum number of frames of each throwable, non-positive means unlimited
+     * @param maxLength the maximum length of the rendered trace, non-positive means unlimited
+     * @param cacheLimit the maximum number of the rendered traces in the cache, non-positive means no cache
+     * @param excludePackages the package prefixes whose frames should be collapsed
+     */
+    public StackTraceRenderer(int maxFrames, int maxLength, int cacheLimit, @Nullable Collection<String> excludePackages) {
+        this.maxFrames = maxFrames;
+        this.maxLength = maxLength;
+        this.cacheLimit = cacheLimit;
+        this.excludePackages = (excludePackages == null) ? new String[0] : excludePackages.stream().filter(StringUtils::isNotBlank).toArray(String[]::new);
+        this.traces = (cacheLimit <= 0) ? null : new ConcurrentLruCache<>(cacheLimit, this::renderBlocks);
+    }
+
+    /**
+     * Returns the rendered stack trace of the given throwable
+     *
+     * @param throwable the throwable to render
+     *
+     * @return the rendered stack trace of the given throwable, or an empty string if the throwable is {@code null}
+     */
+    @Nonnull
+    public String render(@Nullable Throwable throwable) {
+        if (throwable == null) {
+            return StringUtils.EMPTY;
+        }
+        List<TraceNode> nodes = getNodes(throwable);
+        TraceKey key = new TraceKey(nodes);
+        String[] blocks = (traces == null) ? renderBlocks(key) : traces.get(key);
+        StringBuilder builder = new StringBuilder(1024);
+        for (int i = 0; i < nodes.size(); i++) {
+            TraceNode node = nodes.get(i);
+            builder.append(node.prefix()).append(node.caption());
+            if (node.circular()) {
+                builder.append(CIRCULAR_REFERENCE).append(node.throwable()).append(']').append(System.lineSeparator());
+            } else {
+                builder.append(node.throwable()).append(System.lineSeparator()).append(blocks[i]);
+            }
+            if (maxLength > 0 && builder.length() >= maxLength) {
+                builder.setLength(maxLength);
+                return builder.append(TRUNCATED).toString();
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Removes all the rendered traces from the cache
+     */
+    public void clear() {
+        if (traces != null) {
+            traces.clear();
+        }
+    }
+
+    public int size() {
+        return (traces == null) ? 0 : traces.size();
+    }
+
+    /**
+     * Returns the throwable tree in the order of {@link java.lang.Throwable#printStackTrace()}, each throwable followed by its suppressed ones and then its cause
+     */
+    @Nonnull
+    private List<TraceNode> getNodes(@Nonnull Throwable throwable) {
+        List<TraceNode> result = new ArrayList<>(4);
+        addNodes(result, Collections.newSetFromMap(new IdentityHashMap<>()), throwable, StringUtils.EMPTY, StringUtils.EMPTY, -1);
+        return result;
+    }
+
+    private void addNodes(@Nonnull List<TraceNode> nodes, @Nonnull Set<Throwable> visited, @Nonnull Throwable throwable, @Nonnull String caption, @Nonnull String prefix, int enclosing) {
+        if (nodes.size() >= MAX_THROWABLES) {
+            return;
+        }
+        if (!visited.add(throwable)) {
+            nodes.add(new TraceNode(throwable, caption, prefix, enclosing, true));
+            return;
+        }
+        int index = nodes.size();
+        nodes.add(new TraceNode(throwable, caption, prefix, enclosing, false));
+        for (Throwable suppressed : throwable.getSuppressed()) {
+            addNodes(nodes, visited, suppressed, SUPPRESSED, prefix + "\t", index);    // $NON-NLS-1$
+        }
+        Throwable cause = throwable.getCause();
+        if (cause != null) {
+            addNodes(nodes, visited, cause, CAUSED_BY, prefix, index);
+        }
+    }
+
+    @Nonnull
+    private String[] renderBlocks(@Nonnull TraceKey key) {
+        String[] result = new String[key.frames.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = key.circulars[i] ? StringUtils.EMPTY : renderFrames(key.frames[i], (key.enclosings[i] < 0) ? null : key.frames[key.enclosings[i]], key.prefixes[i]);
+        }
+        return result;
+    }
+
+    @Nonnull
+    private String renderFrames(@Nonnull StackTraceElement[] frames, @Nullable StackTraceElement[] enclosingFrames, @Nonnull String prefix) {
+        int end = frames.length;
+        if (enclosingFrames != null) {
+            for (int i = enclosingFrames.length - 1; end > 0 && i >= 0 && frames[end - 1].equals(enclosingFrames[i]); i--) {
+                end--;
+            }
+        }
+        StringBuilder builder = new StringBuilder(1024);
+        int rendered = 0, excluded = 0;
+        for (int i = 0; i < end; i++) {
+            if (maxFrames > 0 && rendered >= maxFrames) {
+                appendElision(builder, prefix, excluded, " filtered");    // $NON-NLS-1$
+                // The frames in common are counted into the omitted ones
+                return appendElision(builder, prefix, frames.length - i, " more").toString();    // $NON-NLS-1$
+            }
+            if (isExcluded(frames[i].getClassName())) {
+                excluded++;
+                continue;
+            }
+            appendElision(builder, prefix, excluded, " filtered");    // $NON-NLS-1$
+            excluded = 0;
+            builder.append(prefix).append(FRAME_PREFIX).append(frames[i]).append(System.lineSeparator());
+            rendered++;
+            if (maxLength > 0 && builder.length() >= maxLength) {
+                // The trace is truncated anyway, no need to render the rest
+                return builder.substring(0, maxLength);
+            }
+        }
+        appendElision(builder, prefix, excluded, " filtered");    // $NON-NLS-1$
+        return appendElision(builder, prefix, frames.length - end, " more").toString();    // $NON-NLS-1$
+    }
+
+    @Nonnull
+    private StringBuilder appendElision(@Nonnull StringBuilder builder, @Nonnull String prefix, int count, @Nonnull String suffix) {
+        if (count > 0) {
+            builder.append(prefix).append("\t... ").append(count).append(suffix).append(System.lineSeparator());    // $NON-NLS-1$
+        }
+        return builder;
+    }
+
+    private boolean isExcluded(@Nullable String className) {
+        if (className == null || excludePackages.length == 0) {
+            return false;
+        }
+        for (String prefix : excludePackages) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A throwable of the tree, with its caption, its indent and the index of its enclosing throwable
+     */
+    private record TraceNode(@Nonnull Throwable throwable, @Nonnull String caption, @Nonnull String prefix, int enclosing, boolean circular) {
+    }
+
+    /**
+     * The cache key of a throwable tree, which holds the classes, the frames and the layout of the throwables, but not the messages
+     */
+    private static final class TraceKey {
+        private final Class<?>[] types;
+        private final StackTraceElement[][] frames;
+        private final String[] prefixes;
+        private final int[] enclosings;
+        private final boolean[] circulars;
+        private final int hash;
+
+        TraceKey(@Nonnull List<TraceNode> nodes) {
+            this.types = new Class<?>[nodes.size()];
+            this.frames = new StackTraceElement[nodes.size()][];
+            this.prefixes = new String[nodes.size()];
+            this.enclosings = new int[nodes.size()];
+            this.circulars = new boolean[nodes.size()];
+            int result = 17;
+            for (int i = 0; i < types.length; i++) {
+                TraceNode node = nodes.get(i);
+                types[i] = node.throwable().getClass();
+                frames[i] = node.circular() ? new StackTraceElement[0] : node.throwable().getStackTrace();
+                prefixes[i] = node.prefix();
+                enclosings[i] = node.enclosing();
+                circulars[i] = node.circular();
+                result = 31 * result + types[i].getName().hashCode();
+                result = 31 * result + prefixes[i].length();
+                result = 31 * result + enclosings[i];
+                result = 31 * result + Boolean.hashCode(circulars[i]);
+                for (StackTraceElement frame : frames[i]) {
+                    result = 31 * result + Objects.hashCode(frame.getClassName());
+                    result = 31 * result + Objects.hashCode(frame.getMethodName());
+                    result = 31 * result + frame.getLineNumber();
+                }
+            }
+            this.hash = result;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object other) {
+            return this == other || (other instanceof TraceKey that && hash == that.hash && Arrays.equals(types, that.types) && Arrays.equals(prefixes, that.prefixes)
+                && Arrays.equals(enclosings, that.enclosings) && Arrays.equals(circulars, that.circulars) && Arrays.deepEquals(frames, that.frames));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -17,26 +17,20 @@
 package com.yookue.springstarter.exceptionhandler.util;
 
 
-import java.security.GeneralSecurityException;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.validation.ValidationException;
+import org.apache.commons.lang3.ObjectUtils;
 import org.springframework.core.NestedExceptionUtils;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
-import org.springframework.validation.BindException;
-import com.yookue.commonplexus.javaseutil.exception.LawProhibitedException;
-import com.yookue.commonplexus.javaseutil.exception.MaliciousAccessException;
-import com.yookue.commonplexus.javaseutil.exception.ServerBusyException;
-import com.yookue.commonplexus.javaseutil.exception.ServerMaintenanceException;
-import com.yookue.commonplexus.javaseutil.exception.ServiceConfigException;
-import com.yookue.commonplexus.javaseutil.exception.ServiceUnavailableException;
-import com.yookue.commonplexus.javaseutil.exception.ServiceVersionException;
-import com.yookue.commonplexus.springutil.util.ClassUtilsWraps;
+import org.springframework.util.Assert;
+import org.springframework.web.servlet.HandlerMapping;
+import com.yookue.commonplexus.javaseutil.constant.AssertMessageConst;
 import com.yookue.commonplexus.springutil.util.ErrorControllerWraps;
 import com.yookue.commonplexus.springutil.util.WebUtilsWraps;
 import com.yookue.springstarter.exceptionhandler.filter.FilterExceptionHandlerFilter;
+import com.yookue.springstarter.exceptionhandler.support.ErrorStatusRegistry;
 
 
 /**
@@ -46,32 +40,124 @@ import com.yookue.springstarter.exceptionhandler.filter.FilterExceptionHandlerFi
  */
 @SuppressWarnings({"unused", "BooleanMethodIsAlwaysInverted", "UnusedReturnValue"})
 public abstract class ErrorControllerUtils {
+    private static volatile ErrorStatusRegistry statusRegistry = new ErrorStatusRegistry();
+
     public static HttpStatusCode determineErrorStatus(@Nonnull HttpServletRequest request, @Nullable HttpStatusCode status, @Nullable Throwable cause) {
+        return determineErrorStatus(null, request, status, cause);
+    }
+
+    /**
+     * Returns the determined {@link org.springframework.http.HttpStatusCode} of the given request, by the given registry
+     *
+     * @param registry the registry of the application context, {@code null} means to use the one installed into this class
+     * @param request the servlet request
+     * @param status the http status that determined
+     * @param cause the exception occurred, maybe {@code null} if http 404
+     *
+     * @return the determined {@link org.springframework.http.HttpStatusCode} of the given request, or the given status if not mapped
+     */
+    public static HttpStatusCode determineErrorStatus(@Nullable ErrorStatusRegistry registry, @Nonnull HttpServletRequest request, @Nullable HttpStatusCode status, @Nullable Throwable cause) {
         Throwable rootCause;
         if (cause == null) {
             rootCause = WebUtilsWraps.getRequestAttributeAs(request, FilterExceptionHandlerFilter.THROWABLE_ATTRIBUTE, Throwable.class);
         } else {
             rootCause = NestedExceptionUtils.getMostSpecificCause(cause);
         }
-        if (rootCause != null) {
-            if (rootCause instanceof BindException || rootCause instanceof ValidationException) {
-                return HttpStatus.BAD_REQUEST;
-            } else if (rootCause instanceof GeneralSecurityException || ClassUtilsWraps.isAssignableValue("org.springframework.security.core.AuthenticationException", rootCause)) {    // $NON-NLS-1$
-                return HttpStatus.FORBIDDEN;
-            } else if (rootCause instanceof MaliciousAccessException) {
-                return HttpStatus.I_AM_A_TEAPOT;
-            } else if (rootCause instanceof ServerBusyException) {
-                return HttpStatus.TOO_MANY_REQUESTS;
-            } else if (rootCause instanceof LawProhibitedException) {
-                return HttpStatus.UNAVAILABLE_FOR_LEGAL_REASONS;
-            } else if (rootCause instanceof ServerMaintenanceException || rootCause instanceof ServiceUnavailableException) {
-                return HttpStatus.SERVICE_UNAVAILABLE;
-            } else if (rootCause instanceof ServiceVersionException) {
-                return HttpStatus.HTTP_VERSION_NOT_SUPPORTED;
-            } else if (rootCause instanceof ServiceConfigException) {
-                return HttpStatus.VARIANT_ALSO_NEGOTIATES;
-            }
+        HttpStatusCode result = ObjectUtils.defaultIfNull(registry, statusRegistry).getStatus(rootCause);
+        if (result != null) {
+            return result;
         }
         return (status != null) ? status : ErrorControllerWraps.getErrorStatus(request);
     }
+
+    /**
+     * Returns the determined {@link org.springframework.http.HttpStatusCode} of the given exception, without a servlet request
+     * <p>
+     * Used by the reactive exception handler
+     *
+     * @param status the http status that determined
+     * @param cause the exception occurred
+     *
+     * @return the determined {@link org.springframework.http.HttpStatusCode} of the given exception, or the given status if not mapped
+     */
+    public static HttpStatusCode determineErrorStatus(@Nullable HttpStatusCode status, @Nullable Throwable cause) {
+        return determineErrorStatus(null, status, cause);
+    }
+
+    /**
+     * Returns the determined {@link org.springframework.http.HttpStatusCode} of the given exception by the given registry, without a servlet request
+     *
+     * @param registry the registry of the application context, {@code null} means to use the one installed into this class
+     * @param status the http status that determined
+     * @param cause the exception occurred
+     *
+     * @return the determined {@link org.springframework.http.HttpStatusCode} of the given exception, or the given status if not mapped
+     */
+    public static HttpStatusCode determineErrorStatus(@Nullable ErrorStatusRegistry registry, @Nullable HttpStatusCode status, @Nullable Throwable cause) {
+        HttpStatusCode result = ObjectUtils.defaultIfNull(registry, statusRegistry).getStatus((cause == null) ? null : NestedExceptionUtils.getMostSpecificCause(cause));
+        return (result != null) ? result : status;
+    }
+
+    /**
+     * Returns the best matching pattern of the handler that failed
+     * <p>
+     * The pattern kept by the {@link com.yookue.springstarter.exceptionhandler.filter.FilterExceptionHandlerFilter} takes precedence,
+     * since the error dispatch overwrites the pattern with the one of the error controller
+     *
+     * @param request the servlet request
+     *
+     * @return the best matching pattern of the handler that failed, or {@code null} if no handler matched
+     */
+    @Nullable
+    public static String getErrorPattern(@Nonnull HttpServletRequest request) {
+        String result = WebUtilsWraps.getRequestAttributeAs(request, FilterExceptionHandlerFilter.PATTERN_ATTRIBUTE, String.class);
+        if (result == null && request.getDispatcherType() != DispatcherType.ERROR) {
+            result = WebUtilsWraps.getRequestAttributeAs(request, HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, String.class);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the registry installed into this class
+     * <p>
+     * Only a fallback of the static methods, which is shared by all the application contexts in the jvm.
+     * The resolver, the controllers and the reactive handler use the registry bean of their own application context
+     *
+     * @return the registry installed into this class
+     */
+    @Nonnull
+    public static ErrorStatusRegistry getStatusRegistry() {
+        return statusRegistry;
+    }
+
+    /**
+     * Sets the registry that maps exception classes to http statuses
+     *
+     * @param registry the registry that maps exception classes to http statuses
+     *
+     * @see com.yookue.springstarter.exceptionhandler.support.ErrorStatusRegistryInstaller
+     */
+    public static synchronized void setStatusRegistry(@Nonnull ErrorStatusRegistry registry) {
+        Assert.notNull(registry, AssertMessageConst.NOT_NULL);
+        statusRegistry = registry;
+    }
+
+    /**
+     * Replaces the registry that maps exception classes to http statuses, only if the current registry is the expected one
+     * <p>
+     * Usually invoked by the {@link com.yookue.springstarter.exceptionhandler.support.ErrorStatusRegistryInstaller} on context startup and shutdown
+     *
+     * @param expected the registry that expected to be current
+     * @param registry the registry that maps exception classes to http statuses
+     *
+     * @return whether the registry is replaced or not
+     */
+    public static synchronized boolean replaceStatusRegistry(@Nonnull ErrorStatusRegistry expected, @Nonnull ErrorStatusRegistry registry) {
+        Assert.notNull(registry, AssertMessageConst.NOT_NULL);
+        if (statusRegistry != expected) {
+            return false;
+        }
+        statusRegistry = registry;
+        return true;
+    }
 }
@@ -17,12 +17,14 @@
 package com.yookue.springstarter.exceptionhandler;
 
 
+import java.util.concurrent.CompletableFuture;
 import org.mockito.exceptions.base.MockitoException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.servlet.ModelAndView;
 import com.yookue.commonplexus.javaseutil.exception.MaliciousAccessException;
 
@@ -40,4 +42,16 @@ class MockApplicationController {
     public ResponseEntity<?> mock500() {
         throw new MockitoException("Don't worry, this is a mock message");
     }
+
+    @GetMapping(path = "/mock-deferred")
+    @ResponseBody
+    public DeferredResult<String> mockDeferred() {
+        return new DeferredResult<>(60_000L);
+    }
+
+    @GetMapping(path = "/mock-future")
+    @ResponseBody
+    public CompletableFuture<String> mockFuture() {
+        return CompletableFuture.failedFuture(new MockitoException("Don't worry, this is a mock message"));
+    }
 }
@@ -18,6 +18,8 @@ package com.yookue.springstarter.exceptionhandler;
 
 
 import java.net.URI;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
@@ -28,6 +30,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockAsyncContext;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
@@ -76,4 +79,31 @@ abstract class MockApplicationTest {
         log.info("{}: Response:{}{}", methodName, StringUtils.repeat(System.lineSeparator(), 2), content);
         Assertions.assertNotNull(content);
     }
+
+    @Test
+    void errorDeferredTimeout() throws Exception {
+        String methodName = StackTraceWraps.getExecutingMethodName();
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(URI.create("/mock-deferred")).header(HttpHeaderConst.X_REQUESTED_WITH, HttpHeaderConst.XML_HTTP_REQUEST);    // $NON-NLS-1$
+        MvcResult started = mockMvc.perform(builder).andExpect(MockMvcResultMatchers.request().asyncStarted()).andReturn();
+        MockAsyncContext context = (MockAsyncContext) started.getRequest().getAsyncContext();
+        Assertions.assertNotNull(context);
+        for (AsyncListener listener : context.getListeners()) {
+            listener.onTimeout(new AsyncEvent(context, started.getRequest(), started.getResponse()));
+        }
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(started)).andExpect(MockMvcResultMatchers.status().is5xxServerError()).andReturn();
+        String content = result.getResponse().getContentAsString();
+        log.info("{}: Response:{}{}", methodName, StringUtils.repeat(System.lineSeparator(), 2), content);
+        Assertions.assertTrue(StringUtils.isNotBlank(content));
+    }
+
+    @Test
+    void errorFailedFuture() throws Exception {
+        String methodName = StackTraceWraps.getExecutingMethodName();
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(URI.create("/mock-future")).header(HttpHeaderConst.X_REQUESTED_WITH, HttpHeaderConst.XML_HTTP_REQUEST);    // $NON-NLS-1$
+        MvcResult started = mockMvc.perform(builder).andExpect(MockMvcResultMatchers.request().asyncStarted()).andReturn();
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(started)).andExpect(MockMvcResultMatchers.status().isInternalServerError()).andReturn();
+        String content = result.getResponse().getContentAsString();
+        log.info("{}: Response:{}{}", methodName, StringUtils.repeat(System.lineSeparator(), 2), content);
+        Assertions.assertTrue(StringUtils.isNotBlank(content));
+    }
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.filter;
+
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+import com.yookue.springstarter.exceptionhandler.property.ExceptionHandlerProperties;
+
+
+@SuppressWarnings("unused")
+class FilterExceptionHandlerFilterTest {
+    @Test
+    void resolveRawAsyncOnce() throws Exception {
+        AtomicInteger resolved = new AtomicInteger();
+        MockHttpServletRequest request = createRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        createFilter(resolved).doFilter(request, response, (req, res) -> req.startAsync());
+        MockAsyncContext context = (MockAsyncContext) request.getAsyncContext();
+        Assertions.assertNotNull(context);
+        for (AsyncListener listener : List.copyOf(context.getListeners())) {
+            listener.onTimeout(new AsyncEvent(context, request, response));
+        }
+        Assertions.assertEquals(1, resolved.get());
+        Assertions.assertFalse(request.isAsyncStarted());
+        // A late error of the same request must not write a second response
+        for (AsyncListener listener : List.copyOf(context.getListeners())) {
+            listener.onError(new AsyncEvent(context, request, response, new IllegalStateException()));
+        }
+        Assertions.assertEquals(1, resolved.get());
+        Assertions.assertEquals("error", response.getContentAsString());    // $NON-NLS-1$
+    }
+
+    @Test
+    void leaveWrittenAsyncToApplication() throws Exception {
+        AtomicInteger resolved = new AtomicInteger();
+        MockHttpServletRequest request = createRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        createFilter(resolved).doFilter(request, response, (req, res) -> {
+            AsyncContext context = req.startAsync();
+            context.addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) throws IOException {
+                    // The application handles its own timeout, and completes the async processing later
+                    event.getSuppliedResponse().getWriter().write("fallback");    // $NON-NLS-1$
+                    event.getSuppliedResponse().flushBuffer();
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            }, req, res);
+        });
+        MockAsyncContext context = (MockAsyncContext) request.getAsyncContext();
+        Assertions.assertNotNull(context);
+        for (AsyncListener listener : List.copyOf(context.getListeners())) {
+            listener.onTimeout(new AsyncEvent(context, request, response));
+        }
+        Assertions.assertEquals(0, resolved.get());
+        Assertions.assertTrue(request.isAsyncStarted());
+        Assertions.assertEquals("fallback", response.getContentAsString());    // $NON-NLS-1$
+    }
+
+    private static MockHttpServletRequest createRequest() {
+        MockHttpServletRequest result = new MockHttpServletRequest("GET", "/raw-async");    // $NON-NLS-1$ // $NON-NLS-2$
+        result.setAsyncSupported(true);
+        return result;
+    }
+
+    private static FilterExceptionHandlerFilter createFilter(AtomicInteger resolved) {
+        HandlerExceptionResolver resolver = (request, response, handler, ex) -> {
+            resolved.incrementAndGet();
+            try {
+                response.getWriter().write("error");    // $NON-NLS-1$
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new ModelAndView();
+        };
+        return new FilterExceptionHandlerFilter(new ExceptionHandlerProperties(), resolver);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.time.Duration;
+import java.util.List;
+import jakarta.annotation.Nonnull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+
+@SuppressWarnings("unused")
+class ErrorFingerprintAggregatorTest {
+    @Test
+    void sameErrorSameFingerprint() {
+        ErrorFingerprintAggregator aggregator = new ErrorFingerprintAggregator(1, 16, 2, "/error", Duration.ofMinutes(1L));    // $NON-NLS-1$
+        aggregator.record(newError("a"), HttpStatus.INTERNAL_SERVER_ERROR, "/users/{id}");    // $NON-NLS-1$ // $NON-NLS-2$
+        aggregator.record(newError("b"), HttpStatus.INTERNAL_SERVER_ERROR, "/users/{id}");    // $NON-NLS-1$ // $NON-NLS-2$
+        aggregator.record(newError("c"), HttpStatus.INTERNAL_SERVER_ERROR, "/orders/{id}");    // $NON-NLS-1$ // $NON-NLS-2$
+        aggregator.record(newError("d"), HttpStatus.SERVICE_UNAVAILABLE, "/users/{id}");    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals(3, aggregator.size());
+        List<ErrorFingerprintAggregator.Snapshot> snapshots = aggregator.getTopFingerprints(1);
+        Assertions.assertEquals(1, snapshots.size());
+        Assertions.assertEquals(2L, snapshots.get(0).total());
+        Assertions.assertEquals("/users/{id}", snapshots.get(0).pattern());    // $NON-NLS-1$
+        Assertions.assertEquals(2, snapshots.get(0).samples().size());
+    }
+
+    @Test
+    void errorPathIsNoPattern() {
+        ErrorFingerprintAggregator aggregator = new ErrorFingerprintAggregator(1, 16, 0, "/error", Duration.ofMinutes(1L));    // $NON-NLS-1$
+        aggregator.record(newError("a"), HttpStatus.INTERNAL_SERVER_ERROR, "/error");    // $NON-NLS-1$ // $NON-NLS-2$
+        aggregator.record(newError("b"), HttpStatus.INTERNAL_SERVER_ERROR, null);    // $NON-NLS-1$
+        Assertions.assertEquals(1, aggregator.size());
+        Assertions.assertEquals("*", aggregator.getTopFingerprints(0).get(0).pattern());    // $NON-NLS-1$
+    }
+
+    @Test
+    void overflowWhenFull() {
+        ErrorFingerprintAggregator aggregator = new ErrorFingerprintAggregator(1, 1, 0, null, Duration.ofMinutes(1L));
+        aggregator.record(newError("a"), HttpStatus.INTERNAL_SERVER_ERROR, "/a");    // $NON-NLS-1$ // $NON-NLS-2$
+        aggregator.record(newError("b"), HttpStatus.INTERNAL_SERVER_ERROR, "/b");    // $NON-NLS-1$ // $NON-NLS-2$
+        aggregator.record(newError("c"), HttpStatus.INTERNAL_SERVER_ERROR, "/c");    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals(1, aggregator.size());
+        List<ErrorFingerprintAggregator.Snapshot> snapshots = aggregator.getTopFingerprints(0);
+        Assertions.assertEquals(2, snapshots.size());
+        Assertions.assertEquals(0L, snapshots.get(0).fingerprint());
+        Assertions.assertEquals(2L, snapshots.get(0).total());
+    }
+
+    @Test
+    void evictIdleWhenFull() throws InterruptedException {
+        ErrorFingerprintAggregator aggregator = new ErrorFingerprintAggregator(1, 1, 0, null, Duration.ofMillis(100L));
+        aggregator.record(newError("a"), HttpStatus.INTERNAL_SERVER_ERROR, "/a");    // $NON-NLS-1$ // $NON-NLS-2$
+        Thread.sleep(200L);
+        aggregator.record(newError("b"), HttpStatus.INTERNAL_SERVER_ERROR, "/b");    // $NON-NLS-1$ // $NON-NLS-2$
+        List<ErrorFingerprintAggregator.Snapshot> snapshots = aggregator.getTopFingerprints(0);
+        Assertions.assertEquals(1, snapshots.size());
+        Assertions.assertEquals("/b", snapshots.get(0).pattern());    // $NON-NLS-1$
+    }
+
+    @Nonnull
+    private static Exception newError(@Nonnull String message) {
+        return new IllegalStateException(message);
+    }
+}
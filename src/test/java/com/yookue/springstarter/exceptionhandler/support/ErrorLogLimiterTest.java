@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+@SuppressWarnings("unused")
+class ErrorLogLimiterTest {
+    private ErrorLogLimiter limiter;
+
+    @AfterEach
+    void afterEach() {
+        if (limiter != null) {
+            limiter.destroy();
+        }
+    }
+
+    @Test
+    void burstThenSuppress() {
+        limiter = new ErrorLogLimiter(0.001D, 3, Duration.ofMinutes(1L), 16);
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(limiter.tryAcquire("GET", "/users/{id}", 500));    // $NON-NLS-1$ // $NON-NLS-2$
+        }
+        Assertions.assertFalse(limiter.tryAcquire("GET", "/users/{id}", 500));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertTrue(limiter.tryAcquire("POST", "/users/{id}", 500));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertTrue(limiter.tryAcquire("GET", "/orders/{id}", 500));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertTrue(limiter.tryAcquire("GET", "/users/{id}", 503));    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Test
+    void unmatchedPathsShareKey() {
+        limiter = new ErrorLogLimiter(0.001D, 2, Duration.ofMinutes(1L), 16);
+        Assertions.assertTrue(limiter.tryAcquire("GET", "/a", 404));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertTrue(limiter.tryAcquire("GET", "/b", 404));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertFalse(limiter.tryAcquire("GET", "/c", 404));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertTrue(limiter.tryAcquire("GET", null, 500));    // $NON-NLS-1$
+        Assertions.assertTrue(limiter.tryAcquire("GET", null, 500));    // $NON-NLS-1$
+        Assertions.assertFalse(limiter.tryAcquire("GET", null, 500));    // $NON-NLS-1$
+        Assertions.assertEquals(2, limiter.size());
+    }
+
+    @Test
+    void overflowKeysShareBucket() {
+        limiter = new ErrorLogLimiter(0.001D, 1, Duration.ofMinutes(1L), 1);
+        Assertions.assertTrue(limiter.tryAcquire("GET", "/a", 500));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertTrue(limiter.tryAcquire("GET", "/b", 500));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertFalse(limiter.tryAcquire("GET", "/c", 500));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals(2, limiter.size());
+    }
+
+    @Test
+    void refillAfterEmission() throws InterruptedException {
+        limiter = new ErrorLogLimiter(50.0D, 1, Duration.ofMinutes(1L), 16);
+        Assertions.assertTrue(limiter.tryAcquire("GET", "/a", 500));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertFalse(limiter.tryAcquire("GET", "/a", 500));    // $NON-NLS-1$ // $NON-NLS-2$
+        Thread.sleep(50L);
+        Assertions.assertTrue(limiter.tryAcquire("GET", "/a", 500));    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Test
+    void flushEvictsIdleBuckets() throws InterruptedException {
+        limiter = new ErrorLogLimiter(10.0D, 1, Duration.ofMillis(100L), 16);
+        Assertions.assertTrue(limiter.tryAcquire("GET", "/a", 500));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertFalse(limiter.tryAcquire("GET", "/a", 500));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals(1, limiter.size());
+        Thread.sleep(300L);
+        limiter.flush();
+        limiter.flush();
+        Assertions.assertEquals(0, limiter.size());
+        Assertions.assertTrue(limiter.tryAcquire("GET", "/a", 500));    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Test
+    void flushByTimerAfterInitialization() throws InterruptedException {
+        limiter = new ErrorLogLimiter(10.0D, 1, Duration.ofMillis(100L), 16);
+        Assertions.assertTrue(limiter.tryAcquire("GET", "/a", 500));    // $NON-NLS-1$ // $NON-NLS-2$
+        Thread.sleep(300L);
+        Assertions.assertEquals(1, limiter.size());
+        limiter.afterPropertiesSet();
+        Thread.sleep(500L);
+        Assertions.assertEquals(0, limiter.size());
+        limiter.destroy();
+        limiter.destroy();
+    }
+
+    @Test
+    void flushKeepsActiveBuckets() {
+        limiter = new ErrorLogLimiter(0.001D, 1, Duration.ofMinutes(1L), 16);
+        Assertions.assertTrue(limiter.tryAcquire("GET", "/a", 500));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertFalse(limiter.tryAcquire("GET", "/a", 500));    // $NON-NLS-1$ // $NON-NLS-2$
+        limiter.flush();
+        Assertions.assertEquals(1, limiter.size());
+        Assertions.assertFalse(limiter.tryAcquire("GET", "/a", 500));    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+}
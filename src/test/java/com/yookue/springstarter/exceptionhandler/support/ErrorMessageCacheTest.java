@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.time.Duration;
+import java.util.Locale;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticMessageSource;
+import com.yookue.springstarter.exceptionhandler.event.MessageSourceReloadedEvent;
+
+
+@SuppressWarnings("unused")
+class ErrorMessageCacheTest {
+    private static final String CODE = "error.code";    // $NON-NLS-1$
+
+    @Test
+    void clearOnReloadEvent() {
+        ErrorMessageCache cache = new ErrorMessageCache(16, Duration.ZERO);
+        StaticMessageSource source = new StaticMessageSource();
+        source.addMessage(CODE, Locale.ENGLISH, "before");    // $NON-NLS-1$
+        Assertions.assertEquals("before", cache.getMessage(source, CODE, null, Locale.ENGLISH));    // $NON-NLS-1$
+        source.addMessage(CODE, Locale.ENGLISH, "after");    // $NON-NLS-1$
+        Assertions.assertEquals("before", cache.getMessage(source, CODE, null, Locale.ENGLISH));    // $NON-NLS-1$
+        Assertions.assertTrue(cache.supportsEventType(MessageSourceReloadedEvent.class));
+        cache.onApplicationEvent(new MessageSourceReloadedEvent(source));
+        Assertions.assertEquals("after", cache.getMessage(source, CODE, null, Locale.ENGLISH));    // $NON-NLS-1$
+    }
+
+    @Test
+    void expireAfterTimeToLive() throws InterruptedException {
+        ErrorMessageCache cache = new ErrorMessageCache(16, Duration.ofMillis(100L));
+        StaticMessageSource source = new StaticMessageSource();
+        source.addMessage(CODE, Locale.ENGLISH, "before");    // $NON-NLS-1$
+        Assertions.assertEquals("before", cache.getMessage(source, CODE, null, Locale.ENGLISH));    // $NON-NLS-1$
+        source.addMessage(CODE, Locale.ENGLISH, "after");    // $NON-NLS-1$
+        Thread.sleep(200L);
+        Assertions.assertEquals("after", cache.getMessage(source, CODE, null, Locale.ENGLISH));    // $NON-NLS-1$
+    }
+
+    @Test
+    void defaultMessageNotCached() {
+        ErrorMessageCache cache = new ErrorMessageCache(16, Duration.ZERO);
+        StaticMessageSource source = new StaticMessageSource();
+        Assertions.assertEquals("first", cache.getMessage(source, CODE, "first", Locale.ENGLISH));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals("second", cache.getMessage(source, CODE, "second", Locale.ENGLISH));    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.View;
+import com.yookue.commonplexus.springutil.constant.ResponseBodyConst;
+
+
+@SuppressWarnings("unused")
+class ErrorPageCacheTest {
+    @Test
+    void renderWithoutTimestamp() throws Exception {
+        ErrorPageCache cache = new ErrorPageCache(16, null);
+        View view = (model, request, response) -> response.getWriter().write(String.valueOf(model.keySet()));
+        Map<String, Object> model = new LinkedHashMap<>();
+        model.put("status", 404);    // $NON-NLS-1$
+        model.put(ResponseBodyConst.HTML_TIMESTAMP, "2023-01-01 00:00:00");    // $NON-NLS-1$
+        ErrorPageCache.ErrorPage page = cache.renderPage(view, model, new MockHttpServletRequest(), new MockHttpServletResponse(), 404, Locale.ROOT, "error");    // $NON-NLS-1$
+        Assertions.assertNotNull(page);
+        Assertions.assertEquals("[status]", new String(page.body(), StandardCharsets.UTF_8));    // $NON-NLS-1$
+        Assertions.assertTrue(model.containsKey(ResponseBodyConst.HTML_TIMESTAMP));
+        Assertions.assertSame(page, cache.getPage(404, Locale.ROOT, "error"));    // $NON-NLS-1$
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import jakarta.annotation.Nonnull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+
+@SuppressWarnings("unused")
+class ErrorRenderGuardTest {
+    @Test
+    void renderSucceeds() throws Exception {
+        ErrorRenderGuard guard = new ErrorRenderGuard(2, Duration.ZERO, null, 1, Duration.ofMinutes(1L));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        guard.render(() -> response.getWriter().write("rendered"), response, 500, StandardCharsets.UTF_8);    // $NON-NLS-1$
+        Assertions.assertEquals("rendered", response.getContentAsString());    // $NON-NLS-1$
+        Assertions.assertEquals(2, guard.getAvailablePermits());
+        Assertions.assertEquals(0L, guard.getFallbackCount());
+        Assertions.assertFalse(guard.isOpen());
+    }
+
+    @Test
+    void fallbackOnFailure() throws Exception {
+        ErrorRenderGuard guard = new ErrorRenderGuard(2, Duration.ZERO, null, 0, Duration.ofMinutes(1L));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        guard.render(() -> {
+            throw new IllegalStateException("template");    // $NON-NLS-1$
+        }, response, 503, StandardCharsets.UTF_8);
+        Assertions.assertEquals(503, response.getStatus());
+        Assertions.assertTrue(response.getContentType().startsWith("text/html"));    // $NON-NLS-1$
+        Assertions.assertTrue(response.getContentAsString(StandardCharsets.UTF_8).contains("503 Service Unavailable"));    // $NON-NLS-1$
+        Assertions.assertEquals(1L, guard.getFallbackCount());
+        Assertions.assertEquals(2, guard.getAvailablePermits());
+        Assertions.assertFalse(guard.isOpen());
+    }
+
+    @Test
+    void rethrowWhenCommitted() {
+        ErrorRenderGuard guard = new ErrorRenderGuard(2, Duration.ZERO, null, 0, Duration.ofMinutes(1L));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Assertions.assertThrows(IllegalStateException.class, () -> guard.render(() -> {
+            response.flushBuffer();
+            throw new IllegalStateException("template");    // $NON-NLS-1$
+        }, response, 500, StandardCharsets.UTF_8));
+        Assertions.assertEquals(2, guard.getAvailablePermits());
+    }
+
+    @Test
+    void openAfterConsecutiveFailures() throws Exception {
+        ErrorRenderGuard guard = new ErrorRenderGuard(0, Duration.ZERO, null, 2, Duration.ofMinutes(1L));
+        for (int i = 0; i < 2; i++) {
+            guard.render(() -> {
+                throw new IllegalStateException("template");    // $NON-NLS-1$
+            }, new MockHttpServletResponse(), 500, StandardCharsets.UTF_8);
+        }
+        Assertions.assertTrue(guard.isOpen());
+        AtomicInteger renders = new AtomicInteger();
+        guard.render(renders::incrementAndGet, new MockHttpServletResponse(), 500, StandardCharsets.UTF_8);
+        Assertions.assertEquals(0, renders.get());
+        Assertions.assertEquals(1L, guard.getRejectedCount());
+        Assertions.assertEquals(3L, guard.getFallbackCount());
+        guard.reset();
+        Assertions.assertFalse(guard.isOpen());
+        guard.render(renders::incrementAndGet, new MockHttpServletResponse(), 500, StandardCharsets.UTF_8);
+        Assertions.assertEquals(1, renders.get());
+    }
+
+    @Test
+    void successResetsFailures() throws Exception {
+        ErrorRenderGuard guard = new ErrorRenderGuard(0, Duration.ZERO, null, 2, Duration.ofMinutes(1L));
+        ErrorRenderGuard.RenderAction failure = () -> {
+            throw new IllegalStateException("template");    // $NON-NLS-1$
+        };
+        guard.render(failure, new MockHttpServletResponse(), 500, StandardCharsets.UTF_8);
+        guard.render(() -> {}, new MockHttpServletResponse(), 500, StandardCharsets.UTF_8);
+        guard.render(failure, new MockHttpServletResponse(), 500, StandardCharsets.UTF_8);
+        Assertions.assertFalse(guard.isOpen());
+    }
+
+    @Test
+    void probeAfterOpenDuration() throws Exception {
+        ErrorRenderGuard guard = new ErrorRenderGuard(0, Duration.ZERO, null, 1, Duration.ofMillis(10L));
+        guard.render(() -> {
+            throw new IllegalStateException("template");    // $NON-NLS-1$
+        }, new MockHttpServletResponse(), 500, StandardCharsets.UTF_8);
+        Assertions.assertTrue(guard.isOpen());
+        Thread.sleep(20L);
+        AtomicInteger renders = new AtomicInteger();
+        guard.render(renders::incrementAndGet, new MockHttpServletResponse(), 500, StandardCharsets.UTF_8);
+        Assertions.assertEquals(1, renders.get());
+        Assertions.assertFalse(guard.isOpen());
+    }
+
+    @Test
+    void failedProbeOpensAgain() throws Exception {
+        ErrorRenderGuard guard = new ErrorRenderGuard(0, Duration.ZERO, null, 1, Duration.ofMillis(200L));
+        ErrorRenderGuard.RenderAction failure = () -> {
+            throw new IllegalStateException("template");    // $NON-NLS-1$
+        };
+        guard.render(failure, new MockHttpServletResponse(), 500, StandardCharsets.UTF_8);
+        Thread.sleep(250L);
+        guard.render(failure, new MockHttpServletResponse(), 500, StandardCharsets.UTF_8);
+        Assertions.assertTrue(guard.isOpen());
+        AtomicInteger renders = new AtomicInteger();
+        guard.render(renders::incrementAndGet, new MockHttpServletResponse(), 500, StandardCharsets.UTF_8);
+        Assertions.assertEquals(0, renders.get());
+    }
+
+    @Test
+    void staleRendersAlongsideProbe() throws Exception {
+        ErrorRenderGuard guard = new ErrorRenderGuard(0, Duration.ZERO, null, 1, Duration.ofMillis(10L));
+        CountDownLatch successRelease = new CountDownLatch(1), failureRelease = new CountDownLatch(1);
+        Thread staleSuccess = startRender(guard, successRelease, false);
+        Thread staleFailure = startRender(guard, failureRelease, true);
+        guard.render(() -> {
+            throw new IllegalStateException("template");    // $NON-NLS-1$
+        }, new MockHttpServletResponse(), 500, StandardCharsets.UTF_8);
+        Assertions.assertTrue(guard.isOpen());
+        successRelease.countDown();
+        staleSuccess.join();
+        Assertions.assertTrue(guard.isOpen());
+        Thread.sleep(20L);
+        AtomicInteger renders = new AtomicInteger();
+        guard.render(() -> {
+            failureRelease.countDown();
+            staleFailure.join();
+            Assertions.assertTrue(guard.isOpen());
+            guard.render(renders::incrementAndGet, new MockHttpServletResponse(), 500, StandardCharsets.UTF_8);
+        }, new MockHttpServletResponse(), 500, StandardCharsets.UTF_8);
+        Assertions.assertEquals(0, renders.get());
+        Assertions.assertFalse(guard.isOpen());
+    }
+
+    @Test
+    void exceedBudgetCountsAsFailure() throws Exception {
+        ErrorRenderGuard guard = new ErrorRenderGuard(0, Duration.ZERO, Duration.ofNanos(1L), 1, Duration.ofMinutes(1L));
+        guard.render(() -> Thread.sleep(2L), new MockHttpServletResponse(), 500, StandardCharsets.UTF_8);
+        Assertions.assertTrue(guard.isOpen());
+        Assertions.assertEquals(0L, guard.getFallbackCount());
+    }
+
+    @Test
+    void rejectBeyondBulkhead() throws Exception {
+        ErrorRenderGuard guard = new ErrorRenderGuard(1, Duration.ZERO, null, 0, Duration.ofMinutes(1L));
+        MockHttpServletResponse nested = new MockHttpServletResponse();
+        AtomicInteger renders = new AtomicInteger();
+        guard.render(() -> {
+            Assertions.assertEquals(0, guard.getAvailablePermits());
+            guard.render(renders::incrementAndGet, nested, 500, StandardCharsets.UTF_8);
+        }, new MockHttpServletResponse(), 500, StandardCharsets.UTF_8);
+        Assertions.assertEquals(0, renders.get());
+        Assertions.assertEquals(1L, guard.getRejectedCount());
+        Assertions.assertTrue(nested.getContentAsString(StandardCharsets.UTF_8).contains("500 Internal Server Error"));    // $NON-NLS-1$
+        Assertions.assertEquals(1, guard.getAvailablePermits());
+    }
+
+    @Nonnull
+    private Thread startRender(@Nonnull ErrorRenderGuard guard, @Nonnull CountDownLatch release, boolean fail) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Thread result = new Thread(() -> {
+            try {
+                guard.render(() -> {
+                    started.countDown();
+                    release.await();
+                    if (fail) {
+                        throw new IllegalStateException("stale");    // $NON-NLS-1$
+                    }
+                }, new MockHttpServletResponse(), 500, StandardCharsets.UTF_8);
+            } catch (Exception ignored) {
+            }
+        });
+        result.start();
+        started.await();
+        return result;
+    }
+}
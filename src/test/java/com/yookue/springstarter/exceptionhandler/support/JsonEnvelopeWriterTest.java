@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.json.JsonWriteFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+
+@SuppressWarnings("unused")
+class JsonEnvelopeWriterTest {
+    private static final Set<String> CONSTANT_KEYS = Set.of("status", "error");    // $NON-NLS-1$ // $NON-NLS-2$
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void sameBytesAsMapper() throws Exception {
+        JsonEnvelopeWriter writer = new JsonEnvelopeWriter(mapper, 16, CONSTANT_KEYS);
+        List<String> messages = List.of("plain", "quote \" and backslash \\", "controls \b\t\n\f\r \u0000 \u001f \u007f", "unicode \u00e9\u4e2d\u6587 \ud83d\ude00", "slash / and <html>", "");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$
+        for (String message : messages) {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("status", 404);    // $NON-NLS-1$
+            body.put("error", "Not Found");    // $NON-NLS-1$ // $NON-NLS-2$
+            body.put("message", message);    // $NON-NLS-1$
+            body.put("path", "/missing");    // $NON-NLS-1$ // $NON-NLS-2$
+            body.put("timestamp", 1_000_000_000_000L);    // $NON-NLS-1$
+            body.put("success", false);    // $NON-NLS-1$
+            assertSameBytes(writer, body);
+        }
+        Assertions.assertEquals(1, writer.size());
+    }
+
+    @Test
+    void sameBytesWithNestedValues() throws Exception {
+        JsonEnvelopeWriter writer = new JsonEnvelopeWriter(mapper, 16, CONSTANT_KEYS);
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("trace", "line1\n\tat line2");    // $NON-NLS-1$ // $NON-NLS-2$
+        data.put("errors", List.of("a", "b\"c"));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", 500);    // $NON-NLS-1$
+        body.put("data", data);    // $NON-NLS-1$
+        body.put("ratio", 0.5D);    // $NON-NLS-1$
+        body.put("quote\"key", "value");    // $NON-NLS-1$ // $NON-NLS-2$
+        assertSameBytes(writer, body);
+        assertSameBytes(writer, body);
+    }
+
+    @Test
+    void constantValuesMakeEnvelopes() throws Exception {
+        JsonEnvelopeWriter writer = new JsonEnvelopeWriter(mapper, 16, CONSTANT_KEYS);
+        for (int status : new int[] {400, 404, 404, 500}) {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("status", status);    // $NON-NLS-1$
+            body.put("message", "status " + status);    // $NON-NLS-1$ // $NON-NLS-2$
+            assertSameBytes(writer, body);
+        }
+        Assertions.assertEquals(3, writer.size());
+    }
+
+    @Test
+    void declineWhenCacheFull() throws Exception {
+        JsonEnvelopeWriter writer = new JsonEnvelopeWriter(mapper, 2, CONSTANT_KEYS);
+        for (int status : new int[] {400, 404}) {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("status", status);    // $NON-NLS-1$
+            assertSameBytes(writer, body);
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", 500);    // $NON-NLS-1$
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Assertions.assertFalse(writer.write(response, body, StandardCharsets.UTF_8, HttpStatus.INTERNAL_SERVER_ERROR));
+        Assertions.assertEquals(0, response.getContentLength());
+        Assertions.assertEquals(2, writer.size());
+        body.put("status", 404);    // $NON-NLS-1$
+        assertSameBytes(writer, body);
+    }
+
+    @Test
+    void declineUnsplicedBodies() throws Exception {
+        JsonEnvelopeWriter writer = new JsonEnvelopeWriter(mapper, 16, CONSTANT_KEYS);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", 404);    // $NON-NLS-1$
+        body.put("message", null);    // $NON-NLS-1$
+        Assertions.assertFalse(writer.write(new MockHttpServletResponse(), body, StandardCharsets.UTF_8, HttpStatus.NOT_FOUND));
+        body.put("message", "missing");    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertFalse(writer.write(new MockHttpServletResponse(), body, StandardCharsets.UTF_16, HttpStatus.NOT_FOUND));
+        Assertions.assertFalse(writer.write(new MockHttpServletResponse(), Map.of(), StandardCharsets.UTF_8, HttpStatus.NOT_FOUND));
+        Map<Object, Object> numericKeys = new LinkedHashMap<>();
+        numericKeys.put(1, "one");    // $NON-NLS-1$
+        Assertions.assertFalse(writer.write(new MockHttpServletResponse(), numericKeys, StandardCharsets.UTF_8, HttpStatus.NOT_FOUND));
+    }
+
+    @Test
+    void declineCustomizedMappers() {
+        Assertions.assertNotNull(JsonEnvelopeWriter.of(null, 16, CONSTANT_KEYS));
+        Assertions.assertNotNull(JsonEnvelopeWriter.of(createBeanFactory(new ObjectMapper()), 16, CONSTANT_KEYS));
+        Assertions.assertNull(JsonEnvelopeWriter.of(null, 0, CONSTANT_KEYS));
+        Assertions.assertNull(JsonEnvelopeWriter.of(createBeanFactory(new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)), 16, CONSTANT_KEYS));
+        Assertions.assertNull(JsonEnvelopeWriter.of(createBeanFactory(new ObjectMapper().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)), 16, CONSTANT_KEYS));
+        Assertions.assertNull(JsonEnvelopeWriter.of(createBeanFactory(new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL)), 16, CONSTANT_KEYS));
+        Assertions.assertNull(JsonEnvelopeWriter.of(createBeanFactory(new ObjectMapper().setDefaultPropertyInclusion(JsonInclude.Value.construct(JsonInclude.Include.ALWAYS, JsonInclude.Include.NON_EMPTY))), 16, CONSTANT_KEYS));
+        Assertions.assertNull(JsonEnvelopeWriter.of(createBeanFactory(JsonMapper.builder().enable(JsonWriteFeature.ESCAPE_NON_ASCII).build()), 16, CONSTANT_KEYS));
+        Assertions.assertNull(JsonEnvelopeWriter.of(createBeanFactory(JsonMapper.builder().disable(JsonWriteFeature.QUOTE_FIELD_NAMES).build()), 16, CONSTANT_KEYS));
+    }
+
+    private void assertSameBytes(JsonEnvelopeWriter writer, Map<?, ?> body) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Assertions.assertTrue(writer.write(response, body, StandardCharsets.UTF_8, HttpStatus.NOT_FOUND));
+        byte[] expected = mapper.writeValueAsBytes(body);
+        Assertions.assertArrayEquals(expected, response.getContentAsByteArray(), () -> new String(expected, StandardCharsets.UTF_8));
+        Assertions.assertEquals(expected.length, response.getContentLength());
+        Assertions.assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+    }
+
+    private static StaticListableBeanFactory createBeanFactory(ObjectMapper mapper) {
+        StaticListableBeanFactory result = new StaticListableBeanFactory();
+        result.addBean("objectMapper", mapper);    // $NON-NLS-1$
+        return result;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Locale;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+
+@SuppressWarnings("unused")
+class NotFoundPathCacheTest {
+    private static final String BODY = "{\"status\":404,\"path\":\"/missing\"}";    // $NON-NLS-1$
+
+    @Test
+    void keyOfGetRequestsOnly() {
+        NotFoundPathCache cache = new NotFoundPathCache(1, 16, Duration.ofMinutes(1L), 1024);
+        Assertions.assertNotNull(cache.getKey(createRequest("/missing"), "/missing", true, null));    // $NON-NLS-1$ // $NON-NLS-2$
+        MockHttpServletRequest request = createRequest("/missing");    // $NON-NLS-1$
+        request.setMethod("POST");    // $NON-NLS-1$
+        Assertions.assertNull(cache.getKey(request, "/missing", true, null));    // $NON-NLS-1$
+        Assertions.assertFalse(cache.isCacheable(request, "/missing"));    // $NON-NLS-1$
+        Assertions.assertNull(cache.getKey(createRequest("/"), "", true, null));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertNull(new NotFoundPathCache(1, 0, Duration.ofMinutes(1L), 1024).getKey(createRequest("/missing"), "/missing", true, null));    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Test
+    void keyOfQueryAndAccept() {
+        NotFoundPathCache cache = new NotFoundPathCache(1, 16, Duration.ofMinutes(1L), 1024);
+        MockHttpServletRequest request = createRequest("/missing");    // $NON-NLS-1$
+        NotFoundPathCache.PathKey key = cache.getKey(request, "/missing", true, Locale.ENGLISH);    // $NON-NLS-1$
+        request.setQueryString("page=2");    // $NON-NLS-1$
+        Assertions.assertNotEquals(key, cache.getKey(request, "/missing", true, Locale.ENGLISH));    // $NON-NLS-1$
+        MockHttpServletRequest binary = createRequest("/missing");    // $NON-NLS-1$
+        binary.addHeader(HttpHeaders.ACCEPT, "application/cbor");    // $NON-NLS-1$
+        Assertions.assertNotEquals(key, cache.getKey(binary, "/missing", true, Locale.ENGLISH));    // $NON-NLS-1$
+        Assertions.assertNotEquals(key, cache.getKey(createRequest("/missing"), "/missing", true, Locale.CHINESE));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals(key, cache.getKey(createRequest("/missing"), "/missing", true, Locale.ENGLISH));    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Test
+    void declineCredentials() throws Exception {
+        NotFoundPathCache cache = new NotFoundPathCache(1, 16, Duration.ofMinutes(1L), 1024);
+        MockHttpServletRequest cookie = createRequest("/missing");    // $NON-NLS-1$
+        cookie.addHeader(HttpHeaders.COOKIE, "JSESSIONID=foo");    // $NON-NLS-1$
+        Assertions.assertFalse(cache.isCacheable(cookie, "/missing"));    // $NON-NLS-1$
+        MockHttpServletRequest authorization = createRequest("/missing");    // $NON-NLS-1$
+        authorization.addHeader(HttpHeaders.AUTHORIZATION, "Bearer foo");    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertFalse(cache.isCacheable(authorization, "/missing"));    // $NON-NLS-1$
+        MockHttpServletRequest principal = createRequest("/missing");    // $NON-NLS-1$
+        principal.setUserPrincipal(() -> "foo");    // $NON-NLS-1$
+        Assertions.assertNull(cache.getKey(principal, "/missing", true, null));    // $NON-NLS-1$
+        MockHttpServletRequest session = createRequest("/missing");    // $NON-NLS-1$
+        NotFoundPathCache.PathKey key = cache.getKey(session, "/missing", true, null);    // $NON-NLS-1$
+        Assertions.assertNotNull(key);
+        session.getSession(true);
+        cache.recordNotFound(key, session, respond(new NotFoundPathCache.CapturingResponse(new MockHttpServletResponse(), 1024), BODY));
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void keyOfHtmlOptIn() {
+        MockHttpServletRequest request = createRequest("/missing");    // $NON-NLS-1$
+        Assertions.assertNull(new NotFoundPathCache(1, 16, Duration.ofMinutes(1L), 1024).getKey(request, "/missing", false, null));    // $NON-NLS-1$
+        Assertions.assertNotNull(new NotFoundPathCache(1, 16, Duration.ofMinutes(1L), 1024, true).getKey(request, "/missing", false, null));    // $NON-NLS-1$
+    }
+
+    @Test
+    void replayHeaders() throws Exception {
+        NotFoundPathCache cache = new NotFoundPathCache(1, 16, Duration.ofMinutes(1L), 1024);
+        MockHttpServletRequest request = createRequest("/missing");    // $NON-NLS-1$
+        request.addHeader(HttpHeaders.ORIGIN, "https://foo.com");    // $NON-NLS-1$
+        NotFoundPathCache.PathKey key = cache.getKey(request, "/missing", true, null);    // $NON-NLS-1$
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.addHeader("X-Frame-Options", "DENY");    // $NON-NLS-1$ // $NON-NLS-2$
+        response.addHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "https://foo.com");    // $NON-NLS-1$
+        response.addHeader(HttpHeaders.SET_COOKIE, "foo=bar");    // $NON-NLS-1$
+        cache.recordNotFound(key, request, respond(new NotFoundPathCache.CapturingResponse(response, 1024), BODY));
+        MockHttpServletResponse replay = new MockHttpServletResponse();
+        replay.addHeader("X-Frame-Options", "DENY");    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertTrue(cache.writeResponse(key, replay));
+        Assertions.assertEquals(1, replay.getHeaders("X-Frame-Options").size());    // $NON-NLS-1$
+        Assertions.assertEquals("https://foo.com", replay.getHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN));    // $NON-NLS-1$
+        Assertions.assertNull(replay.getHeader(HttpHeaders.SET_COOKIE));
+        MockHttpServletRequest other = createRequest("/missing");    // $NON-NLS-1$
+        other.addHeader(HttpHeaders.ORIGIN, "https://bar.com");    // $NON-NLS-1$
+        Assertions.assertFalse(cache.writeResponse(cache.getKey(other, "/missing", true, null), new MockHttpServletResponse()));    // $NON-NLS-1$
+    }
+
+    @Test
+    void admitHotPath() throws Exception {
+        NotFoundPathCache cache = new NotFoundPathCache(3, 16, Duration.ofMinutes(1L), 1024);
+        MockHttpServletRequest request = createRequest("/missing");    // $NON-NLS-1$
+        NotFoundPathCache.PathKey key = cache.getKey(request, "/missing", true, null);    // $NON-NLS-1$
+        Assertions.assertNotNull(key);
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertFalse(cache.writeResponse(key, new MockHttpServletResponse()));
+            cache.recordNotFound(key, request, respond(new MockHttpServletResponse(), BODY));
+        }
+        Assertions.assertTrue(cache.isCandidate("/missing"));    // $NON-NLS-1$
+        Assertions.assertEquals(0, cache.size());
+        cache.recordNotFound(key, request, respond(new NotFoundPathCache.CapturingResponse(new MockHttpServletResponse(), 1024), BODY));
+        Assertions.assertEquals(1, cache.size());
+        MockHttpServletResponse replay = new MockHttpServletResponse();
+        Assertions.assertTrue(cache.writeResponse(key, replay));
+        Assertions.assertEquals(404, replay.getStatus());
+        Assertions.assertEquals(BODY, replay.getContentAsString(StandardCharsets.UTF_8));
+        Assertions.assertTrue(replay.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT));
+        MockHttpServletRequest binary = createRequest("/missing");    // $NON-NLS-1$
+        binary.addHeader(HttpHeaders.ACCEPT, "application/cbor");    // $NON-NLS-1$
+        Assertions.assertFalse(cache.writeResponse(cache.getKey(binary, "/missing", true, null), new MockHttpServletResponse()));    // $NON-NLS-1$
+        cache.clear();
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertFalse(cache.writeResponse(key, new MockHttpServletResponse()));
+    }
+
+    @Test
+    void declineOversizedBody() throws Exception {
+        NotFoundPathCache cache = new NotFoundPathCache(1, 16, Duration.ofMinutes(1L), 8);
+        MockHttpServletRequest request = createRequest("/missing");    // $NON-NLS-1$
+        NotFoundPathCache.PathKey key = cache.getKey(request, "/missing", true, null);    // $NON-NLS-1$
+        cache.recordNotFound(key, request, respond(new NotFoundPathCache.CapturingResponse(new MockHttpServletResponse(), 8), BODY));
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void expireAfterTimeToLive() throws Exception {
+        NotFoundPathCache cache = new NotFoundPathCache(1, 16, Duration.ofNanos(1L), 1024);
+        MockHttpServletRequest request = createRequest("/missing");    // $NON-NLS-1$
+        NotFoundPathCache.PathKey key = cache.getKey(request, "/missing", true, null);    // $NON-NLS-1$
+        cache.recordNotFound(key, request, respond(new NotFoundPathCache.CapturingResponse(new MockHttpServletResponse(), 1024), BODY));
+        Thread.sleep(1L);
+        Assertions.assertFalse(cache.writeResponse(key, new MockHttpServletResponse()));
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void evictLeastRecentlyServed() throws Exception {
+        NotFoundPathCache cache = new NotFoundPathCache(1, 2, Duration.ofMinutes(1L), 1024);
+        for (String path : new String[] {"/a", "/b", "/c"}) {    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+            MockHttpServletRequest request = createRequest(path);
+            cache.recordNotFound(cache.getKey(request, path, true, null), request, respond(new NotFoundPathCache.CapturingResponse(new MockHttpServletResponse(), 1024), BODY));
+            if (path.equals("/b")) {    // $NON-NLS-1$
+                Assertions.assertTrue(cache.writeResponse(cache.getKey(createRequest("/a"), "/a", true, null), new MockHttpServletResponse()));    // $NON-NLS-1$ // $NON-NLS-2$
+            }
+        }
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertTrue(cache.writeResponse(cache.getKey(createRequest("/a"), "/a", true, null), new MockHttpServletResponse()));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertFalse(cache.writeResponse(cache.getKey(createRequest("/b"), "/b", true, null), new MockHttpServletResponse()));    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Test
+    void refreshTimestamp() throws Exception {
+        NotFoundPathCache cache = new NotFoundPathCache(1, 16, Duration.ofMinutes(1L), 1024);
+        String[] bodies = {"{\"status\":404,\"timestamp\":\"2001-09-09T01:46:40.000+00:00\"}", "{\"status\":404,\"timestamp\":1000000000000}"};    // $NON-NLS-1$ // $NON-NLS-2$
+        for (String body : bodies) {
+            MockHttpServletRequest request = createRequest("/missing");    // $NON-NLS-1$
+            request.setAttribute(NotFoundPathCache.TIMESTAMP_ATTRIBUTE, new Date(1_000_000_000_000L));
+            NotFoundPathCache.PathKey key = cache.getKey(request, "/missing", true, null);    // $NON-NLS-1$
+            cache.recordNotFound(key, request, respond(new NotFoundPathCache.CapturingResponse(new MockHttpServletResponse(), 1024), body));
+            MockHttpServletResponse replay = new MockHttpServletResponse();
+            Assertions.assertTrue(cache.writeResponse(key, replay));
+            String content = replay.getContentAsString(StandardCharsets.UTF_8);
+            Assertions.assertTrue(content.startsWith("{\"status\":404,\"timestamp\":"));    // $NON-NLS-1$
+            Assertions.assertFalse(content.contains("2001-09-09") || content.contains("1000000000000"), content);    // $NON-NLS-1$ // $NON-NLS-2$
+            Assertions.assertEquals(body.length(), content.length());
+            Assertions.assertEquals(content.length(), replay.getContentLength());
+            cache.clear();
+        }
+    }
+
+    @Test
+    void declineUnknownTimestamp() throws Exception {
+        NotFoundPathCache cache = new NotFoundPathCache(1, 16, Duration.ofMinutes(1L), 1024);
+        MockHttpServletRequest request = createRequest("/missing");    // $NON-NLS-1$
+        request.setAttribute(NotFoundPathCache.TIMESTAMP_ATTRIBUTE, new Date(1_000_000_000_000L));
+        NotFoundPathCache.PathKey key = cache.getKey(request, "/missing", true, null);    // $NON-NLS-1$
+        cache.recordNotFound(key, request, respond(new NotFoundPathCache.CapturingResponse(new MockHttpServletResponse(), 1024), "<p>Sep 9, 2001</p>"));    // $NON-NLS-1$
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    private static MockHttpServletRequest createRequest(String path) {
+        MockHttpServletRequest result = new MockHttpServletRequest("GET", path);    // $NON-NLS-1$
+        result.addHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+        return result;
+    }
+
+    private static <T extends HttpServletResponse> T respond(T response, String body) throws Exception {
+        response.setStatus(404);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+        return response;
+    }
+}
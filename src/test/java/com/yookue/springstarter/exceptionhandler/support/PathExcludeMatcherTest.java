@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.AntPathMatcher;
+
+
+@SuppressWarnings("unused")
+class PathExcludeMatcherTest {
+    @Test
+    void emptyPatterns() {
+        Assertions.assertTrue(new PathExcludeMatcher(null).isEmpty());
+        PathExcludeMatcher matcher = new PathExcludeMatcher(List.of(" ", ""));
+        Assertions.assertTrue(matcher.isEmpty());
+        Assertions.assertFalse(matcher.matches("/"));    // $NON-NLS-1$
+        Assertions.assertFalse(new PathExcludeMatcher(List.of("/foo")).matches(null));    // $NON-NLS-1$
+    }
+
+    @Test
+    void literalPaths() {
+        PathExcludeMatcher matcher = new PathExcludeMatcher(List.of("/health", "/favicon.ico"));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertFalse(matcher.isEmpty());
+        Assertions.assertTrue(matcher.matches("/health"));    // $NON-NLS-1$
+        Assertions.assertTrue(matcher.matches("/favicon.ico"));    // $NON-NLS-1$
+        Assertions.assertFalse(matcher.matches("/health/"));    // $NON-NLS-1$
+        Assertions.assertFalse(matcher.matches("/healthz"));    // $NON-NLS-1$
+    }
+
+    @Test
+    void prefixPatterns() {
+        PathExcludeMatcher matcher = new PathExcludeMatcher(List.of("/static/**", "/api/v1/internal/**"));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertTrue(matcher.matches("/static"));    // $NON-NLS-1$
+        Assertions.assertTrue(matcher.matches("/static/"));    // $NON-NLS-1$
+        Assertions.assertTrue(matcher.matches("/static/css/site.css"));    // $NON-NLS-1$
+        Assertions.assertTrue(matcher.matches("/api/v1/internal/jobs/1"));    // $NON-NLS-1$
+        Assertions.assertFalse(matcher.matches("/staticx"));    // $NON-NLS-1$
+        Assertions.assertFalse(matcher.matches("/api/v1"));    // $NON-NLS-1$
+        Assertions.assertFalse(matcher.matches("/api/v1/public/jobs"));    // $NON-NLS-1$
+    }
+
+    @Test
+    void otherPatterns() {
+        PathExcludeMatcher matcher = new PathExcludeMatcher(List.of("/**/*.js", "/users/{id}/avatar", "/file?.txt"));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        Assertions.assertTrue(matcher.matches("/assets/app.js"));    // $NON-NLS-1$
+        Assertions.assertTrue(matcher.matches("/users/42/avatar"));    // $NON-NLS-1$
+        Assertions.assertTrue(matcher.matches("/file1.txt"));    // $NON-NLS-1$
+        Assertions.assertFalse(matcher.matches("/assets/app.css"));    // $NON-NLS-1$
+        Assertions.assertFalse(matcher.matches("/users/42"));    // $NON-NLS-1$
+        Assertions.assertFalse(matcher.matches("/file10.txt"));    // $NON-NLS-1$
+    }
+
+    @Test
+    void sameAsAntPathMatcher() {
+        List<String> patterns = List.of("/health", "/static/**", "/api/*/internal/**", "/**/*.map", "/docs/{name}");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$
+        List<String> paths = List.of("/", "/health", "/health/x", "/static", "/static/a/b.png", "/staticfile", "/api/v2/internal", "/api/v2/internal/x", "/api/internal",
+            "/js/app.js.map", "/docs/readme", "/docs/readme/raw", "/other");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$ // $NON-NLS-7$ // $NON-NLS-8$ // $NON-NLS-9$ // $NON-NLS-10$ // $NON-NLS-11$ // $NON-NLS-12$ // $NON-NLS-13$
+        PathExcludeMatcher matcher = new PathExcludeMatcher(patterns);
+        AntPathMatcher antMatcher = new AntPathMatcher();
+        for (String path : paths) {
+            boolean expected = patterns.stream().anyMatch(pattern -> antMatcher.match(pattern, path));
+            Assertions.assertEquals(expected, matcher.matches(path), path);
+        }
+    }
+}
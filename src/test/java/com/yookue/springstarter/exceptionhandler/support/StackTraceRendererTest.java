@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2023 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.exceptionhandler.support;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+@SuppressWarnings("unused")
+class StackTraceRendererTest {
+    @Test
+    void renderNull() {
+        Assertions.assertEquals(StringUtils.EMPTY, new StackTraceRenderer().render(null));
+    }
+
+    @Test
+    void renderCauses() {
+        StackTraceRenderer renderer = new StackTraceRenderer();
+        String trace = renderer.render(new IllegalStateException("outer", new IOException("inner")));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertTrue(trace.startsWith("java.lang.IllegalStateException: outer"));    // $NON-NLS-1$
+        Assertions.assertTrue(trace.contains("Caused by: java.io.IOException: inner"));    // $NON-NLS-1$
+        Assertions.assertTrue(trace.contains("\tat " + StackTraceRendererTest.class.getName()));    // $NON-NLS-1$
+        Assertions.assertEquals(0, renderer.size());
+    }
+
+    @Test
+    void renderLikeJdk() {
+        IllegalStateException throwable = new IllegalStateException("outer", new IOException("inner"));    // $NON-NLS-1$ // $NON-NLS-2$
+        throwable.addSuppressed(new IllegalArgumentException("suppressed", new UnsupportedOperationException()));    // $NON-NLS-1$
+        throwable.getCause().addSuppressed(throwable);
+        for (int cacheLimit : new int[] {0, 16}) {
+            String trace = new StackTraceRenderer(0, 0, cacheLimit, null).render(throwable);
+            Assertions.assertEquals(ExceptionUtils.getStackTrace(throwable), trace);
+            Assertions.assertTrue(trace.contains("\tSuppressed: java.lang.IllegalArgumentException: suppressed"));    // $NON-NLS-1$
+            Assertions.assertTrue(trace.contains(" more"));    // $NON-NLS-1$
+            Assertions.assertTrue(trace.contains("[CIRCULAR REFERENCE: "));    // $NON-NLS-1$
+        }
+    }
+
+    @Test
+    void cacheIgnoresMessages() {
+        StackTraceRenderer renderer = new StackTraceRenderer(0, 0, 16, null);
+        List<String> traces = new ArrayList<>();
+        for (String message : List.of("first", "second")) {    // $NON-NLS-1$ // $NON-NLS-2$
+            traces.add(renderer.render(new IllegalStateException(message)));
+        }
+        Assertions.assertEquals(1, renderer.size());
+        Assertions.assertTrue(traces.get(0).startsWith("java.lang.IllegalStateException: first"));    // $NON-NLS-1$
+        Assertions.assertTrue(traces.get(1).startsWith("java.lang.IllegalStateException: second"));    // $NON-NLS-1$
+        Assertions.assertEquals(StringUtils.substringAfter(traces.get(0), System.lineSeparator()), StringUtils.substringAfter(traces.get(1), System.lineSeparator()));
+    }
+
+    @Test
+    void cacheEvictsLeastRecentlyUsed() {
+        StackTraceRenderer renderer = new StackTraceRenderer(0, 0, 2, null);
+        renderer.render(new IllegalStateException());
+        renderer.render(new IllegalArgumentException());
+        renderer.render(new UnsupportedOperationException());
+        Assertions.assertEquals(2, renderer.size());
+        renderer.clear();
+        Assertions.assertEquals(0, renderer.size());
+    }
+
+    @Test
+    void limitFrames() {
+        StackTraceRenderer renderer = new StackTraceRenderer(1, 0, 0, null);
+        String trace = renderer.render(new IllegalStateException());
+        Assertions.assertEquals(1, StringUtils.countMatches(trace, "\tat "));    // $NON-NLS-1$
+        Assertions.assertTrue(trace.contains(" more"));    // $NON-NLS-1$
+    }
+
+    @Test
+    void excludePackages() {
+        StackTraceRenderer renderer = new StackTraceRenderer(0, 0, 0, List.of("org.junit.", "java.", "jdk."));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        String trace = renderer.render(new IllegalStateException());
+        Assertions.assertFalse(trace.contains("\tat org.junit."));    // $NON-NLS-1$
+        Assertions.assertTrue(trace.contains(" filtered"));    // $NON-NLS-1$
+        Assertions.assertTrue(trace.contains("\tat " + StackTraceRendererTest.class.getName()));    // $NON-NLS-1$
+    }
+
+    @Test
+    void limitLength() {
+        int maxLength = 120;
+        for (int cacheLimit : new int[] {0, 16}) {
+            StackTraceRenderer renderer = new StackTraceRenderer(0, maxLength, cacheLimit, null);
+            String trace = renderer.render(new IllegalStateException(StringUtils.repeat('x', 20), new IOException()));
+            Assertions.assertTrue(trace.endsWith("\t... (truncated)"));    // $NON-NLS-1$
+            Assertions.assertEquals(maxLength + "\t... (truncated)".length(), trace.length());    // $NON-NLS-1$
+        }
+    }
+}